@@ -0,0 +1,93 @@
+package org.sqx.javaaidemo.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sqx.javaaidemo.sdk.AISDK;
+import org.sqx.javaaidemo.sdk.model.PredictionResult;
+import org.sqx.javaaidemo.sdk.model.SDKConfig;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 端到端 AISDK.predict（预处理 + 推理 + 后处理），在 1/4/16 个并发线程下对比单会话、会话池和动态批处理。
+ * <p>
+ * 默认使用测试资源中的 tiny_classifier.onnx，主要反映 SDK 自身的开销；
+ * 用 -p model=/path/to/resnet50-v2-7.onnx 换成真实模型
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class PredictBenchmark {
+
+    @Param({"models/tiny_classifier.onnx"})
+    public String model;
+
+    /**
+     * single：一个会话；pool：每个核一个会话；batching：一个会话 + 动态批处理
+     */
+    @Param({"single", "pool", "batching"})
+    public String mode;
+
+    private AISDK sdk;
+    private BufferedImage image;
+
+    @Setup
+    public void setUp() throws Exception {
+        Path file = Path.of(model);
+        SDKConfig.Builder builder = Files.exists(file)
+                ? new SDKConfig.Builder(file)
+                : new SDKConfig.Builder(PredictBenchmark.class.getClassLoader().getResourceAsStream(model));
+        int cores = Runtime.getRuntime().availableProcessors();
+        if ("pool".equals(mode)) {
+            builder.sessionPoolSize(cores).intraOpThreads(1);
+        } else if ("batching".equals(mode)) {
+            builder.batching(16, 2);
+        }
+        sdk = AISDK.initialize(builder.build());
+        try (InputStream in = PredictBenchmark.class.getClassLoader().getResourceAsStream("images/cat.jpg")) {
+            image = ImageIO.read(in);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        sdk.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public PredictionResult predict1Thread() throws Exception {
+        return sdk.predict(image);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public PredictionResult predict4Threads() throws Exception {
+        return sdk.predict(image);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public PredictionResult predict16Threads() throws Exception {
+        return sdk.predict(image);
+    }
+}
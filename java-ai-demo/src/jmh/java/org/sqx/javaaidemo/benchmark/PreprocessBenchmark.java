@@ -0,0 +1,78 @@
+package org.sqx.javaaidemo.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sqx.javaaidemo.sdk.utils.ImagePreprocessor;
+import org.sqx.javaaidemo.sdk.utils.RasterPreprocessor;
+import org.sqx.javaaidemo.sdk.utils.TensorBufferPool;
+
+import java.awt.image.BufferedImage;
+import java.nio.FloatBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ImagePreprocessor.preprocess 在不同源尺寸、像素类型下缩放到 224x224 的耗时，
+ * 以及复用 RasterPreprocessor.Scratch 前后的分配量（-prof gc 的 gc.alloc.rate.norm）
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PreprocessBenchmark {
+
+    @Param({"640x480", "1920x1080", "4000x3000"})
+    public String size;
+
+    @Param({"TYPE_3BYTE_BGR", "TYPE_INT_RGB", "TYPE_BYTE_GRAY"})
+    public String type;
+
+    private BufferedImage image;
+    private ImagePreprocessor preprocessor;
+    private RasterPreprocessor.Scratch scratch;
+    private FloatBuffer buffer;
+
+    @Setup
+    public void setUp() throws Exception {
+        String[] dims = size.split("x");
+        int width = Integer.parseInt(dims[0]);
+        int height = Integer.parseInt(dims[1]);
+        image = new BufferedImage(width, height, BufferedImage.class.getField(type).getInt(null));
+        Random random = new Random(42);
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                row[x] = random.nextInt(0x1000000);
+            }
+            image.setRGB(0, y, width, 1, row, 0, width);
+        }
+        preprocessor = new ImagePreprocessor();
+        scratch = new RasterPreprocessor.Scratch();
+        buffer = TensorBufferPool.allocateDirect(3 * 224 * 224);
+    }
+
+    @Benchmark
+    public FloatBuffer preprocess() {
+        buffer.clear();
+        preprocessor.preprocess(image, buffer);
+        return buffer;
+    }
+
+    @Benchmark
+    public FloatBuffer preprocessWithScratch() {
+        buffer.clear();
+        preprocessor.preprocess(image, 224, 224, buffer, scratch);
+        return buffer;
+    }
+}
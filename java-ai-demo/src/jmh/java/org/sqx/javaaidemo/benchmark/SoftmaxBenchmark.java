@@ -0,0 +1,70 @@
+package org.sqx.javaaidemo.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sqx.javaaidemo.sdk.model.ClassScore;
+import org.sqx.javaaidemo.sdk.utils.TopK;
+import org.sqx.javaaidemo.service.impl.InferServiceImpl;
+
+import java.nio.FloatBuffer;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 后处理：完整 softmax 再取最大值，与 TopK.select 单次遍历的融合实现对比
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SoftmaxBenchmark {
+
+    @Param({"10", "1000"})
+    public int classes;
+
+    @Param({"1", "5"})
+    public int k;
+
+    private final InferServiceImpl inferService = new InferServiceImpl();
+    private float[] logits;
+    private FloatBuffer logitsBuffer;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        logits = new float[classes];
+        for (int i = 0; i < classes; i++) {
+            logits[i] = (float) random.nextGaussian() * 4;
+        }
+        logitsBuffer = FloatBuffer.wrap(logits);
+    }
+
+    @Benchmark
+    public int softmaxThenArgmax() {
+        float[] probabilities = inferService.softmax(logits);
+        int best = 0;
+        for (int i = 1; i < probabilities.length; i++) {
+            if (probabilities[i] > probabilities[best]) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    @Benchmark
+    public List<ClassScore> fusedTopK() {
+        return TopK.select(logitsBuffer, k, 1.0f);
+    }
+}
@@ -0,0 +1,75 @@
+package org.sqx.javaaidemo.benchmark;
+
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sqx.javaaidemo.sdk.utils.TensorBufferPool;
+
+import java.nio.FloatBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 创建输入张量的开销：直接内存缓冲区由 ORT 直接引用，堆缓冲区和 float[][][][] 需要复制一次
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TensorBenchmark {
+    private static final int IMAGE_SIZE = 3 * 224 * 224;
+
+    @Param({"1", "8", "32"})
+    public int batchSize;
+
+    private OrtEnvironment env;
+    private long[] shape;
+    private FloatBuffer direct;
+    private FloatBuffer heap;
+    private float[][][][] jagged;
+
+    @Setup
+    public void setUp() {
+        env = OrtEnvironment.getEnvironment();
+        shape = new long[]{batchSize, 3, 224, 224};
+        direct = TensorBufferPool.allocateDirect(batchSize * IMAGE_SIZE);
+        heap = FloatBuffer.allocate(batchSize * IMAGE_SIZE);
+        jagged = new float[batchSize][3][224][224];
+    }
+
+    @Benchmark
+    public void directBuffer(Blackhole blackhole) throws OrtException {
+        direct.rewind();
+        try (OnnxTensor tensor = OnnxTensor.createTensor(env, direct, shape)) {
+            blackhole.consume(tensor);
+        }
+    }
+
+    @Benchmark
+    public void heapBuffer(Blackhole blackhole) throws OrtException {
+        heap.rewind();
+        try (OnnxTensor tensor = OnnxTensor.createTensor(env, heap, shape)) {
+            blackhole.consume(tensor);
+        }
+    }
+
+    @Benchmark
+    public void jaggedArray(Blackhole blackhole) throws OrtException {
+        try (OnnxTensor tensor = OnnxTensor.createTensor(env, jagged)) {
+            blackhole.consume(tensor);
+        }
+    }
+}
@@ -1,95 +1,644 @@
 package org.sqx.javaaidemo.controller;
 
 import ai.onnxruntime.*;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.annotation.PreDestroy;
 import jakarta.annotation.Resource;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.sqx.javaaidemo.dto.BatchPredictionItem;
 import jakarta.annotation.PostConstruct;
 import org.sqx.javaaidemo.dto.PredictionResponse;
+import org.sqx.javaaidemo.dto.TopKEntry;
+import org.sqx.javaaidemo.health.WarmupHealthIndicator;
+import org.sqx.javaaidemo.metrics.MicrometerMetricsRecorder;
+import org.sqx.javaaidemo.metrics.MicrometerShadowRecorder;
+import org.sqx.javaaidemo.sdk.ModelInspector;
+import org.sqx.javaaidemo.sdk.admission.AdmissionLimiter;
+import org.sqx.javaaidemo.sdk.admission.AdmissionRejectedException;
+import org.sqx.javaaidemo.sdk.admission.AdmissionStats;
+import org.sqx.javaaidemo.sdk.cache.CacheStats;
+import org.sqx.javaaidemo.sdk.cache.PredictionCache;
+import org.sqx.javaaidemo.sdk.metrics.InferenceStageEvent;
+import org.sqx.javaaidemo.sdk.metrics.Stage;
+import org.sqx.javaaidemo.sdk.metrics.StageTimings;
+import org.sqx.javaaidemo.sdk.model.ClassScore;
+import org.sqx.javaaidemo.sdk.model.ModelSignature;
+import org.sqx.javaaidemo.sdk.pipeline.BatchPipeline;
+import org.sqx.javaaidemo.sdk.pipeline.ImageEntry;
+import org.sqx.javaaidemo.sdk.pipeline.ImageEntrySource;
+import org.sqx.javaaidemo.sdk.shadow.ShadowEvaluator;
+import org.sqx.javaaidemo.sdk.shadow.ShadowStats;
+import org.sqx.javaaidemo.sdk.utils.ImageDecoder;
+import org.sqx.javaaidemo.sdk.utils.ProcessMemory;
+import org.sqx.javaaidemo.sdk.utils.RawInput;
+import org.sqx.javaaidemo.sdk.utils.TensorBufferPool;
 import org.sqx.javaaidemo.service.InferService;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
 import java.util.*;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 @RestController
 @RequestMapping("/api")
 @Tag(name = "AI 推理服务", description = "基于 ResNet50 的图像分类推理接口")
 public class InferController {
 	
+	private static final long[] INPUT_SHAPE = {1, 3, 224, 224};
+	// 控制器在启动时加载一次模型，不做热更新，缓存键中的模型版本固定
+	private static final long MODEL_VERSION = 1;
+	private static final String MODEL_NAME = "iris_logreg.onnx";
+	private static final int IMAGE_SIZE = 3 * 224 * 224;
+	private static final String NDJSON = "application/x-ndjson";
+	
 	@Resource
 	private InferService inferService;
+	@Resource
+	private ObjectMapper objectMapper;
+	@Resource
+	private MeterRegistry meterRegistry;
+	@Resource
+	private WarmupHealthIndicator warmup;
 	
 	private OrtEnvironment env;
 	private OrtSession session;
+	// 图片接口使用的模型输入；加载的模型不是 224x224 的图像分类模型时为 null，图片接口返回 501
+	private ModelSignature signature;
+	// 预处理直接写入池化的直接内存缓冲区，避免每次请求分配中间数组
+	private final TensorBufferPool inputPool = new TensorBufferPool(IMAGE_SIZE, Runtime.getRuntime().availableProcessors() * 2);
+	// 大图按模型输入尺寸降采样解码，不再先解出全尺寸图片再缩小
+	private final ImageDecoder imageDecoder = new ImageDecoder();
+	
+	@Value("${inference.cache.max-entries:1024}")
+	private int cacheMaxEntries;
+	@Value("${inference.cache.ttl:10m}")
+	private Duration cacheTtl;
+	// 重复上传的图片（缩略图、客户端重试）直接返回缓存结果，max-entries 为 0 时关闭
+	private PredictionCache<PredictionResponse> predictionCache;
+	
+	@Value("${inference.admission.max-concurrent:0}")
+	private int admissionMaxConcurrent;
+	@Value("${inference.admission.queue-size:64}")
+	private int admissionQueueSize;
+	@Value("${inference.admission.timeout:2s}")
+	private Duration admissionTimeout;
+	// 限制同时解码和推理的请求数，流量突增时多余的请求排队或快速失败，避免所有请求一起拖慢
+	private AdmissionLimiter admissionLimiter;
+	// 各阶段耗时直方图，p50/p99/p999 见 /actuator/prometheus
+	private MicrometerMetricsRecorder metrics;
+	
+	// softmax 温度，用于概率校准，只影响概率不影响排序
+	@Value("${inference.temperature:1.0}")
+	private float temperature;
+	
+	@Value("${inference.warmup.iterations:20}")
+	private int warmupIterations;
+	
+	@Value("${inference.batch.max-batch-size:16}")
+	private int batchMaxSize;
+	@Value("${inference.batch.decode-threads:0}")
+	private int batchDecodeThreads;
+	// /predict/batch 的解码流水线和凑批用的张量缓冲区
+	private BatchPipeline batchPipeline;
+	private TensorBufferPool batchPool;
+	
+	@Value("${inference.shadow.model:}")
+	private String shadowModel;
+	@Value("${inference.shadow.sample-rate:0.05}")
+	private double shadowSampleRate;
+	@Value("${inference.shadow.queue-size:16}")
+	private int shadowQueueSize;
+	// 待上线的模型在抽样的真实请求上与线上模型对比，未配置时为 null
+	private ShadowEvaluator shadow;
 	
 	@PostConstruct
 	public void init () throws Exception {
+		long begin = System.currentTimeMillis();
 		env = OrtEnvironment.getEnvironment();
-		// try (InputStream modelStream = new ClassPathResource("models/resnet50-v2-7.onnx").getInputStream()) {
-		try (InputStream modelStream = new ClassPathResource("models/iris_logreg.onnx").getInputStream()) {
-			byte[] modelBytes = modelStream.readAllBytes();
-			session = env.createSession(modelBytes, new OrtSession.SessionOptions());
+		// Path modelFile = modelFile(new ClassPathResource("models/resnet50-v2-7.onnx"));
+		Path modelFile = modelFile(new ClassPathResource("models/" + MODEL_NAME));
+		// 按路径加载，由 ONNX Runtime 直接读文件，模型不会在 JVM 堆上再保留一份 byte[]
+		session = env.createSession(modelFile.toString(), new OrtSession.SessionOptions());
+		signature = imageSignature(session);
+		if (cacheMaxEntries > 0) {
+			predictionCache = new PredictionCache<>(cacheMaxEntries, cacheTtl.toMillis());
+		}
+		int maxConcurrent = admissionMaxConcurrent > 0 ? admissionMaxConcurrent : Runtime.getRuntime().availableProcessors();
+		admissionLimiter = new AdmissionLimiter(maxConcurrent, admissionQueueSize);
+		metrics = new MicrometerMetricsRecorder(meterRegistry, MODEL_NAME)
+				.inFlight(() -> admissionLimiter.stats().getInFlight())
+				.queueDepth(() -> admissionLimiter.stats().getQueueDepth());
+		int decodeThreads = batchDecodeThreads > 0 ? batchDecodeThreads : Runtime.getRuntime().availableProcessors();
+		// batch 维固定为 1 的模型逐张推理
+		if (signature != null && !signature.isDynamicBatch()) {
+			batchMaxSize = 1;
+		}
+		batchPipeline = new BatchPipeline(inferService::preprocessImage, IMAGE_SIZE, batchMaxSize, decodeThreads);
+		batchPool = new TensorBufferPool(batchMaxSize * IMAGE_SIZE, 2);
+		if (!shadowModel.isBlank()) {
+			initShadow();
+		}
+		System.out.println("模型加载完成！耗时 " + (System.currentTimeMillis() - begin) + "ms，峰值RSS " + ProcessMemory.peakRssKb() + "KB");
+		// 预热在后台进行，不阻塞启动；完成之前 readiness 探针为 OUT_OF_SERVICE
+		Thread warmupThread = new Thread(this::warmUp, "inference-warmup");
+		warmupThread.setDaemon(true);
+		warmupThread.start();
+	}
+	
+	/**
+	 * 按 [N,3,224,224] 解释模型输入，不是这样的图像分类模型时返回 null
+	 */
+	private static ModelSignature imageSignature (OrtSession session) throws OrtException {
+		try {
+			ModelSignature inspected = ModelInspector.inspect(session, 224, 224);
+			if (inspected.getWidth() == 224 && inspected.getHeight() == 224) {
+				return inspected;
+			}
+			System.out.println("模型 " + MODEL_NAME + " 的输入尺寸为 " + inspected.getWidth() + "x" + inspected.getHeight() + "，图片推理接口不可用");
+		} catch (IllegalArgumentException e) {
+			System.out.println("模型 " + MODEL_NAME + " 不是图像分类模型，图片推理接口不可用：" + e.getMessage());
+		}
+		return null;
+	}
+	
+	/**
+	 * 图片接口使用的模型输入名，模型不是图像分类模型时返回 501
+	 */
+	private String imageInput () {
+		if (signature == null) {
+			throw new ResponseStatusException(HttpStatus.NOT_IMPLEMENTED, "模型 " + MODEL_NAME + " 不是 224x224 的图像分类模型，图片推理接口不可用");
+		}
+		return signature.getInputName();
+	}
+	
+	/**
+	 * ORT 第一次遇到某个输入形状时才分配内存池，JIT 也还没有编译预处理循环，不预热时最初的请求要慢好几倍。
+	 * 先按模型实际的输入推理若干次，图像模型再用合成图片跑预处理
+	 */
+	private void warmUp () {
+		warmup.started();
+		long begin = System.currentTimeMillis();
+		try {
+			warmUpSession();
+			if (signature != null) {
+				BufferedImage image = new BufferedImage(640, 480, BufferedImage.TYPE_3BYTE_BGR);
+				FloatBuffer inputData = inputPool.acquire();
+				try {
+					for (int i = 0; i < warmupIterations; i++) {
+						inputData.clear();
+						inferService.preprocessImage(image, inputData);
+					}
+				} finally {
+					inputPool.release(inputData);
+				}
+			}
+			long elapsed = System.currentTimeMillis() - begin;
+			warmup.ready(elapsed);
+			System.out.println("预热完成！耗时 " + elapsed + "ms");
+		} catch (Throwable t) {
+			warmup.failed(t);
+			System.err.println("预热失败：" + t);
 		}
-		System.out.println("模型加载完成！");
+	}
+	
+	/**
+	 * 输入名和形状取自模型：batch 维动态时按 /predict 和 /predict/batch 会用到的批次大小（1、2、4……和最大批次）各推理若干次，
+	 * 固定时只用模型自己的批次大小；其余动态维度图像模型取 224x224，其他模型取 1
+	 */
+	private void warmUpSession () throws OrtException {
+		String inputName;
+		long[] shape;
+		if (signature != null) {
+			inputName = signature.getInputName();
+			shape = new long[]{signature.isDynamicBatch() ? -1 : 1, signature.getChannels(), signature.getHeight(), signature.getWidth()};
+		} else {
+			Map.Entry<String, NodeInfo> input = session.getInputInfo().entrySet().iterator().next();
+			if (!(input.getValue().getInfo() instanceof TensorInfo)
+					|| ((TensorInfo) input.getValue().getInfo()).type != OnnxJavaType.FLOAT) {
+				System.out.println("模型输入 " + input.getKey() + " 不是 float 张量，跳过推理预热");
+				return;
+			}
+			inputName = input.getKey();
+			shape = ((TensorInfo) input.getValue().getInfo()).getShape().clone();
+			for (int i = 1; i < shape.length; i++) {
+				shape[i] = Math.max(shape[i], 1);
+			}
+		}
+		List<Integer> batchSizes = new ArrayList<>();
+		if (shape.length > 0 && shape[0] < 0) {
+			for (int batchSize = 1; batchSize < batchMaxSize; batchSize *= 2) {
+				batchSizes.add(batchSize);
+			}
+			batchSizes.add(batchMaxSize);
+		} else {
+			batchSizes.add(shape.length > 0 ? (int) shape[0] : 1);
+		}
+		int sampleSize = 1;
+		for (int i = 1; i < shape.length; i++) {
+			sampleSize *= (int) shape[i];
+		}
+		int maxBatch = batchSizes.get(batchSizes.size() - 1);
+		FloatBuffer zeros = TensorBufferPool.allocateDirect(maxBatch * sampleSize);
+		for (int batchSize : batchSizes) {
+			if (shape.length > 0) {
+				shape[0] = batchSize;
+			}
+			for (int i = 0; i < warmupIterations; i++) {
+				FloatBuffer input = zeros.duplicate();
+				input.limit(batchSize * sampleSize);
+				try (OnnxTensor tensor = OnnxTensor.createTensor(env, input, shape);
+				     OrtSession.Result results = session.run(Collections.singletonMap(inputName, tensor))) {
+					if (signature != null) {
+						inferService.topK(((OnnxTensor) results.get(0)).getFloatBuffer(), 1, temperature);
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * 影子会话与线上会话使用相同的会话选项，两边的耗时才有可比性；影子推理在单独的低优先级线程上串行执行，
+	 * 同一时刻最多占用一次线上推理的 CPU
+	 */
+	private void initShadow () throws OrtException {
+		Path shadowFile = Path.of(shadowModel);
+		OrtSession shadowSession = env.createSession(shadowFile.toString(), new OrtSession.SessionOptions());
+		try {
+			shadow = new ShadowEvaluator(env, shadowSession, INPUT_SHAPE, shadowSampleRate, shadowQueueSize,
+					new MicrometerShadowRecorder(meterRegistry, MODEL_NAME, shadowFile.getFileName().toString()));
+		} catch (OrtException | RuntimeException e) {
+			shadowSession.close();
+			throw e;
+		}
+		System.out.println("影子模型 " + shadowFile + " 已加载，抽样比例 " + shadowSampleRate);
+	}
+	
+	@PreDestroy
+	public void destroy () throws Exception {
+		if (batchPipeline != null) {
+			batchPipeline.close();
+		}
+		if (shadow != null) {
+			shadow.close();
+		}
+	}
+	
+	/**
+	 * 模型在文件系统中时直接返回路径；打包在 jar 内时流式拷贝到临时文件，避免整体读入内存
+	 */
+	static Path modelFile (ClassPathResource resource) throws IOException {
+		if (resource.isFile()) {
+			return resource.getFile().toPath();
+		}
+		Path tempFile = Files.createTempFile("model-", ".onnx");
+		tempFile.toFile().deleteOnExit();
+		try (InputStream modelStream = resource.getInputStream()) {
+			Files.copy(modelStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+		}
+		return tempFile;
 	}
 	
 	@PostMapping("/predict")
 	@Operation(summary = "上传图片进行图像分类", description = "接收一张图片，使用 ResNet50 模型进行推理，返回预测类别 ID、置信度和延迟时间")
 	@ApiResponse(responseCode = "200", description = "推理成功", content = @Content(mediaType = "application/json", schema = @Schema(implementation = PredictionResponse.class)))
-	public PredictionResponse predict (@RequestParam("image") MultipartFile file) throws Exception {
+	@ApiResponse(responseCode = "429", description = "等待队列已满，请稍后重试")
+	@ApiResponse(responseCode = "503", description = "请求在截止时间内未能完成推理")
+	public PredictionResponse predict (@RequestParam("image") MultipartFile file,
+	                                   @RequestParam(value = "topK", defaultValue = "1") int topK,
+	                                   @RequestParam(value = "timings", defaultValue = "false") boolean timings,
+	                                   @RequestHeader(value = "X-Request-Timeout-Ms", required = false) Long timeoutMs) throws Exception {
+		imageInput();
+		if (topK < 1) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "topK 必须大于 0");
+		}
+		long timeoutMillis = timeoutMillis(timeoutMs);
+		long start = System.currentTimeMillis();
+		StageTimings stages = new StageTimings();
+		long begin = System.nanoTime();
+		// 先获得准入再把上传内容读进堆内存，过载时排队和被拒绝的请求不占用内存
+		try (AdmissionLimiter.Permit permit = admissionLimiter.acquire(timeoutMillis)) {
+			stages.set(Stage.QUEUE, System.nanoTime() - begin);
+			byte[] content = file.getBytes();
+			PredictionCache.Key key = null;
+			if (predictionCache != null) {
+				key = PredictionCache.key(content, MODEL_VERSION);
+				PredictionResponse cached = predictionCache.get(key);
+				// 缓存的结果类别数不够时重新推理，并用更大的 K 覆盖缓存
+				if (cached != null && cached.getTopK().size() >= topK) {
+					return copyOf(cached, topK, System.currentTimeMillis() - start);
+				}
+			}
+			
+			begin = System.nanoTime();
+			InferenceStageEvent event = InferenceStageEvent.start(Stage.DECODE);
+			BufferedImage img = imageDecoder.decode(content);
+			stages.set(Stage.DECODE, System.nanoTime() - begin);
+			if (img == null) {
+				throw new RuntimeException("无法读取图片");
+			}
+			event.finish(MODEL_NAME, MODEL_VERSION, img.getWidth(), img.getHeight(), 1);
+			
+			FloatBuffer inputData = inputPool.acquire();
+			try {
+				begin = System.nanoTime();
+				event = InferenceStageEvent.start(Stage.PREPROCESS);
+				inferService.preprocessImage(img, inputData);
+				inputData.flip();
+				event.finish(MODEL_NAME, MODEL_VERSION, img.getWidth(), img.getHeight(), 1);
+				stages.set(Stage.PREPROCESS, System.nanoTime() - begin);
+				// 已经超时的请求不再进入 ONNX Runtime
+				permit.checkDeadline();
+				PredictionResponse result = infer(inputData, topK, start, stages, img.getWidth(), img.getHeight());
+				metrics.record(stages);
+				if (key != null) {
+					predictionCache.put(key, copyOf(result, topK, result.getLatencyMs()));
+				}
+				if (timings) {
+					result.setStages(toMillis(stages));
+				}
+				return result;
+			} finally {
+				inputPool.release(inputData);
+			}
+		}
+	}
+	
+	@PostMapping(value = "/predict", consumes = RawInput.CONTENT_TYPE)
+	@Operation(summary = "原始张量或 RGB 像素分类", description = "请求体为 16 字节头部加数据：已归一化的 float32 CHW 张量，或 uint8 HWC 的 RGB 像素，"
+			+ "尺寸必须为 224x224；不经过图片解码和缩放，适合已经持有解码帧的上游服务。格式见 RawInput")
+	@ApiResponse(responseCode = "200", description = "推理成功", content = @Content(mediaType = "application/json", schema = @Schema(implementation = PredictionResponse.class)))
+	@ApiResponse(responseCode = "400", description = "头部格式不认识、尺寸不是 224x224 或数据长度不对")
+	@ApiResponse(responseCode = "429", description = "等待队列已满，请稍后重试")
+	@ApiResponse(responseCode = "503", description = "请求在截止时间内未能完成推理")
+	public PredictionResponse predictRaw (HttpServletRequest request,
+	                                      @RequestParam(value = "topK", defaultValue = "1") int topK,
+	                                      @RequestParam(value = "timings", defaultValue = "false") boolean timings,
+	                                      @RequestHeader(value = "X-Request-Timeout-Ms", required = false) Long timeoutMs) throws Exception {
+		imageInput();
+		if (topK < 1) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "topK 必须大于 0");
+		}
+		long timeoutMillis = timeoutMillis(timeoutMs);
 		long start = System.currentTimeMillis();
-		BufferedImage img = ImageIO.read(file.getInputStream());
-		if (img == null) {
-			throw new RuntimeException("无法读取图片");
-		}
-		
-		float[] inputData = inferService.preprocessImage(img);
-		float[][][][] inputArray = new float[1][3][224][224];
-		for (int c = 0; c < 3; c++) {
-			for (int h = 0; h < 224; h++) {
-				for (int w = 0; w < 224; w++) {
-					inputArray[0][c][h][w] = inputData[c * 224 * 224 + h * 224 + w];
+		StageTimings stages = new StageTimings();
+		long begin = System.nanoTime();
+		try (AdmissionLimiter.Permit permit = admissionLimiter.acquire(timeoutMillis)) {
+			stages.set(Stage.QUEUE, System.nanoTime() - begin);
+			int maxBytes = RawInput.maxBytes(224, 224);
+			byte[] content;
+			try (InputStream body = request.getInputStream()) {
+				content = body.readNBytes(maxBytes + 1);
+			}
+			if (content.length > maxBytes) {
+				throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "请求体超过 " + maxBytes + " 字节");
+			}
+			FloatBuffer inputData = inputPool.acquire();
+			try {
+				begin = System.nanoTime();
+				InferenceStageEvent event = InferenceStageEvent.start(Stage.PREPROCESS);
+				try {
+					inferService.preprocessRaw(ByteBuffer.wrap(content), inputData);
+				} catch (IllegalArgumentException e) {
+					throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+				}
+				inputData.flip();
+				event.finish(MODEL_NAME, MODEL_VERSION, 224, 224, 1);
+				stages.set(Stage.PREPROCESS, System.nanoTime() - begin);
+				permit.checkDeadline();
+				PredictionResponse result = infer(inputData, topK, start, stages, 224, 224);
+				metrics.record(stages);
+				if (timings) {
+					result.setStages(toMillis(stages));
 				}
+				return result;
+			} finally {
+				inputPool.release(inputData);
 			}
 		}
-		
-		try (OnnxTensor tensor = OnnxTensor.createTensor(env, inputArray)) {
-			Map<String, OnnxTensor> inputs = Collections.singletonMap("data", tensor);
+	}
+	
+	/**
+	 * 请求头 X-Request-Timeout-Ms 给出的截止时间，不能超过配置的 inference.admission.timeout
+	 */
+	private long timeoutMillis (Long timeoutMs) {
+		if (timeoutMs == null) {
+			return admissionTimeout.toMillis();
+		}
+		if (timeoutMs <= 0) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "X-Request-Timeout-Ms 必须大于 0");
+		}
+		return Math.min(timeoutMs, admissionTimeout.toMillis());
+	}
+	
+	@ExceptionHandler(AdmissionRejectedException.class)
+	public ResponseEntity<String> rejected (AdmissionRejectedException e) {
+		if (e.getReason() == AdmissionRejectedException.Reason.QUEUE_FULL) {
+			return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "1").body(e.getMessage());
+		}
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+	}
+	
+	private static PredictionResponse copyOf (PredictionResponse source, int topK, long latencyMs) {
+		PredictionResponse copy = new PredictionResponse();
+		copy.setClassId(source.getClassId());
+		copy.setScore(source.getScore());
+		copy.setLatencyMs(latencyMs);
+		List<TopKEntry> entries = source.getTopK();
+		copy.setTopK(new ArrayList<>(entries.subList(0, Math.min(topK, entries.size()))));
+		return copy;
+	}
+	
+	private PredictionResponse infer (FloatBuffer inputData, int topK, long start, StageTimings stages, int width, int height) throws OrtException {
+		try (OnnxTensor tensor = OnnxTensor.createTensor(env, inputData, INPUT_SHAPE)) {
+			Map<String, OnnxTensor> inputs = Collections.singletonMap(imageInput(), tensor);
+			long begin = System.nanoTime();
+			InferenceStageEvent event = InferenceStageEvent.start(Stage.INFERENCE);
 			try (OrtSession.Result results = session.run(inputs)) {
-				float[][] output = (float[][]) results.get(0).getValue();
-				float[] logits = output[0];
-				
-				// ========== 关键修改：添加 softmax ==========
-				float[] probabilities = inferService.softmax(logits);
-				
-				int maxIndex = 0;
-				float maxProb = probabilities[0];
-				for (int i = 1; i < probabilities.length; i++) {
-					if (probabilities[i] > maxProb) {
-						maxProb = probabilities[i];
-						maxIndex = i;
+				event.finish(MODEL_NAME, MODEL_VERSION, width, height, 1);
+				stages.set(Stage.INFERENCE, System.nanoTime() - begin);
+				metrics.recordBatch(1);
+				begin = System.nanoTime();
+				event = InferenceStageEvent.start(Stage.POSTPROCESS);
+				// 直接读取输出张量的缓冲区，一次遍历完成 softmax 归一化和 top-K 选取
+				FloatBuffer logits = ((OnnxTensor) results.get(0)).getFloatBuffer();
+				PredictionResponse response = toResponse(inferService.topK(logits, topK, temperature), start);
+				event.finish(MODEL_NAME, MODEL_VERSION, width, height, 1);
+				stages.set(Stage.POSTPROCESS, System.nanoTime() - begin);
+				if (shadow != null) {
+					// 只复制已经预处理好的输入，不等待影子推理
+					shadow.mirror(inputData, response.getClassId(), stages.get(Stage.INFERENCE));
+				}
+				return response;
+			}
+		}
+	}
+	
+	private static Map<String, Double> toMillis (StageTimings stages) {
+		Map<String, Double> millis = new LinkedHashMap<>();
+		for (Stage stage : Stage.values()) {
+			long nanos = stages.get(stage);
+			if (nanos >= 0) {
+				millis.put(stage.tag(), nanos / 1_000_000.0);
+			}
+		}
+		return millis;
+	}
+	
+	private static PredictionResponse toResponse (List<ClassScore> scores, long start) {
+		List<TopKEntry> entries = new ArrayList<>(scores.size());
+		for (ClassScore score : scores) {
+			entries.add(new TopKEntry(score.getClassId(), score.getProbability()));
+		}
+		long end = System.currentTimeMillis();
+		PredictionResponse result = new PredictionResponse();
+		result.setClassId(entries.get(0).getClassId());
+		result.setScore(entries.get(0).getProbability());
+		result.setLatencyMs(end - start);
+		result.setTopK(entries);
+		return result;
+	}
+	
+	@PostMapping(value = "/predict/batch", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = NDJSON)
+	@Operation(summary = "批量图像分类（multipart）", description = "一次上传多张图片（字段名 images），流水线解码并凑批推理，每张图片的结果完成后立即以一行 NDJSON 返回")
+	public ResponseEntity<StreamingResponseBody> predictBatch (@RequestParam("images") List<MultipartFile> files,
+	                                                           @RequestParam(value = "topK", defaultValue = "1") int topK) {
+		Iterator<ImageEntrySource.EntrySupplier> entries = files.stream()
+				.<ImageEntrySource.EntrySupplier>map(file -> () -> new ImageEntry(file.getOriginalFilename(), file.getBytes()))
+				.iterator();
+		return streamBatch(ImageEntrySource.of(entries), topK);
+	}
+	
+	@PostMapping(value = "/predict/batch", consumes = {"application/zip", "application/x-tar", "application/gzip"}, produces = NDJSON)
+	@Operation(summary = "批量图像分类（zip / tar 流）", description = "请求体为 zip、tar 或 tar.gz 归档，边接收边解码推理，内存占用与归档大小无关")
+	public ResponseEntity<StreamingResponseBody> predictBatchArchive (HttpServletRequest request,
+	                                                                  @RequestParam(value = "topK", defaultValue = "1") int topK) throws IOException {
+		InputStream body = request.getInputStream();
+		MediaType contentType = MediaType.parseMediaType(request.getContentType());
+		ImageEntrySource source;
+		if ("zip".equals(contentType.getSubtype())) {
+			source = ImageEntrySource.zip(body);
+		} else if ("gzip".equals(contentType.getSubtype())) {
+			source = ImageEntrySource.tar(new GZIPInputStream(body, 64 * 1024));
+		} else {
+			source = ImageEntrySource.tar(body);
+		}
+		return streamBatch(source, topK);
+	}
+	
+	private ResponseEntity<StreamingResponseBody> streamBatch (ImageEntrySource source, int topK) {
+		imageInput();
+		if (topK < 1) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "topK 必须大于 0");
+		}
+		StreamingResponseBody body = out -> {
+			try (ImageEntrySource entries = source) {
+				batchPipeline.run(entries, inputs -> inferBatch(inputs, topK), outcome -> {
+					BatchPredictionItem item = new BatchPredictionItem();
+					item.setIndex(outcome.getIndex());
+					item.setName(outcome.getName());
+					if (outcome.getResult() != null) {
+						item.setClassId(outcome.getResult().getClassId());
+						item.setScore(outcome.getResult().getScore());
+						item.setTopK(outcome.getResult().getTopK());
+					} else {
+						item.setError(outcome.getError());
 					}
+					writeLine(out, item);
+				});
+			} catch (IOException e) {
+				throw e;
+			} catch (Exception e) {
+				// 响应已经开始输出，无法再改状态码，用最后一行说明上传内容读取失败
+				writeLine(out, Collections.singletonMap("error", "读取上传内容失败：" + e.getMessage()));
+			}
+		};
+		return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
+	}
+	
+	private void writeLine (OutputStream out, Object value) throws IOException {
+		out.write(objectMapper.writeValueAsBytes(value));
+		out.write('\n');
+		out.flush();
+	}
+	
+	/**
+	 * 把流水线凑好的一批图片拼成 [N,3,224,224] 张量一次推理，再按行切分输出做 top-K。
+	 * 每一批和单张请求一样先申请准入许可，批量请求不会绕过并发上限；没有获得许可时这一批的每张图片都以错误行返回
+	 */
+	private List<PredictionResponse> inferBatch (List<FloatBuffer> inputs, int topK) throws OrtException, InterruptedException {
+		long start = System.currentTimeMillis();
+		int batchSize = inputs.size();
+		FloatBuffer batchData = batchPool.acquire();
+		try (AdmissionLimiter.Permit permit = admissionLimiter.acquire(admissionTimeout.toMillis())) {
+			for (FloatBuffer input : inputs) {
+				batchData.put(input.duplicate());
+			}
+			batchData.flip();
+			long[] shape = {batchSize, 3, 224, 224};
+			InferenceStageEvent event = InferenceStageEvent.start(Stage.INFERENCE);
+			try (OnnxTensor tensor = OnnxTensor.createTensor(env, batchData, shape);
+			     OrtSession.Result results = session.run(Collections.singletonMap(imageInput(), tensor))) {
+				event.finish(MODEL_NAME, MODEL_VERSION, 224, 224, batchSize);
+				metrics.recordBatch(batchSize);
+				FloatBuffer logits = ((OnnxTensor) results.get(0)).getFloatBuffer();
+				int classes = logits.remaining() / batchSize;
+				List<PredictionResponse> responses = new ArrayList<>(batchSize);
+				for (int i = 0; i < batchSize; i++) {
+					logits.limit((i + 1) * classes);
+					logits.position(i * classes);
+					responses.add(toResponse(inferService.topK(logits, topK, temperature), start));
 				}
-				// ============================================
-				long end = System.currentTimeMillis();
-				PredictionResponse result = new PredictionResponse();
-				result.setClassId(maxIndex);
-				result.setScore(maxProb);
-				result.setLatencyMs(end - start);
-				return result;
+				return responses;
 			}
+		} finally {
+			batchPool.release(batchData);
 		}
 	}
 	
+	@GetMapping("/cache/stats")
+	@Operation(summary = "推理缓存统计", description = "返回推理结果缓存的命中数、未命中数、淘汰数和当前条目数")
+	public CacheStats cacheStats () {
+		return predictionCache != null ? predictionCache.stats() : new CacheStats(0, 0, 0, 0);
+	}
+	
+	@GetMapping("/admission/stats")
+	@Operation(summary = "准入控制统计", description = "返回正在处理和排队的请求数，以及准入、拒绝和超时丢弃的累计次数")
+	public AdmissionStats admissionStats () {
+		return admissionLimiter.stats();
+	}
+	
+	@GetMapping("/shadow/stats")
+	@Operation(summary = "影子模型评估统计", description = "返回抽样镜像、放弃和完成对比的请求数，top-1 一致率和两个模型的平均推理耗时；未配置影子模型时全部为 0")
+	public ShadowStats shadowStats () {
+		return shadow != null ? shadow.stats() : ShadowEvaluator.emptyStats();
+	}
+	
 	@GetMapping("/health")
 	@Operation(summary = "健康检查", description = "检查服务是否正常运行")
 	public String health () {
@@ -0,0 +1,155 @@
+package org.sqx.javaaidemo.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.sqx.javaaidemo.dto.RecordingStatus;
+import org.sqx.javaaidemo.sdk.metrics.InferenceStageEvent;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * 按需开启 JDK Flight Recorder 录制，线上 p99 抖动时不重新部署即可采集推理路径的剖析数据。
+ * 录制中包含 {@link InferenceStageEvent} 以及 JVM 自带的 GC、锁、线程采样等事件，用 JMC 打开下载的 .jfr 文件查看。
+ * <p>
+ * 同一时刻只有一个录制，时长和大小都有上限，忘记停止也会自动结束；
+ * 这是没有鉴权的管理接口，默认关闭（所有接口返回 404），只在内网或经过鉴权的网关后面设置 profiling.jfr.enabled=true
+ */
+@RestController
+@RequestMapping("/api/admin/jfr")
+@Tag(name = "性能剖析", description = "按需开启和下载 JFR 录制")
+public class ProfilingController {
+	
+	private static final Set<String> SETTINGS = Set.of("default", "profile");
+	
+	@Value("${profiling.jfr.enabled:false}")
+	private boolean enabled;
+	@Value("${profiling.jfr.max-duration:5m}")
+	private Duration maxDuration;
+	@Value("${profiling.jfr.max-size:256MB}")
+	private DataSize maxSize;
+	
+	private Recording recording;
+	private String recordingSettings;
+	
+	@PostMapping("/start")
+	@Operation(summary = "开始 JFR 录制", description = "settings 为 default（开销约 1%）或 profile（开销约 2%，线程采样更密）；seconds 到期后自动停止，不超过 profiling.jfr.max-duration")
+	public synchronized RecordingStatus start (@RequestParam(value = "seconds", defaultValue = "60") long seconds,
+	                                           @RequestParam(value = "settings", defaultValue = "profile") String settings) throws IOException {
+		checkEnabled();
+		if (seconds < 1) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "seconds 必须大于 0");
+		}
+		if (!SETTINGS.contains(settings)) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "settings 只能是 default 或 profile");
+		}
+		if (recording != null && recording.getState() == RecordingState.RUNNING) {
+			throw new ResponseStatusException(HttpStatus.CONFLICT, "已有正在进行的录制");
+		}
+		closeRecording();
+		
+		Configuration configuration;
+		try {
+			configuration = Configuration.getConfiguration(settings);
+		} catch (ParseException e) {
+			throw new IOException("无法读取 JFR 配置 " + settings, e);
+		}
+		Recording next = new Recording(configuration);
+		next.setName("inference-profiling");
+		next.setToDisk(true);
+		next.setDuration(Duration.ofSeconds(Math.min(seconds, maxDuration.toSeconds())));
+		next.setMaxSize(maxSize.toBytes());
+		// 推理阶段事件不设阈值，每个阶段都记录
+		next.enable(InferenceStageEvent.class).withThreshold(Duration.ZERO);
+		next.start();
+		recording = next;
+		recordingSettings = settings;
+		return status();
+	}
+	
+	@PostMapping(value = "/stop", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+	@Operation(summary = "停止录制并下载 .jfr 文件", description = "录制已经因时长到期自动停止时同样可以下载")
+	public synchronized ResponseEntity<StreamingResponseBody> stop () throws IOException {
+		checkEnabled();
+		if (recording == null) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "没有录制");
+		}
+		Path file = Files.createTempFile("inference-", ".jfr");
+		try {
+			if (recording.getState() == RecordingState.RUNNING) {
+				recording.stop();
+			}
+			recording.dump(file);
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(file);
+			throw e;
+		} finally {
+			closeRecording();
+		}
+		StreamingResponseBody body = out -> {
+			try {
+				Files.copy(file, out);
+			} finally {
+				Files.deleteIfExists(file);
+			}
+		};
+		return ResponseEntity.ok()
+				.contentType(MediaType.APPLICATION_OCTET_STREAM)
+				.contentLength(Files.size(file))
+				.header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getFileName() + "\"")
+				.body(body);
+	}
+	
+	@GetMapping("/status")
+	@Operation(summary = "JFR 录制状态", description = "返回当前录制的状态、开始时间、时长上限和已写入的数据量")
+	public synchronized RecordingStatus status () {
+		checkEnabled();
+		RecordingStatus status = new RecordingStatus();
+		if (recording == null) {
+			status.setState("NONE");
+			return status;
+		}
+		status.setState(recording.getState().name());
+		status.setSettings(recordingSettings);
+		status.setStartTime(recording.getStartTime());
+		status.setMaxDurationSeconds(recording.getDuration() != null ? recording.getDuration().toSeconds() : 0);
+		status.setSizeBytes(recording.getSize());
+		return status;
+	}
+	
+	@PreDestroy
+	public synchronized void destroy () {
+		closeRecording();
+	}
+	
+	private void checkEnabled () {
+		if (!enabled) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "JFR 录制接口未开启");
+		}
+	}
+	
+	private void closeRecording () {
+		if (recording != null) {
+			recording.close();
+			recording = null;
+			recordingSettings = null;
+		}
+	}
+}
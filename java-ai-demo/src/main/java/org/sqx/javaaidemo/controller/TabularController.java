@@ -0,0 +1,186 @@
+package org.sqx.javaaidemo.controller;
+
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.sqx.javaaidemo.sdk.tabular.FeatureColumns;
+import org.sqx.javaaidemo.sdk.tabular.TabularScorer;
+import org.sqx.javaaidemo.sdk.tabular.TabularScores;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.FloatBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * 表格特征打分：模型（默认为内置的 iris_logreg.onnx）的输入是 [N,F] 的特征矩阵，一个请求携带多行，打包成一个张量推理。
+ * JSON 请求流式解析、流式输出，不为每一行创建对象；吞吐要求更高时使用按列存放的二进制格式，见 {@link FeatureColumns}
+ */
+@RestController
+@RequestMapping("/api")
+@Tag(name = "表格特征打分", description = "基于 iris_logreg 的批量特征向量打分接口")
+public class TabularController {
+	
+	private static final String MODEL_NAME = "iris_logreg.onnx";
+	
+	@Resource
+	private ObjectMapper objectMapper;
+	
+	// 为空时使用内置模型
+	@Value("${inference.tabular.model:}")
+	private String modelPath;
+	@Value("${inference.tabular.max-rows:1000000}")
+	private int maxRows;
+	@Value("${inference.tabular.chunk-rows:65536}")
+	private int chunkRows;
+	
+	private TabularScorer scorer;
+	
+	@PostConstruct
+	public void init () throws Exception {
+		OrtEnvironment env = OrtEnvironment.getEnvironment();
+		Path modelFile = modelPath.isBlank()
+				? InferController.modelFile(new ClassPathResource("models/" + MODEL_NAME))
+				: Path.of(modelPath);
+		OrtSession session;
+		try {
+			session = env.createSession(modelFile.toString(), new OrtSession.SessionOptions());
+		} catch (OrtException e) {
+			// 常见原因是模型的 IR 版本或 opset 高于当前 ONNX Runtime 支持的版本
+			throw new IllegalStateException("无法加载表格模型 " + modelFile + "（ONNX Runtime " + env.getVersion() + "）：" + e.getMessage(), e);
+		}
+		try {
+			scorer = new TabularScorer(env, session, chunkRows);
+		} catch (RuntimeException e) {
+			session.close();
+			throw new IllegalStateException("表格模型 " + modelFile + " 不符合要求：" + e.getMessage(), e);
+		}
+	}
+	
+	@PreDestroy
+	public void destroy () throws OrtException {
+		if (scorer != null) {
+			scorer.close();
+		}
+	}
+	
+	@PostMapping(value = "/score", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+	@Operation(summary = "批量特征打分（JSON）", description = "请求体为特征矩阵 [[f1,f2,...],...]，每行特征数与模型一致；"
+			+ "返回 {\"rows\":N,\"latencyMs\":..,\"results\":[{\"classId\":1,\"probabilities\":[0.1,0.9]},...]}，顺序与请求一致")
+	public ResponseEntity<StreamingResponseBody> score (HttpServletRequest request) throws IOException, OrtException {
+		long start = System.currentTimeMillis();
+		FloatBuffer rows;
+		try (InputStream body = request.getInputStream()) {
+			rows = readMatrix(body);
+		}
+		int rowCount = rows.remaining() / scorer.getFeatureCount();
+		TabularScores scores = scorer.score(rows, rowCount);
+		long latencyMs = System.currentTimeMillis() - start;
+		
+		StreamingResponseBody response = out -> {
+			try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+				json.writeStartObject();
+				json.writeNumberField("rows", scores.getRowCount());
+				json.writeNumberField("latencyMs", latencyMs);
+				json.writeArrayFieldStart("results");
+				for (int r = 0; r < scores.getRowCount(); r++) {
+					json.writeStartObject();
+					json.writeNumberField("classId", scores.getClassId(r));
+					json.writeArrayFieldStart("probabilities");
+					for (int c = 0; c < scores.getClassCount(); c++) {
+						json.writeNumber(scores.getProbability(r, c));
+					}
+					json.writeEndArray();
+					json.writeEndObject();
+				}
+				json.writeEndArray();
+				json.writeEndObject();
+			}
+		};
+		return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(response);
+	}
+	
+	@PostMapping(value = "/score", consumes = FeatureColumns.REQUEST_TYPE, produces = FeatureColumns.RESPONSE_TYPE)
+	@Operation(summary = "批量特征打分（二进制列式）", description = "请求体为小端序的 int32 行数、int32 特征数和按列存放的 float32 特征；"
+			+ "返回 int32 行数、int32 类别数、每行的 int32 类别和按行存放的 float32 概率")
+	public ResponseEntity<StreamingResponseBody> scoreColumns (HttpServletRequest request) throws IOException, OrtException {
+		FloatBuffer rows;
+		try (InputStream body = request.getInputStream()) {
+			rows = FeatureColumns.read(body, scorer.getFeatureCount(), maxRows);
+		}
+		TabularScores scores = scorer.score(rows, rows.remaining() / scorer.getFeatureCount());
+		StreamingResponseBody response = out -> FeatureColumns.write(scores, out);
+		return ResponseEntity.ok().contentType(MediaType.parseMediaType(FeatureColumns.RESPONSE_TYPE)).body(response);
+	}
+	
+	@ExceptionHandler({IllegalArgumentException.class, EOFException.class, JsonProcessingException.class})
+	public ResponseEntity<String> badRequest (Exception e) {
+		return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+	}
+	
+	/**
+	 * 流式解析 [[f1,f2,...],...]，数值直接写入按需扩容的 float[]，返回行优先的缓冲区
+	 */
+	private FloatBuffer readMatrix (InputStream body) throws IOException {
+		int features = scorer.getFeatureCount();
+		float[] values = new float[features * 1024];
+		int size = 0;
+		try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+			if (parser.nextToken() != JsonToken.START_ARRAY) {
+				throw new IllegalArgumentException("请求体应为特征矩阵 [[f1,f2,...],...]");
+			}
+			int row = 0;
+			while (parser.nextToken() == JsonToken.START_ARRAY) {
+				if (row == maxRows) {
+					throw new IllegalArgumentException("行数超过上限 " + maxRows);
+				}
+				if (size + features > values.length) {
+					values = Arrays.copyOf(values, Math.max(values.length * 2, size + features));
+				}
+				int column = 0;
+				JsonToken token;
+				while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+					if (token == null || !token.isNumeric() || column == features) {
+						throw new IllegalArgumentException("第 " + row + " 行应为 " + features + " 个数值");
+					}
+					values[size + column++] = parser.getFloatValue();
+				}
+				if (column != features) {
+					throw new IllegalArgumentException("第 " + row + " 行应为 " + features + " 个数值");
+				}
+				size += features;
+				row++;
+			}
+			if (parser.currentToken() != JsonToken.END_ARRAY) {
+				throw new IllegalArgumentException("请求体应为特征矩阵 [[f1,f2,...],...]");
+			}
+			if (row == 0) {
+				throw new IllegalArgumentException("请求中没有数据行");
+			}
+		}
+		return FloatBuffer.wrap(values, 0, size);
+	}
+}
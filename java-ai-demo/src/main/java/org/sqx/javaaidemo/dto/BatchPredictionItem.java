@@ -0,0 +1,31 @@
+package org.sqx.javaaidemo.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "批量推理中一张图片的结果，对应 NDJSON 响应中的一行")
+public class BatchPredictionItem {
+	
+	@Schema(description = "图片在上传内容中的序号（从 0 开始），结果按完成顺序返回，不保证与序号一致", example = "0", requiredMode = Schema.RequiredMode.REQUIRED)
+	public int index;
+	
+	@Schema(description = "文件名或归档内路径", example = "images/cat.jpg")
+	public String name;
+	
+	@Schema(description = "预测的类别 ID，失败时不返回", example = "285")
+	public Integer classId;
+	
+	@Schema(description = "预测置信度，失败时不返回", example = "0.9342")
+	public Float score;
+	
+	@Schema(description = "概率最高的 K 个类别，失败时不返回")
+	public List<TopKEntry> topK;
+	
+	@Schema(description = "失败原因，成功时不返回", example = "无法读取图片")
+	public String error;
+}
@@ -1,8 +1,12 @@
 package org.sqx.javaaidemo.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.Data;
 
+import java.util.List;
+import java.util.Map;
+
 @Data
 @Schema(description = "图像分类推理结果响应")
 public class PredictionResponse {
@@ -15,4 +19,11 @@ public class PredictionResponse {
 	
 	@Schema(description = "端到端推理延迟（毫秒）", example = "42", requiredMode = Schema.RequiredMode.REQUIRED)
 	public long latencyMs;
+	
+	@Schema(description = "概率最高的 K 个类别，按概率从高到低排列，K 由请求参数 topK 指定")
+	public List<TopKEntry> topK;
+	
+	@Schema(description = "各阶段耗时（毫秒），键为 queue、decode、preprocess、inference、postprocess；仅在请求参数 timings=true 时返回")
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	public Map<String, Double> stages;
 }
\ No newline at end of file
@@ -0,0 +1,26 @@
+package org.sqx.javaaidemo.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+@Schema(description = "JFR 录制状态")
+public class RecordingStatus {
+	
+	@Schema(description = "录制状态：NEW、RUNNING、STOPPED，没有录制时为 NONE", example = "RUNNING", requiredMode = Schema.RequiredMode.REQUIRED)
+	public String state;
+	
+	@Schema(description = "JFR 配置名称（default 或 profile）", example = "profile")
+	public String settings;
+	
+	@Schema(description = "开始时间")
+	public Instant startTime;
+	
+	@Schema(description = "录制时长上限（秒），到时自动停止", example = "60")
+	public long maxDurationSeconds;
+	
+	@Schema(description = "已写入的数据量（字节）", example = "1048576")
+	public long sizeBytes;
+}
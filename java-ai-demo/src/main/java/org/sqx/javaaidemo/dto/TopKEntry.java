@@ -0,0 +1,19 @@
+package org.sqx.javaaidemo.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "候选类别及其概率")
+public class TopKEntry {
+	
+	@Schema(description = "类别 ID（ImageNet 类别索引）", example = "285", requiredMode = Schema.RequiredMode.REQUIRED)
+	public int classId;
+	
+	@Schema(description = "经温度校准的 Softmax 概率", example = "0.9342", requiredMode = Schema.RequiredMode.REQUIRED, minimum = "0.0", maximum = "1.0")
+	public float probability;
+}
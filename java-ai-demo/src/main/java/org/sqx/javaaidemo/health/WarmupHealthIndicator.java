@@ -0,0 +1,52 @@
+package org.sqx.javaaidemo.health;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * 模型预热状态，加入 readiness 探针组：预热完成之前 /actuator/health/readiness 返回 503，
+ * 负载均衡不会把真实流量转发给冷启动的实例；liveness 不受影响
+ */
+@Component("warmup")
+public class WarmupHealthIndicator implements HealthIndicator {
+	
+	public enum State {
+		PENDING, RUNNING, READY, FAILED
+	}
+	
+	private volatile State state = State.PENDING;
+	private volatile long elapsedMillis;
+	private volatile String error;
+	
+	public void started() {
+		state = State.RUNNING;
+	}
+	
+	public void ready(long elapsedMillis) {
+		this.elapsedMillis = elapsedMillis;
+		state = State.READY;
+	}
+	
+	public void failed(Throwable cause) {
+		error = cause.toString();
+		state = State.FAILED;
+	}
+	
+	public boolean isReady() {
+		return state == State.READY;
+	}
+	
+	@Override
+	public Health health() {
+		Health.Builder builder = state == State.READY ? Health.up() : Health.outOfService();
+		builder.withDetail("state", state);
+		if (state == State.READY) {
+			builder.withDetail("elapsedMs", elapsedMillis);
+		}
+		if (error != null) {
+			builder.withDetail("error", error);
+		}
+		return builder.build();
+	}
+}
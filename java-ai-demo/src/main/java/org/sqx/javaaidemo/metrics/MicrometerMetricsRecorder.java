@@ -0,0 +1,99 @@
+package org.sqx.javaaidemo.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.sqx.javaaidemo.sdk.metrics.MetricsRecorder;
+import org.sqx.javaaidemo.sdk.metrics.Stage;
+import org.sqx.javaaidemo.sdk.metrics.StageTimings;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 把推理各阶段耗时写入 Micrometer，通过 /actuator/prometheus 暴露：
+ * <ul>
+ *     <li>inference.stage：按 model、stage 标签区分的计时器，带 p50/p99/p999 和直方图桶</li>
+ *     <li>inference.batch.size：每次推理的批次大小</li>
+ *     <li>inference.in_flight、inference.queue.depth：正在推理和排队的请求数</li>
+ *     <li>inference.errors：SDK 内部不影响请求结果的错误次数，event 标签区分类别</li>
+ * </ul>
+ * Micrometer 的计时器内部是按时间窗口滚动的 HDR 风格直方图，记录时不分配对象，可以在推理线程上直接调用
+ */
+public class MicrometerMetricsRecorder implements MetricsRecorder {
+	
+	private final MeterRegistry registry;
+	private final String model;
+	private final Map<Stage, Timer> stageTimers = new EnumMap<>(Stage.class);
+	private final DistributionSummary batchSize;
+	
+	public MicrometerMetricsRecorder(MeterRegistry registry, String model) {
+		this.registry = registry;
+		this.model = model;
+		for (Stage stage : Stage.values()) {
+			stageTimers.put(stage, Timer.builder("inference.stage")
+					.description("推理各阶段耗时")
+					.tag("model", model)
+					.tag("stage", stage.tag())
+					.publishPercentiles(0.5, 0.99, 0.999)
+					.publishPercentileHistogram()
+					.register(registry));
+		}
+		batchSize = DistributionSummary.builder("inference.batch.size")
+				.description("每次推理的批次大小")
+				.tag("model", model)
+				.publishPercentiles(0.5, 0.99)
+				.register(registry);
+	}
+	
+	@Override
+	public void record(StageTimings timings) {
+		for (Stage stage : Stage.values()) {
+			long nanos = timings.get(stage);
+			if (nanos >= 0) {
+				stageTimers.get(stage).record(nanos, TimeUnit.NANOSECONDS);
+			}
+		}
+	}
+	
+	@Override
+	public void recordBatch(int size) {
+		batchSize.record(size);
+	}
+	
+	@Override
+	public void recordError(String event, Throwable error) {
+		Counter.builder("inference.errors")
+				.description("SDK 内部不影响请求结果的错误次数")
+				.tag("model", model)
+				.tag("event", event)
+				.register(registry)
+				.increment();
+	}
+	
+	/**
+	 * 注册正在推理的请求数，Prometheus 抓取时读取 supplier 的当前值
+	 */
+	public MicrometerMetricsRecorder inFlight(Supplier<Number> supplier) {
+		Gauge.builder("inference.in_flight", supplier)
+				.description("正在推理的请求数")
+				.tag("model", model)
+				.register(registry);
+		return this;
+	}
+	
+	/**
+	 * 注册等待推理的请求数
+	 */
+	public MicrometerMetricsRecorder queueDepth(Supplier<Number> supplier) {
+		Gauge.builder("inference.queue.depth", supplier)
+				.description("等待推理的请求数")
+				.tag("model", model)
+				.register(registry);
+		return this;
+	}
+}
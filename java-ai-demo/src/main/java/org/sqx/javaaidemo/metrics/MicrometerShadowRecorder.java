@@ -0,0 +1,57 @@
+package org.sqx.javaaidemo.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.sqx.javaaidemo.sdk.shadow.ShadowRecorder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 把影子模型评估写入 Micrometer：
+ * <ul>
+ *     <li>inference.shadow.latency：同一批抽样请求上两个模型的推理耗时，role 标签为 primary 或 shadow</li>
+ *     <li>inference.shadow.comparisons：对比次数，agreed 标签区分 top-1 是否一致，一致率即 agreed=true 的占比</li>
+ * </ul>
+ */
+public class MicrometerShadowRecorder implements ShadowRecorder {
+	
+	private final Timer primaryLatency;
+	private final Timer shadowLatency;
+	private final Counter agreed;
+	private final Counter disagreed;
+	
+	public MicrometerShadowRecorder(MeterRegistry registry, String primaryModel, String shadowModel) {
+		this.primaryLatency = latency(registry, primaryModel, shadowModel, "primary");
+		this.shadowLatency = latency(registry, primaryModel, shadowModel, "shadow");
+		this.agreed = comparisons(registry, primaryModel, shadowModel, true);
+		this.disagreed = comparisons(registry, primaryModel, shadowModel, false);
+	}
+	
+	private static Timer latency(MeterRegistry registry, String primaryModel, String shadowModel, String role) {
+		return Timer.builder("inference.shadow.latency")
+				.description("抽样请求上线上模型和影子模型的推理耗时")
+				.tag("model", primaryModel)
+				.tag("shadow", shadowModel)
+				.tag("role", role)
+				.publishPercentiles(0.5, 0.99, 0.999)
+				.publishPercentileHistogram()
+				.register(registry);
+	}
+	
+	private static Counter comparisons(MeterRegistry registry, String primaryModel, String shadowModel, boolean agreed) {
+		return Counter.builder("inference.shadow.comparisons")
+				.description("影子模型与线上模型的 top-1 对比次数")
+				.tag("model", primaryModel)
+				.tag("shadow", shadowModel)
+				.tag("agreed", String.valueOf(agreed))
+				.register(registry);
+	}
+	
+	@Override
+	public void record(long primaryNanos, long shadowNanos, boolean agreed) {
+		primaryLatency.record(primaryNanos, TimeUnit.NANOSECONDS);
+		shadowLatency.record(shadowNanos, TimeUnit.NANOSECONDS);
+		(agreed ? this.agreed : disagreed).increment();
+	}
+}
@@ -1,124 +1,874 @@
 package org.sqx.javaaidemo.sdk;
 
 import ai.onnxruntime.*;
+import org.sqx.javaaidemo.sdk.cache.CacheStats;
+import org.sqx.javaaidemo.sdk.cache.PredictionCache;
+import org.sqx.javaaidemo.sdk.metrics.InferenceStageEvent;
+import org.sqx.javaaidemo.sdk.metrics.MetricsRecorder;
+import org.sqx.javaaidemo.sdk.metrics.Stage;
+import org.sqx.javaaidemo.sdk.metrics.StageTimings;
+import org.sqx.javaaidemo.sdk.model.ClassScore;
+import org.sqx.javaaidemo.sdk.model.ModelLoadStats;
+import org.sqx.javaaidemo.sdk.model.ModelSignature;
 import org.sqx.javaaidemo.sdk.model.PredictionResult;
 import org.sqx.javaaidemo.sdk.model.SDKConfig;
+import org.sqx.javaaidemo.sdk.shadow.ShadowEvaluator;
+import org.sqx.javaaidemo.sdk.shadow.ShadowStats;
+import org.sqx.javaaidemo.sdk.utils.ImageDecoder;
 import org.sqx.javaaidemo.sdk.utils.ImagePreprocessor;
+import org.sqx.javaaidemo.sdk.utils.ProcessMemory;
+import org.sqx.javaaidemo.sdk.utils.RawInput;
+import org.sqx.javaaidemo.sdk.utils.TensorBufferPool;
+import org.sqx.javaaidemo.sdk.utils.TopK;
 
 import java.awt.image.BufferedImage;
-import java.io.InputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class AISDK {
-    private OrtEnvironment env;
-    private OrtSession session;
+    private final OrtEnvironment env;
     private final ImagePreprocessor preprocessor;
     private final SDKConfig config;
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicReference<ModelHandle> current = new AtomicReference<>();
+    private final AtomicLong versions = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // 同一时刻只允许一次热更新
+    private final AtomicBoolean reloading = new AtomicBoolean();
+    // 预热结束后才换成配置的 recorder，预热请求不计入延迟直方图
+    private volatile MetricsRecorder metrics = MetricsRecorder.NOOP;
+    // JFR 事件中的模型标识，热更新后随之变化
+    private volatile String modelName;
+    // 输入尺寸在 initialize 时从模型读取，之后热更新的模型必须与之一致
+    private ModelSignature signature;
+    private int imageSize;
+    private ImageDecoder decoder;
+    private InferenceScratch.Pool scratchPool;
+    private MicroBatcher batcher;
+    private TensorBufferPool batchPool;
+    private PredictionCache<PredictionResult> predictionCache;
+    private Executor preprocessExecutor;
+    private ExecutorService ownedPreprocessExecutor;
+    private ExecutorService inferenceExecutor;
+    private ExecutorService completionExecutor;
+    private Semaphore asyncPermits;
+    // 抽样镜像到影子模型，未配置时为 null
+    private ShadowEvaluator shadow;
 
     private AISDK(SDKConfig config) {
         this.config = config;
+        this.env = OrtEnvironment.getEnvironment();
         this.preprocessor = new ImagePreprocessor();
     }
 
     public static AISDK initialize(SDKConfig config) throws Exception {
         AISDK sdk = new AISDK(config);
-        sdk.loadModel();
+        ModelHandle handle = sdk.loadModel(config);
+        if (config.isBatchingEnabled() && !handle.signature().isDynamicBatch()) {
+            handle.retire();
+            throw new IllegalArgumentException("模型的 batch 维固定为 1，不能开启批处理");
+        }
+        sdk.current.set(handle);
+        sdk.modelName = modelName(config);
+        sdk.initInput(handle.signature());
+        if (config.isBatchingEnabled()) {
+            // 每个会话一个凑批线程，多个批次可以在不同会话上同时推理
+            int workers = config.getSessionPoolSize();
+            sdk.batchPool = new TensorBufferPool(config.getMaxBatchSize() * sdk.imageSize, workers);
+            sdk.batcher = new MicroBatcher(sdk::runBatch, config.getMaxBatchSize(), config.getMaxBatchWaitMillis(), workers);
+        }
+        if (config.isPredictionCacheEnabled()) {
+            sdk.predictionCache = new PredictionCache<>(config.getPredictionCacheSize(), config.getPredictionCacheTtlMillis());
+        }
+        sdk.initAsync(config);
+        if (config.getWarmupIterations() > 0) {
+            try {
+                sdk.warmUp(handle, config.getWarmupIterations());
+                sdk.warmUpPredict(config.getWarmupIterations());
+            } catch (Exception e) {
+                sdk.close();
+                throw e;
+            }
+        }
+        sdk.metrics = config.getMetricsRecorder();
+        if (config.getShadowModelPath() != null) {
+            // 预热请求不镜像
+            try {
+                sdk.initShadow(config);
+            } catch (Exception e) {
+                sdk.close();
+                throw e;
+            }
+        }
         return sdk;
     }
 
-    private void loadModel() throws Exception {
-        lock.writeLock().lock();
+    /**
+     * 按模型输入尺寸准备解码、预处理和输入缓冲区
+     */
+    private void initInput(ModelSignature modelSignature) {
+        signature = modelSignature;
+        imageSize = modelSignature.getImageSize();
+        long[] singleShape = {1, modelSignature.getChannels(), modelSignature.getHeight(), modelSignature.getWidth()};
+        decoder = new ImageDecoder(modelSignature.getWidth(), modelSignature.getHeight());
+        scratchPool = new InferenceScratch.Pool(env, singleShape, imageSize, Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * 影子会话与线上模型使用相同的加载方式、会话选项和优化模型缓存，两边的耗时才有可比性；
+     * 影子线程只有一个，同一时刻最多占用一次线上推理的 CPU
+     */
+    private void initShadow(SDKConfig config) throws Exception {
+        ModelSource source = ModelSource.open(config.getShadowModelPath(), config.getModelLoadMode());
+        OrtSession session = openSessions(source, config, 1).sessions.first();
+        long[] singleShape = {1, signature.getChannels(), signature.getHeight(), signature.getWidth()};
         try {
-            env = OrtEnvironment.getEnvironment();
-            try (InputStream modelStream = config.getModelStream()) {
-                byte[] modelBytes = modelStream.readAllBytes();
-                session = env.createSession(modelBytes, new OrtSession.SessionOptions());
+            shadow = new ShadowEvaluator(env, session, singleShape, config.getShadowSampleRate(),
+                    ShadowEvaluator.DEFAULT_QUEUE_SIZE, config.getShadowRecorder());
+        } catch (OrtException | RuntimeException e) {
+            session.close();
+            throw e;
+        }
+    }
+
+    private void initAsync(SDKConfig config) {
+        if (config.getAsyncExecutor() != null) {
+            preprocessExecutor = config.getAsyncExecutor();
+        } else {
+            ownedPreprocessExecutor = AsyncExecutors.preprocessExecutor();
+            preprocessExecutor = ownedPreprocessExecutor;
+        }
+        // 线程按需创建，开启批处理时由凑批线程推理，这个线程池不会用到
+        inferenceExecutor = AsyncExecutors.fixed("aisdk-infer-", config.getInferenceThreads());
+        completionExecutor = AsyncExecutors.completionExecutor();
+        int inferenceSlots = batcher != null
+                ? config.getMaxBatchSize() * config.getSessionPoolSize()
+                : config.getInferenceThreads();
+        // 已预处理、等待推理的张量最多为推理并发度的两倍，调用方一次提交上万张图片时内存不会随之增长
+        asyncPermits = new Semaphore(inferenceSlots * 2);
+    }
+
+    private ModelHandle loadModel(SDKConfig modelConfig) throws Exception {
+        long begin = System.nanoTime();
+        ProcessMemory.resetHeapPeaks();
+        ModelSource source = ModelSource.open(modelConfig);
+        OpenedSessions opened = openSessions(source, modelConfig, modelConfig.getSessionPoolSize());
+        SessionPool sessions = opened.sessions;
+        ModelSignature modelSignature;
+        try {
+            // 初始化之后输入尺寸已经确定，热更新的模型宽高为动态维度时沿用当前尺寸
+            modelSignature = signature != null
+                    ? ModelInspector.inspect(sessions.first(), signature.getWidth(), signature.getHeight())
+                    : ModelInspector.inspect(sessions.first(), modelConfig.getInputWidth(), modelConfig.getInputHeight());
+        } catch (OrtException | RuntimeException e) {
+            sessions.close();
+            throw e;
+        }
+        long loadMillis = (System.nanoTime() - begin) / 1_000_000;
+        ModelLoadStats loadStats = new ModelLoadStats(source.getMode(), opened.optimized, loadMillis,
+                ProcessMemory.peakRssKb(), ProcessMemory.peakHeapKb());
+        return new ModelHandle(sessions, versions.incrementAndGet(), loadStats, modelSignature, config.getMetricsRecorder());
+    }
+
+    /**
+     * 创建好的会话池，以及是否加载的是优化模型缓存中的模型
+     */
+    private static final class OpenedSessions {
+        final SessionPool sessions;
+        final boolean optimized;
+
+        OpenedSessions(SessionPool sessions, boolean optimized) {
+            this.sessions = sessions;
+            this.optimized = optimized;
+        }
+    }
+
+    /**
+     * 按 modelConfig 的会话选项创建会话池；配置了优化模型缓存目录时优先加载缓存中的模型，
+     * 缓存文件损坏或被截断时删除它，改为加载 source
+     */
+    private OpenedSessions openSessions(ModelSource source, SDKConfig modelConfig, int poolSize) throws Exception {
+        if (modelConfig.getOptimizedModelCacheDir() != null) {
+            OptimizedModelCache cache = new OptimizedModelCache(modelConfig.getOptimizedModelCacheDir(), config.getMetricsRecorder());
+            Path optimized = cache.resolve(env, source, modelConfig);
+            if (optimized != null) {
+                try {
+                    return new OpenedSessions(createSessions(ModelSource.ofPath(optimized), modelConfig, poolSize, true), true);
+                } catch (OrtException e) {
+                    cache.invalidate(optimized, e);
+                }
             }
-        } finally {
-            lock.writeLock().unlock();
         }
+        return new OpenedSessions(createSessions(source, modelConfig, poolSize, false), false);
+    }
+
+    private SessionPool createSessions(ModelSource source, SDKConfig modelConfig, int poolSize, boolean optimized) throws OrtException {
+        try (OrtSession.SessionOptions options = SessionPool.sessionOptions(modelConfig)) {
+            if (optimized) {
+                // 缓存中的模型已经完成图优化，不再重复优化
+                options.setOptimizationLevel(OrtSession.SessionOptions.OptLevel.NO_OPT);
+            }
+            return SessionPool.create(opts -> source.createSession(env, opts), options, poolSize);
+        }
+    }
+
+    /**
+     * 热更新模型：在后台线程加载新模型，加载完成后原子地替换当前模型。
+     * 替换前已经开始的请求继续使用旧模型，旧模型的会话在这些请求全部结束后关闭，切换过程不中断服务。
+     * <p>
+     * newConfig 中的模型来源、会话选项、会话池大小和优化模型缓存目录会生效；
+     * 输入尺寸、批处理等 SDK 级别的配置仍沿用 initialize 时的配置。新模型的输入尺寸必须与当前模型一致，
+     * 类别数可以不同；开启批处理时新模型的 batch 维必须是动态的。
+     *
+     * @return 新模型发布后完成；加载失败或输入不兼容时以异常完成，当前模型保持不变；
+     * 上一次热更新尚未完成时立即以 IllegalStateException 完成
+     */
+    public CompletableFuture<Void> reloadModel(SDKConfig newConfig) {
+        if (!reloading.compareAndSet(false, true)) {
+            return CompletableFuture.failedFuture(new IllegalStateException("上一次模型热更新尚未完成"));
+        }
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        Thread loader = new Thread(() -> {
+            try {
+                ModelHandle next = loadModel(newConfig);
+                checkCompatible(next);
+                if (config.getWarmupIterations() > 0) {
+                    try {
+                        warmUp(next, config.getWarmupIterations());
+                    } catch (Exception e) {
+                        next.retire();
+                        throw e;
+                    }
+                }
+                while (true) {
+                    ModelHandle previous = current.get();
+                    if (previous == null) {
+                        next.retire();
+                        throw new IllegalStateException("SDK已关闭");
+                    }
+                    if (current.compareAndSet(previous, next)) {
+                        modelName = modelName(newConfig);
+                        previous.retire();
+                        break;
+                    }
+                }
+                reloading.set(false);
+                done.complete(null);
+            } catch (Throwable t) {
+                reloading.set(false);
+                done.completeExceptionally(t);
+            }
+        }, "aisdk-reload");
+        loader.setDaemon(true);
+        loader.start();
+        return done;
+    }
+
+    /**
+     * ORT 第一次遇到某个输入形状时才分配内存池、确定各算子的实现，每个会话各自一份。
+     * 用全零输入在每个会话上按会出现的每种批次大小（1、2、4……和最大批次）各推理 iterations 次
+     */
+    private void warmUp(ModelHandle handle, int iterations) throws OrtException {
+        ModelSignature modelSignature = handle.signature();
+        int maxBatch = batcher != null ? config.getMaxBatchSize() : 1;
+        int size = modelSignature.getImageSize();
+        FloatBuffer zeros = TensorBufferPool.allocateDirect(maxBatch * size);
+        List<Integer> batchSizes = new ArrayList<>();
+        for (int batchSize = 1; batchSize < maxBatch; batchSize *= 2) {
+            batchSizes.add(batchSize);
+        }
+        batchSizes.add(maxBatch);
+        for (int i = 0; i < handle.sessions().size(); i++) {
+            OrtSession session = handle.sessions().get(i);
+            for (int batchSize : batchSizes) {
+                long[] shape = {batchSize, modelSignature.getChannels(), modelSignature.getHeight(), modelSignature.getWidth()};
+                for (int n = 0; n < iterations; n++) {
+                    FloatBuffer input = zeros.duplicate();
+                    input.limit(batchSize * size);
+                    try (OnnxTensor tensor = OnnxTensor.createTensor(env, input, shape);
+                         OrtSession.Result ignored = session.run(Collections.singletonMap(modelSignature.getInputName(), tensor))) {
+                        // 只为触发内存池分配，不读取输出
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 用合成图片走完整的 predict，让 JIT 编译预处理、复用缓冲区和 top-K 的热点循环
+     */
+    private void warmUpPredict(int iterations) throws Exception {
+        BufferedImage image = new BufferedImage(640, 480, BufferedImage.TYPE_3BYTE_BGR);
+        for (int n = 0; n < iterations; n++) {
+            predict(image);
+        }
+    }
+
+    private static String modelName(SDKConfig modelConfig) {
+        return modelConfig.getModelPath() != null ? modelConfig.getModelPath().getFileName().toString() : "stream";
+    }
+
+    private void checkCompatible(ModelHandle handle) {
+        ModelSignature next = handle.signature();
+        String problem = null;
+        if (!next.isInputCompatible(signature)) {
+            problem = "新模型的输入尺寸 " + next.getChannels() + "x" + next.getHeight() + "x" + next.getWidth()
+                    + " 与当前模型 " + signature.getChannels() + "x" + signature.getHeight() + "x" + signature.getWidth() + " 不一致";
+        } else if (batcher != null && !next.isDynamicBatch()) {
+            problem = "新模型的 batch 维固定为 1，不能在开启批处理时加载";
+        }
+        if (problem != null) {
+            handle.retire();
+            throw new IllegalArgumentException(problem);
+        }
+    }
+
+    /**
+     * 获取当前模型并增加引用，使用完毕后必须调用 {@link ModelHandle#release()}
+     */
+    private ModelHandle acquire() {
+        while (true) {
+            ModelHandle handle = current.get();
+            if (handle == null) {
+                throw new IllegalStateException("SDK已关闭");
+            }
+            if (handle.retain()) {
+                return handle;
+            }
+        }
+    }
+
+    /**
+     * 当前模型的加载耗时与内存统计
+     */
+    public ModelLoadStats getModelLoadStats() {
+        ModelHandle handle = current.get();
+        return handle != null ? handle.loadStats() : null;
+    }
+
+    /**
+     * 当前模型版本号，初始为 1，每次 {@link #reloadModel(SDKConfig)} 成功后递增
+     */
+    public long getModelVersion() {
+        ModelHandle handle = current.get();
+        return handle != null ? handle.version() : 0;
+    }
+
+    /**
+     * 当前模型的输入输出信息：输入名、输入宽高、batch 维是否动态和类别数
+     */
+    public ModelSignature getModelSignature() {
+        ModelHandle handle = current.get();
+        return handle != null ? handle.signature() : signature;
+    }
+
+    /**
+     * 影子模型评估的累计计数，未配置影子模型时为 null
+     */
+    public ShadowStats getShadowStats() {
+        return shadow != null ? shadow.stats() : null;
+    }
+
+    /**
+     * 正在执行的推理请求数，包括已提交但尚未完成的异步请求
+     */
+    public int getInFlight() {
+        return inFlight.get();
     }
 
     public PredictionResult predict(BufferedImage image) throws Exception {
+        return predict(image, 1);
+    }
+
+    /**
+     * @param topK 返回概率最高的 K 个类别，见 {@link PredictionResult#getTopK()}
+     */
+    public PredictionResult predict(BufferedImage image, int topK) throws Exception {
+        return predict(image, topK, new StageTimings());
+    }
+
+    private PredictionResult predict(BufferedImage image, int topK, StageTimings timings) throws Exception {
+        if (topK < 1) {
+            throw new IllegalArgumentException("topK 必须大于 0");
+        }
         long start = System.currentTimeMillis();
 
-        float[] inputData = preprocessor.preprocess(image);
-        float[][][][] inputArray = new float[1][3][224][224];
-        for (int c = 0; c < 3; c++) {
-            for (int h = 0; h < 224; h++) {
-                for (int w = 0; w < 224; w++) {
-                    inputArray[0][c][h][w] = inputData[c * 224 * 224 + h * 224 + w];
+        inFlight.incrementAndGet();
+        InferenceScratch scratch = scratchPool.acquire();
+        try {
+            preprocess(image, scratch, timings);
+            return infer(scratch, topK, start, timings, image.getWidth(), image.getHeight());
+        } finally {
+            scratchPool.release(scratch);
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * 模型全部输出的名称。中间层（如分类头之前的池化特征）需要在导出 ONNX 时声明为图输出才会出现在这里
+     */
+    public List<String> getOutputNames() {
+        ModelHandle handle = acquire();
+        try {
+            return new ArrayList<>(handle.sessions().get(0).getOutputNames());
+        } finally {
+            handle.release();
+        }
+    }
+
+    /**
+     * 提取图片的特征向量：预处理与 predict 相同，推理时只请求 outputName 这一个输出，按行展平返回。
+     * 不经过动态批处理和结果缓存
+     *
+     * @param outputName 模型输出名，见 {@link #getOutputNames()}
+     * @throws IllegalArgumentException 模型没有该输出，或该输出不是 float 张量
+     */
+    public float[] embed(BufferedImage image, String outputName) throws Exception {
+        inFlight.incrementAndGet();
+        InferenceScratch scratch = scratchPool.acquire();
+        try {
+            preprocess(image, scratch, new StageTimings());
+            ModelHandle handle = acquire();
+            try {
+                OrtSession session = handle.sessions().next();
+                if (!session.getOutputNames().contains(outputName)) {
+                    throw new IllegalArgumentException("模型没有名为 " + outputName + " 的输出，可用的输出为 " + session.getOutputNames());
                 }
+                InferenceStageEvent event = InferenceStageEvent.start(Stage.INFERENCE);
+                float[] embedding = scratch.runOutput(env, handle.signature(), session, outputName);
+                event.finish(modelName, handle.version(), image.getWidth(), image.getHeight(), 1);
+                return embedding;
+            } finally {
+                handle.release();
             }
+        } finally {
+            scratchPool.release(scratch);
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * 对不经过图片编解码的原始输入推理：已归一化的 float32 CHW 张量整块复制进输入缓冲区，
+     * uint8 HWC 的 RGB 像素只做归一化，都不解码、不缩放。格式见 {@link RawInput}，尺寸必须与模型输入一致
+     *
+     * @throws IllegalArgumentException 头部格式不认识、尺寸与模型不一致或数据长度不对
+     */
+    public PredictionResult predictRaw(ByteBuffer body, int topK) throws Exception {
+        if (topK < 1) {
+            throw new IllegalArgumentException("topK 必须大于 0");
         }
+        long start = System.currentTimeMillis();
 
-        lock.readLock().lock();
+        inFlight.incrementAndGet();
+        InferenceScratch scratch = scratchPool.acquire();
         try {
-            try (OnnxTensor tensor = OnnxTensor.createTensor(env, inputArray)) {
-                try (OrtSession.Result results = session.run(Collections.singletonMap("data", tensor))) {
-                    float[][] output = (float[][]) results.get(0).getValue();
-                    float[] logits = output[0];
-
-                    float[] probabilities = softmax(logits);
-
-                    int maxIndex = 0;
-                    float maxProb = probabilities[0];
-                    for (int i = 1; i < probabilities.length; i++) {
-                        if (probabilities[i] > maxProb) {
-                            maxProb = probabilities[i];
-                            maxIndex = i;
-                        }
-                    }
+            StageTimings timings = new StageTimings();
+            int width = signature.getWidth();
+            int height = signature.getHeight();
+            long begin = System.nanoTime();
+            InferenceStageEvent event = InferenceStageEvent.start(Stage.PREPROCESS);
+            RawInput.read(body, width, height, preprocessor, scratch.input);
+            scratch.input.flip();
+            event.finish(modelName, getModelVersion(), width, height, 1);
+            timings.set(Stage.PREPROCESS, System.nanoTime() - begin);
+            return infer(scratch, topK, start, timings, width, height);
+        } finally {
+            scratchPool.release(scratch);
+            inFlight.decrementAndGet();
+        }
+    }
 
-                    long end = System.currentTimeMillis();
-                    PredictionResult result = new PredictionResult();
-                    result.setClassId(maxIndex);
-                    result.setScore(maxProb);
-                    result.setLatencyMs(end - start);
+    /**
+     * 对 scratch 中已经准备好的输入推理并后处理，开启批处理时交给凑批线程
+     */
+    private PredictionResult infer(InferenceScratch scratch, int topK, long start, StageTimings timings,
+                                   int imageWidth, int imageHeight) throws Exception {
+        FloatBuffer logits;
+        if (batcher != null) {
+            // 排队和推理耗时由凑批线程写入
+            logits = FloatBuffer.wrap(batcher.submit(scratch.input, timings));
+        } else {
+            long begin = System.nanoTime();
+            InferenceStageEvent event = InferenceStageEvent.start(Stage.INFERENCE);
+            logits = runSingle(scratch);
+            event.finish(modelName, getModelVersion(), imageWidth, imageHeight, 1);
+            timings.set(Stage.INFERENCE, System.nanoTime() - begin);
+        }
+        PredictionResult result = finish(logits, topK, start, timings, imageWidth, imageHeight);
+        mirror(scratch, result);
+        return result;
+    }
+
+    /**
+     * 抽中时把 scratch 中已经预处理好的输入复制给影子模型，不等待影子推理；在 scratch 归还之前调用
+     */
+    private void mirror(InferenceScratch scratch, PredictionResult result) {
+        if (shadow != null) {
+            shadow.mirror(scratch.input.duplicate().rewind(), result.getClassId(), result.getTimings().get(Stage.INFERENCE));
+        }
+    }
+
+    /**
+     * 对已经预处理好的一批张量推理，用于自己组织解码和预处理流水线的批量打分场景。
+     * batch 中 position 到 limit 之间按 [N,C,H,W] 连续存放 batchSize 张图片（尺寸见 {@link #getModelSignature()}）；
+     * 传入 native 字节序的直接缓冲区时不会再复制一次。batch 维固定为 1 的模型逐张推理。
+     *
+     * @return 按输入顺序给出每张图片的结果，latencyMs 为这一批的推理耗时
+     */
+    public List<PredictionResult> predictBatch(FloatBuffer batch, int batchSize, int topK) throws Exception {
+        if (topK < 1) {
+            throw new IllegalArgumentException("topK 必须大于 0");
+        }
+        if (batchSize < 1 || batch.remaining() != batchSize * imageSize) {
+            throw new IllegalArgumentException("batch 的长度与 batchSize 不一致");
+        }
+        long start = System.currentTimeMillis();
 
-                    return result;
+        inFlight.incrementAndGet();
+        ModelHandle handle = acquire();
+        try {
+            ModelSignature modelSignature = handle.signature();
+            int step = modelSignature.isDynamicBatch() ? batchSize : 1;
+            List<PredictionResult> predictions = new ArrayList<>(batchSize);
+            for (int offset = 0; offset < batchSize; offset += step) {
+                FloatBuffer slice = batch.duplicate();
+                slice.position(batch.position() + offset * imageSize).limit(batch.position() + (offset + step) * imageSize);
+                long[] shape = {step, modelSignature.getChannels(), modelSignature.getHeight(), modelSignature.getWidth()};
+                long begin = System.nanoTime();
+                InferenceStageEvent event = InferenceStageEvent.start(Stage.INFERENCE);
+                try (OnnxTensor tensor = OnnxTensor.createTensor(env, slice, shape);
+                     OrtSession.Result results = handle.sessions().next().run(Collections.singletonMap(modelSignature.getInputName(), tensor))) {
+                    long inference = System.nanoTime() - begin;
+                    event.finish(modelName, handle.version(), modelSignature.getWidth(), modelSignature.getHeight(), step);
+                    metrics.recordBatch(step);
+                    FloatBuffer logits = ((OnnxTensor) results.get(0)).getFloatBuffer();
+                    int classes = logits.remaining() / step;
+                    for (int i = 0; i < step; i++) {
+                        logits.limit((i + 1) * classes);
+                        logits.position(i * classes);
+                        StageTimings timings = new StageTimings();
+                        timings.set(Stage.INFERENCE, inference);
+                        timings.setBatchSize(step);
+                        predictions.add(finish(logits, topK, start, timings, modelSignature.getWidth(), modelSignature.getHeight()));
+                    }
                 }
             }
+            return predictions;
         } finally {
-            lock.readLock().unlock();
+            handle.release();
+            inFlight.decrementAndGet();
         }
     }
 
-    private float[] softmax(float[] logits) {
-        float max = logits[0];
-        for (float v : logits) {
-            if (v > max) max = v;
+    /**
+     * 对编码后的图片字节（JPEG/PNG 等）推理。开启结果缓存时先按内容哈希和模型版本查缓存，
+     * 命中时不解码、不推理，直接返回缓存结果的副本
+     */
+    public PredictionResult predict(byte[] encodedImage) throws Exception {
+        return predict(encodedImage, 1);
+    }
+
+    public PredictionResult predict(byte[] encodedImage, int topK) throws Exception {
+        long start = System.currentTimeMillis();
+        PredictionCache.Key key = null;
+        if (predictionCache != null) {
+            key = PredictionCache.key(encodedImage, getModelVersion());
+            PredictionResult cached = predictionCache.get(key);
+            // 缓存的结果类别数不够时重新推理，并用更大的 K 覆盖缓存
+            if (cached != null && cached.getTopK().size() >= topK) {
+                return copyOf(cached, topK, System.currentTimeMillis() - start);
+            }
         }
 
-        float sum = 0.0f;
-        float[] exps = new float[logits.length];
-        for (int i = 0; i < logits.length; i++) {
-            exps[i] = (float) Math.exp(logits[i] - max);
-            sum += exps[i];
+        StageTimings timings = new StageTimings();
+        long begin = System.nanoTime();
+        InferenceStageEvent event = InferenceStageEvent.start(Stage.DECODE);
+        BufferedImage image = decoder.decode(encodedImage);
+        timings.set(Stage.DECODE, System.nanoTime() - begin);
+        if (image == null) {
+            throw new IOException("无法读取图片");
+        }
+        event.finish(modelName, getModelVersion(), image.getWidth(), image.getHeight(), 1);
+        PredictionResult result = predict(image, topK, timings);
+        if (key != null) {
+            predictionCache.put(key, copyOf(result, topK, result.getLatencyMs()));
         }
+        return result;
+    }
 
-        for (int i = 0; i < exps.length; i++) {
-            exps[i] /= sum;
+    /**
+     * 推理结果缓存的命中统计，未开启缓存时返回 null
+     */
+    public CacheStats getPredictionCacheStats() {
+        return predictionCache != null ? predictionCache.stats() : null;
+    }
+
+    private static PredictionResult copyOf(PredictionResult source, int topK, long latencyMs) {
+        PredictionResult copy = new PredictionResult();
+        copy.setClassId(source.getClassId());
+        copy.setScore(source.getScore());
+        copy.setLatencyMs(latencyMs);
+        List<ClassScore> scores = source.getTopK();
+        copy.setTopK(new ArrayList<>(scores.subList(0, Math.min(topK, scores.size()))));
+        return copy;
+    }
+
+    /**
+     * 异步推理：解码和预处理在 asyncExecutor（默认虚拟线程）上执行，ONNX Runtime 推理在固定大小的推理线程池
+     * 或凑批线程上执行。等待推理的张量数量有上限，调用方可以一次提交任意多张图片而不必自己管理线程池。
+     * <p>
+     * 返回的 future 在单独的回调线程池上完成，后续回调既不占用推理线程，也不排在等待推理的预处理任务后面
+     */
+    public CompletableFuture<PredictionResult> predictAsync(BufferedImage image) {
+        return predictAsync(image, 1);
+    }
+
+    /**
+     * @param topK 返回概率最高的 K 个类别，见 {@link PredictionResult#getTopK()}
+     */
+    public CompletableFuture<PredictionResult> predictAsync(BufferedImage image, int topK) {
+        if (topK < 1) {
+            throw new IllegalArgumentException("topK 必须大于 0");
         }
-        return exps;
+        long start = System.currentTimeMillis();
+        CompletableFuture<PredictionResult> result = new CompletableFuture<>();
+        inFlight.incrementAndGet();
+        result.whenComplete((prediction, error) -> inFlight.decrementAndGet());
+        try {
+            preprocessExecutor.execute(() -> preprocessAndInfer(image, topK, start, result));
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(new IllegalStateException("SDK已关闭", e));
+        }
+        return result;
     }
 
-    public void close() throws Exception {
-        lock.writeLock().lock();
+    /**
+     * 批量异步推理，结果顺序与 images 一致；任意一张失败时返回的 future 以该异常完成
+     */
+    public CompletableFuture<List<PredictionResult>> predictAsync(List<BufferedImage> images) {
+        return predictAsync(images, 1);
+    }
+
+    /**
+     * @param topK 每张图片返回概率最高的 K 个类别
+     */
+    public CompletableFuture<List<PredictionResult>> predictAsync(List<BufferedImage> images, int topK) {
+        if (topK < 1) {
+            throw new IllegalArgumentException("topK 必须大于 0");
+        }
+        List<CompletableFuture<PredictionResult>> futures = new ArrayList<>(images.size());
+        for (BufferedImage image : images) {
+            futures.add(predictAsync(image, topK));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(ignored -> {
+            List<PredictionResult> results = new ArrayList<>(futures.size());
+            for (CompletableFuture<PredictionResult> future : futures) {
+                results.add(future.join());
+            }
+            return results;
+        });
+    }
+
+    private void preprocessAndInfer(BufferedImage image, int topK, long start, CompletableFuture<PredictionResult> result) {
+        try {
+            asyncPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.completeExceptionally(e);
+            return;
+        }
+        InferenceScratch scratch;
+        CompletableFuture<FloatBuffer> logits;
+        try {
+            scratch = scratchPool.acquire();
+        } catch (Throwable t) {
+            asyncPermits.release();
+            result.completeExceptionally(t);
+            return;
+        }
+        StageTimings timings = new StageTimings();
+        try {
+            preprocess(image, scratch, timings);
+            logits = inferAsync(scratch, timings, image);
+        } catch (Throwable t) {
+            scratchPool.release(scratch);
+            asyncPermits.release();
+            result.completeExceptionally(t);
+            return;
+        }
+        logits.whenComplete((output, error) -> {
+            // 输出可能在 scratch 的缓冲区里，归还之前先取出结果
+            PredictionResult prediction = error == null ? finish(output, topK, start, timings, image.getWidth(), image.getHeight()) : null;
+            if (prediction != null) {
+                mirror(scratch, prediction);
+            }
+            // 缓冲区和许可在推理线程上立即归还，等待许可的预处理任务不依赖预处理线程池的空闲
+            scratchPool.release(scratch);
+            asyncPermits.release();
+            Runnable complete = () -> {
+                if (error != null) {
+                    result.completeExceptionally(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+                } else {
+                    result.complete(prediction);
+                }
+            };
+            // 回调线程池的队列满了时由拒绝策略在当前线程完成，SDK 已关闭后同样在当前线程完成
+            try {
+                completionExecutor.execute(complete);
+            } catch (RejectedExecutionException e) {
+                complete.run();
+            }
+        });
+    }
+
+    private CompletableFuture<FloatBuffer> inferAsync(InferenceScratch scratch, StageTimings timings, BufferedImage image) {
+        MicroBatcher activeBatcher = batcher;
+        if (activeBatcher != null) {
+            return activeBatcher.enqueue(scratch.input, timings).thenApply(FloatBuffer::wrap);
+        }
+        CompletableFuture<FloatBuffer> logits = new CompletableFuture<>();
+        long submitted = System.nanoTime();
+        try {
+            inferenceExecutor.execute(() -> {
+                try {
+                    long begin = System.nanoTime();
+                    timings.set(Stage.QUEUE, begin - submitted);
+                    InferenceStageEvent event = InferenceStageEvent.start(Stage.INFERENCE);
+                    FloatBuffer output = runSingle(scratch);
+                    event.finish(modelName, getModelVersion(), image.getWidth(), image.getHeight(), 1);
+                    timings.set(Stage.INFERENCE, System.nanoTime() - begin);
+                    logits.complete(output);
+                } catch (Throwable t) {
+                    logits.completeExceptionally(t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            throw new IllegalStateException("SDK已关闭", e);
+        }
+        return logits;
+    }
+
+    private void preprocess(BufferedImage image, InferenceScratch scratch, StageTimings timings) {
+        long begin = System.nanoTime();
+        InferenceStageEvent event = InferenceStageEvent.start(Stage.PREPROCESS);
+        preprocessor.preprocess(image, signature.getWidth(), signature.getHeight(), scratch.input, scratch.preprocess);
+        scratch.input.flip();
+        event.finish(modelName, getModelVersion(), image.getWidth(), image.getHeight(), 1);
+        timings.set(Stage.PREPROCESS, System.nanoTime() - begin);
+    }
+
+    /**
+     * 复用 scratch 中绑定好的输入输出张量推理，返回的 logits 在 scratch 归还前有效
+     */
+    private FloatBuffer runSingle(InferenceScratch scratch) throws Exception {
+        ModelHandle handle = acquire();
         try {
-            if (session != null) {
-                session.close();
-                session = null;
+            FloatBuffer logits = scratch.run(env, handle.signature(), handle.sessions().next());
+            metrics.recordBatch(1);
+            return logits;
+        } finally {
+            handle.release();
+        }
+    }
+
+    /**
+     * 批处理模式下由 {@link MicroBatcher} 调用，把多张图片拼成一个 [N,C,H,W] 张量一次推理
+     */
+    private float[][] runBatch(List<FloatBuffer> inputs) throws Exception {
+        int batchSize = inputs.size();
+        metrics.recordBatch(batchSize);
+        FloatBuffer batchData = batchPool.acquire();
+        try {
+            for (FloatBuffer input : inputs) {
+                batchData.put(input.duplicate());
             }
-            if (env != null) {
-                env.close();
-                env = null;
+            batchData.flip();
+            long[] shape = {batchSize, signature.getChannels(), signature.getHeight(), signature.getWidth()};
+
+            ModelHandle handle = acquire();
+            InferenceStageEvent event = InferenceStageEvent.start(Stage.INFERENCE);
+            try (OnnxTensor tensor = OnnxTensor.createTensor(env, batchData, shape)) {
+                try (OrtSession.Result results = handle.sessions().next().run(Collections.singletonMap(handle.signature().getInputName(), tensor))) {
+                    event.finish(modelName, handle.version(), signature.getWidth(), signature.getHeight(), batchSize);
+                    // 按行切分输出，[N,C] 和 [N,C,1,1] 形状的输出都适用
+                    FloatBuffer logits = ((OnnxTensor) results.get(0)).getFloatBuffer();
+                    int classes = logits.remaining() / batchSize;
+                    float[][] outputs = new float[batchSize][classes];
+                    for (float[] output : outputs) {
+                        logits.get(output);
+                    }
+                    return outputs;
+                }
+            } finally {
+                handle.release();
             }
         } finally {
-            lock.writeLock().unlock();
+            batchPool.release(batchData);
+        }
+    }
+
+    /**
+     * 后处理并记录这次请求各阶段的耗时
+     */
+    private PredictionResult finish(FloatBuffer logits, int topK, long start, StageTimings timings, int imageWidth, int imageHeight) {
+        long begin = System.nanoTime();
+        InferenceStageEvent event = InferenceStageEvent.start(Stage.POSTPROCESS);
+        PredictionResult result = toResult(logits, topK, start);
+        event.finish(modelName, getModelVersion(), imageWidth, imageHeight, timings.getBatchSize());
+        timings.set(Stage.POSTPROCESS, System.nanoTime() - begin);
+        result.setTimings(timings);
+        metrics.record(timings);
+        return result;
+    }
+
+    private PredictionResult toResult(FloatBuffer logits, int topK, long start) {
+        List<ClassScore> scores = TopK.select(logits, topK, config.getTemperature());
+
+        long end = System.currentTimeMillis();
+        PredictionResult result = new PredictionResult();
+        result.setClassId(scores.get(0).getClassId());
+        result.setScore(scores.get(0).getProbability());
+        result.setLatencyMs(end - start);
+        result.setTopK(scores);
+        return result;
+    }
+
+    public void close() throws Exception {
+        if (batcher != null) {
+            batcher.shutdown();
+            batcher = null;
+        }
+        // 已排队的异步请求仍会执行，并以“SDK已关闭”失败
+        inferenceExecutor.shutdown();
+        if (ownedPreprocessExecutor != null) {
+            ownedPreprocessExecutor.shutdown();
+        }
+        completionExecutor.shutdown();
+        ModelHandle handle = current.getAndSet(null);
+        if (handle != null) {
+            handle.retire();
+        }
+        scratchPool.close();
+        if (shadow != null) {
+            shadow.close();
+            shadow = null;
+        }
+        if (predictionCache != null) {
+            predictionCache.clear();
         }
     }
-}
\ No newline at end of file
+}
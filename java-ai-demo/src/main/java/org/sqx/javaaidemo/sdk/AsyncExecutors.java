@@ -0,0 +1,76 @@
+package org.sqx.javaaidemo.sdk;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * predictAsync 使用的默认线程池
+ */
+final class AsyncExecutors {
+
+    /**
+     * 有界线程池每个线程对应的排队任务数
+     */
+    private static final int QUEUE_PER_THREAD = 64;
+
+    private AsyncExecutors() {
+    }
+
+    /**
+     * 解码和预处理用的执行器。运行在 JDK 21 及以上时使用虚拟线程，每个任务一个线程，
+     * 等待推理许可时不占用平台线程；JDK 17 上退化为 CPU 核数个平台线程加有界队列，
+     * 队列满时由提交任务的线程自己预处理，调用方提交得比推理快时被减速，而不是无限堆积任务
+     */
+    static ExecutorService preprocessExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return bounded("aisdk-preprocess-", Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    /**
+     * 完成 predictAsync 返回的 future 用的执行器，与预处理分开，调用方的回调不会排在等待推理许可的预处理任务后面。
+     * 队列满时在推理线程上直接完成
+     */
+    static ExecutorService completionExecutor() {
+        return bounded("aisdk-complete-", Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    }
+
+    /**
+     * 固定大小的守护线程池
+     */
+    static ExecutorService fixed(String namePrefix, int threads) {
+        return Executors.newFixedThreadPool(threads, daemon(namePrefix));
+    }
+
+    /**
+     * 固定大小、队列有界的守护线程池，队列满时在提交任务的线程上执行；关闭后提交的任务照常拒绝
+     */
+    static ExecutorService bounded(String namePrefix, int threads) {
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * QUEUE_PER_THREAD), daemon(namePrefix), (task, executor) -> {
+                    if (executor.isShutdown()) {
+                        throw new RejectedExecutionException("执行器已关闭");
+                    }
+                    task.run();
+                });
+    }
+
+    private static ThreadFactory daemon(String namePrefix) {
+        AtomicInteger index = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, namePrefix + index.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,164 @@
+package org.sqx.javaaidemo.sdk;
+
+import ai.onnxruntime.OnnxJavaType;
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import org.sqx.javaaidemo.sdk.model.ModelSignature;
+import org.sqx.javaaidemo.sdk.utils.RasterPreprocessor;
+import org.sqx.javaaidemo.sdk.utils.TensorBufferPool;
+
+import java.nio.FloatBuffer;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 单张图片推理用到的全部可复用资源：预处理临时数组、输入直接缓冲区和绑定在它上面的输入张量、
+ * 预先分配的输出张量（pinned output，ORT 直接把结果写进去）。
+ * <p>
+ * 由 {@link Pool} 池化，稳态下 predict 不再为输入输出分配堆内存或创建 OnnxTensor。
+ * 同一时刻只被一个请求使用；{@link #run} 返回的输出缓冲区在归还之前读取完毕。
+ */
+final class InferenceScratch implements AutoCloseable {
+    final RasterPreprocessor.Scratch preprocess = new RasterPreprocessor.Scratch();
+    final FloatBuffer input;
+    private final OnnxTensor inputTensor;
+    private ModelSignature bound;
+    private Map<String, OnnxTensor> inputs;
+    private FloatBuffer output;
+    private OnnxTensor outputTensor;
+    private Map<String, OnnxTensor> pinnedOutputs;
+
+    private InferenceScratch(OrtEnvironment env, long[] inputShape, int imageSize) throws OrtException {
+        this.input = TensorBufferPool.allocateDirect(imageSize);
+        // 直接缓冲区不会被复制，之后写入 input 的数据对这个张量立即可见
+        this.inputTensor = OnnxTensor.createTensor(env, input, inputShape);
+    }
+
+    /**
+     * 对 input 中已经预处理好的一张图片推理。模型热更新后第一次使用时按新模型重新绑定输入名和输出张量
+     *
+     * @return logits，position 为 0；模型输出无法预先分配时返回 ORT 输出的副本
+     */
+    FloatBuffer run(OrtEnvironment env, ModelSignature signature, OrtSession session) throws OrtException {
+        if (signature != bound) {
+            bind(env, signature);
+        }
+        if (pinnedOutputs != null) {
+            try (OrtSession.Result ignored = session.run(inputs, pinnedOutputs)) {
+                output.clear();
+                return output;
+            }
+        }
+        try (OrtSession.Result results = session.run(inputs)) {
+            return ((OnnxTensor) results.get(0)).getFloatBuffer();
+        }
+    }
+
+    /**
+     * 对 input 中的图片推理，只计算并返回 outputName 这一个输出的副本，用于读取中间层特征。
+     * ORT 只执行得到该输出所需的那部分图
+     *
+     * @throws IllegalArgumentException 输出不是 float 张量
+     */
+    float[] runOutput(OrtEnvironment env, ModelSignature signature, OrtSession session, String outputName) throws OrtException {
+        if (signature != bound) {
+            bind(env, signature);
+        }
+        try (OrtSession.Result results = session.run(inputs, Collections.singleton(outputName))) {
+            OnnxTensor tensor = (OnnxTensor) results.get(0);
+            if (tensor.getInfo().type != OnnxJavaType.FLOAT) {
+                throw new IllegalArgumentException("输出 " + outputName + " 的类型为 " + tensor.getInfo().type + "，不是 float 张量");
+            }
+            FloatBuffer values = tensor.getFloatBuffer();
+            float[] copy = new float[values.remaining()];
+            values.get(copy);
+            return copy;
+        }
+    }
+
+    private void bind(OrtEnvironment env, ModelSignature signature) throws OrtException {
+        closeOutput();
+        inputs = Collections.singletonMap(signature.getInputName(), inputTensor);
+        long[] shape = signature.getOutputShape();
+        if (shape != null) {
+            output = TensorBufferPool.allocateDirect(signature.getNumClasses());
+            outputTensor = OnnxTensor.createTensor(env, output, shape);
+            pinnedOutputs = Collections.singletonMap(signature.getOutputName(), outputTensor);
+        }
+        bound = signature;
+    }
+
+    private void closeOutput() {
+        if (outputTensor != null) {
+            outputTensor.close();
+        }
+        output = null;
+        outputTensor = null;
+        pinnedOutputs = null;
+    }
+
+    @Override
+    public void close() {
+        closeOutput();
+        inputTensor.close();
+    }
+
+    /**
+     * InferenceScratch 池，用法与 {@link TensorBufferPool} 相同；超出上限或池关闭后归还的对象直接释放
+     */
+    static final class Pool implements AutoCloseable {
+        private final OrtEnvironment env;
+        private final long[] inputShape;
+        private final int imageSize;
+        private final int maxPooled;
+        private final ConcurrentLinkedQueue<InferenceScratch> free = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pooled = new AtomicInteger();
+        private volatile boolean closed;
+
+        Pool(OrtEnvironment env, long[] inputShape, int imageSize, int maxPooled) {
+            this.env = env;
+            this.inputShape = inputShape;
+            this.imageSize = imageSize;
+            this.maxPooled = maxPooled;
+        }
+
+        /**
+         * 取出一个 input 已清空（position=0, limit=capacity）的对象，池为空时新建
+         */
+        InferenceScratch acquire() throws OrtException {
+            InferenceScratch scratch = free.poll();
+            if (scratch == null) {
+                return new InferenceScratch(env, inputShape, imageSize);
+            }
+            pooled.decrementAndGet();
+            scratch.input.clear();
+            return scratch;
+        }
+
+        void release(InferenceScratch scratch) {
+            if (pooled.incrementAndGet() <= maxPooled && !closed) {
+                free.offer(scratch);
+                // 与 close 并发时，close 可能已经清空过队列，由这里释放
+                if (closed && free.remove(scratch)) {
+                    scratch.close();
+                }
+                return;
+            }
+            pooled.decrementAndGet();
+            scratch.close();
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            InferenceScratch scratch;
+            while ((scratch = free.poll()) != null) {
+                scratch.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package org.sqx.javaaidemo.sdk;
+
+import org.sqx.javaaidemo.sdk.metrics.Stage;
+import org.sqx.javaaidemo.sdk.metrics.StageTimings;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 动态批处理队列：把并发提交的单张预处理结果合并成一个批次交给 {@link BatchRunner} 推理，
+ * 再按提交顺序把每一行输出分发回各自的调用方。
+ */
+class MicroBatcher {
+
+    /**
+     * 批量推理回调，inputs 中每个元素是一张图片的 CHW 数据（已 flip），返回值按相同顺序给出每张图片的 logits
+     */
+    interface BatchRunner {
+        float[][] run(List<FloatBuffer> inputs) throws Exception;
+    }
+
+    private static final class Pending {
+        final FloatBuffer input;
+        final StageTimings timings;
+        final long enqueuedNanos = System.nanoTime();
+        final CompletableFuture<float[]> output = new CompletableFuture<>();
+
+        Pending(FloatBuffer input, StageTimings timings) {
+            this.input = input;
+            this.timings = timings;
+        }
+    }
+
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final BatchRunner runner;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final Thread[] workers;
+    private volatile boolean running = true;
+
+    /**
+     * @param workers 凑批线程数，每个线程同一时刻只执行一个批次
+     */
+    MicroBatcher(BatchRunner runner, int maxBatchSize, long maxWaitMillis, int workers) {
+        this.runner = runner;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.workers = new Thread[workers];
+        for (int i = 0; i < workers; i++) {
+            Thread worker = new Thread(this::loop, "aisdk-batcher-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            this.workers[i] = worker;
+        }
+    }
+
+    /**
+     * 提交一张图片并阻塞等待所在批次完成
+     */
+    float[] submit(FloatBuffer input, StageTimings timings) throws Exception {
+        try {
+            return enqueue(input, timings).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 提交一张图片但不等待，所在批次推理完成后 future 在凑批线程上完成。
+     * 返回前 input 不能被复用；future 完成前凑批线程写入 timings 的排队、推理耗时和批次大小
+     */
+    CompletableFuture<float[]> enqueue(FloatBuffer input, StageTimings timings) {
+        if (!running) {
+            throw new IllegalStateException("SDK已关闭");
+        }
+        Pending pending = new Pending(input, timings);
+        queue.add(pending);
+        // 上面的检查之后 shutdown 可能已经清空过队列、凑批线程也已退出，这时由提交方自己移除并失败，
+        // 否则 future 永远不会完成；remove 失败说明已经被凑批线程或 failPending 取走，会由它们完成
+        if (!running && queue.remove(pending)) {
+            pending.output.completeExceptionally(new IllegalStateException("SDK已关闭"));
+        }
+        return pending.output;
+    }
+
+    private void loop() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                Pending first = queue.take();
+                batch.add(first);
+                // 先把已经排队的请求一次取走，不足一批时再在截止时间内继续等待
+                queue.drainTo(batch, maxBatchSize - batch.size());
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                }
+                dispatch(batch);
+            } catch (InterruptedException e) {
+                for (Pending pending : batch) {
+                    pending.output.completeExceptionally(new IllegalStateException("SDK已关闭"));
+                }
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+        failPending(new IllegalStateException("SDK已关闭"));
+    }
+
+    private void dispatch(List<Pending> batch) {
+        List<FloatBuffer> inputs = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            inputs.add(pending.input);
+        }
+        long start = System.nanoTime();
+        try {
+            float[][] outputs = runner.run(inputs);
+            long inference = System.nanoTime() - start;
+            for (int i = 0; i < batch.size(); i++) {
+                Pending pending = batch.get(i);
+                pending.timings.set(Stage.QUEUE, start - pending.enqueuedNanos);
+                pending.timings.set(Stage.INFERENCE, inference);
+                pending.timings.setBatchSize(batch.size());
+                pending.output.complete(outputs[i]);
+            }
+        } catch (Throwable t) {
+            for (Pending pending : batch) {
+                pending.output.completeExceptionally(t);
+            }
+        }
+    }
+
+    private void failPending(Exception cause) {
+        Pending pending;
+        while ((pending = queue.poll()) != null) {
+            pending.output.completeExceptionally(cause);
+        }
+    }
+
+    void shutdown() throws InterruptedException {
+        running = false;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        failPending(new IllegalStateException("SDK已关闭"));
+    }
+}
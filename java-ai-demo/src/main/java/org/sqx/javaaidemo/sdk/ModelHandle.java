@@ -0,0 +1,94 @@
+package org.sqx.javaaidemo.sdk;
+
+import ai.onnxruntime.OrtException;
+import org.sqx.javaaidemo.sdk.metrics.MetricsRecorder;
+import org.sqx.javaaidemo.sdk.model.ModelLoadStats;
+import org.sqx.javaaidemo.sdk.model.ModelSignature;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个已加载模型版本的引用计数句柄。
+ * <p>
+ * 每次推理 {@link #retain()} / {@link #release()} 各一次；模型被替换或 SDK 关闭时 {@link #retire()}，
+ * 之后最后一个在途请求结束时关闭会话池。
+ * <p>
+ * 引用计数拆成获取次数和释放次数两个 {@link LongAdder}，各线程累加到不同的分段上，
+ * 推理路径上没有所有核心争抢的同一个缓存行；只有退役之后才需要对两者求和判断是否排空
+ */
+final class ModelHandle {
+    private final SessionPool sessions;
+    private final long version;
+    private final ModelLoadStats loadStats;
+    private final ModelSignature signature;
+    private final MetricsRecorder recorder;
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder released = new LongAdder();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile boolean retired;
+
+    ModelHandle(SessionPool sessions, long version, ModelLoadStats loadStats, ModelSignature signature, MetricsRecorder recorder) {
+        this.sessions = sessions;
+        this.version = version;
+        this.loadStats = loadStats;
+        this.signature = signature;
+        this.recorder = recorder;
+    }
+
+    /**
+     * 增加一次引用；句柄已经退役时返回 false，调用方应重新读取当前句柄
+     */
+    boolean retain() {
+        acquired.increment();
+        // 先计数再检查：retire 之后求和时，要么能看到这次计数，要么这里能看到 retired
+        if (retired) {
+            release();
+            return false;
+        }
+        return true;
+    }
+
+    void release() {
+        released.increment();
+        if (retired) {
+            closeIfDrained();
+        }
+    }
+
+    /**
+     * 退役：之后的 retain 都返回 false，在途请求全部 release 后关闭会话
+     */
+    void retire() {
+        retired = true;
+        closeIfDrained();
+    }
+
+    private void closeIfDrained() {
+        // 先读释放次数：计入的每次释放，其对应的获取一定已经完成，相等说明没有在途请求
+        long releases = released.sum();
+        if (releases == acquired.sum() && closed.compareAndSet(false, true)) {
+            try {
+                sessions.close();
+            } catch (OrtException e) {
+                recorder.recordError("session_close", e);
+            }
+        }
+    }
+
+    SessionPool sessions() {
+        return sessions;
+    }
+
+    long version() {
+        return version;
+    }
+
+    ModelLoadStats loadStats() {
+        return loadStats;
+    }
+
+    ModelSignature signature() {
+        return signature;
+    }
+}
@@ -0,0 +1,70 @@
+package org.sqx.javaaidemo.sdk;
+
+import ai.onnxruntime.NodeInfo;
+import ai.onnxruntime.OnnxJavaType;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import ai.onnxruntime.TensorInfo;
+import org.sqx.javaaidemo.sdk.model.ModelSignature;
+
+import java.util.Map;
+
+/**
+ * 从会话的 getInputInfo()/getOutputInfo() 读取 {@link ModelSignature}。
+ * <p>
+ * 输入取第一个 4 维 float 张量，按 NCHW 解释：batch 维为 -1 表示动态，固定时只支持 1；
+ * 通道数必须为 3；宽高为动态维度时使用传入的默认尺寸。输出取第一个输出，
+ * 除 batch 维以外各维的乘积即类别数，[N,C] 和 [N,C,1,1] 都可以。
+ */
+public final class ModelInspector {
+
+    private ModelInspector() {
+    }
+
+    public static ModelSignature inspect(OrtSession session, int defaultWidth, int defaultHeight) throws OrtException {
+        String inputName = null;
+        long[] inputShape = null;
+        for (Map.Entry<String, NodeInfo> entry : session.getInputInfo().entrySet()) {
+            if (entry.getValue().getInfo() instanceof TensorInfo) {
+                TensorInfo info = (TensorInfo) entry.getValue().getInfo();
+                if (info.type == OnnxJavaType.FLOAT && info.getShape().length == 4) {
+                    inputName = entry.getKey();
+                    inputShape = info.getShape();
+                    break;
+                }
+            }
+        }
+        if (inputName == null) {
+            throw new IllegalArgumentException("模型没有 4 维 float 输入，输入为 " + session.getInputInfo().keySet());
+        }
+
+        long batch = inputShape[0];
+        if (batch > 1) {
+            throw new IllegalArgumentException("不支持 batch 维固定为 " + batch + " 的模型");
+        }
+        if (inputShape[1] != 3 && inputShape[1] != -1) {
+            String hint = inputShape[3] == 3 ? "，看起来是 NHWC 布局，仅支持 NCHW" : "";
+            throw new IllegalArgumentException("模型输入 " + inputName + " 的通道数为 " + inputShape[1] + "，仅支持 3 通道" + hint);
+        }
+        int height = inputShape[2] > 0 ? (int) inputShape[2] : defaultHeight;
+        int width = inputShape[3] > 0 ? (int) inputShape[3] : defaultWidth;
+
+        Map.Entry<String, NodeInfo> output = session.getOutputInfo().entrySet().iterator().next();
+        int numClasses = -1;
+        long[] outputShape = null;
+        if (output.getValue().getInfo() instanceof TensorInfo) {
+            TensorInfo info = (TensorInfo) output.getValue().getInfo();
+            long[] shape = info.getShape();
+            long product = 1;
+            for (int i = 1; i < shape.length && product > 0; i++) {
+                product = shape[i] > 0 ? product * shape[i] : -1;
+            }
+            numClasses = shape.length > 1 && product > 0 ? (int) product : -1;
+            if (numClasses > 0 && shape[0] <= 1 && info.type == OnnxJavaType.FLOAT) {
+                outputShape = shape.clone();
+                outputShape[0] = 1;
+            }
+        }
+        return new ModelSignature(inputName, output.getKey(), 3, height, width, batch != 1, numClasses, outputShape);
+    }
+}
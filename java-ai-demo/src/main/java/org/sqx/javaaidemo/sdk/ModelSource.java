@@ -0,0 +1,111 @@
+package org.sqx.javaaidemo.sdk;
+
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import org.sqx.javaaidemo.sdk.model.ModelLoadMode;
+import org.sqx.javaaidemo.sdk.model.SDKConfig;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+
+/**
+ * 按 {@link ModelLoadMode} 打开模型，会话池中的每个会话都从同一个来源创建
+ */
+final class ModelSource {
+    private static final int DIGEST_BUFFER_SIZE = 1 << 16;
+
+    private final ModelLoadMode mode;
+    private final Path path;
+    private byte[] bytes;
+    private ByteBuffer mapped;
+
+    private ModelSource(ModelLoadMode mode, Path path) {
+        this.mode = mode;
+        this.path = path;
+    }
+
+    /**
+     * 直接按文件路径加载的来源，用于加载缓存中已优化的模型
+     */
+    static ModelSource ofPath(Path path) {
+        return new ModelSource(ModelLoadMode.PATH, path);
+    }
+
+    static ModelSource open(SDKConfig config) throws IOException {
+        if (config.getModelLoadMode() == ModelLoadMode.STREAM) {
+            ModelSource source = new ModelSource(ModelLoadMode.STREAM, config.getModelPath());
+            try (InputStream modelStream = config.getModelStream()) {
+                source.bytes = modelStream.readAllBytes();
+            }
+            return source;
+        }
+        return open(config.getModelPath(), config.getModelLoadMode());
+    }
+
+    /**
+     * 按指定方式打开模型文件，STREAM 方式把整个文件读入堆内存
+     */
+    static ModelSource open(Path path, ModelLoadMode mode) throws IOException {
+        ModelSource source = new ModelSource(mode, path);
+        switch (mode) {
+            case STREAM:
+                source.bytes = Files.readAllBytes(path);
+                break;
+            case MEMORY_MAPPED:
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                    // 映射在通道关闭后仍然有效，占用的是页缓存而不是 JVM 堆
+                    source.mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                }
+                break;
+            default:
+                break;
+        }
+        return source;
+    }
+
+    OrtSession createSession(OrtEnvironment env, OrtSession.SessionOptions options) throws OrtException {
+        switch (mode) {
+            case PATH:
+                return env.createSession(path.toString(), options);
+            case MEMORY_MAPPED:
+                return env.createSession(mapped.duplicate(), options);
+            default:
+                return env.createSession(bytes, options);
+        }
+    }
+
+    /**
+     * 把模型内容写入摘要，用作优化模型缓存的键。同一路径上替换的模型即使大小和修改时间不变也会得到新的键。
+     * 流式加载和内存映射直接对内存中的内容计算；按路径加载时顺序读一遍文件，不把整个模型读入堆内存
+     */
+    void identify(MessageDigest digest) throws IOException {
+        switch (mode) {
+            case STREAM:
+                digest.update(bytes);
+                break;
+            case MEMORY_MAPPED:
+                digest.update(mapped.duplicate());
+                break;
+            default:
+                try (InputStream in = Files.newInputStream(path)) {
+                    byte[] buffer = new byte[DIGEST_BUFFER_SIZE];
+                    int n;
+                    while ((n = in.read(buffer)) > 0) {
+                        digest.update(buffer, 0, n);
+                    }
+                }
+                break;
+        }
+    }
+
+    ModelLoadMode getMode() {
+        return mode;
+    }
+}
@@ -0,0 +1,96 @@
+package org.sqx.javaaidemo.sdk;
+
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import org.sqx.javaaidemo.sdk.metrics.MetricsRecorder;
+import org.sqx.javaaidemo.sdk.model.SDKConfig;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * ONNX Runtime 图优化结果的磁盘缓存。
+ * <p>
+ * 缓存键是源模型内容、影响图优化的选项、ORT 版本和 CPU 架构的 SHA-256。不使用文件路径、大小或修改时间：
+ * 滚动发布时重新训练的模型常常放在同一路径、大小相同，修改时间也可能被构建工具统一成固定值。
+ * ALL_OPT 级别的优化结果可能包含与硬件相关的算子，因此只适合在相同架构的机器之间复用。
+ * <p>
+ * 写入失败和缓存文件损坏都不影响启动，按原模型加载，错误通过 {@link MetricsRecorder#recordError} 上报
+ */
+final class OptimizedModelCache {
+    private final Path cacheDir;
+    private final MetricsRecorder recorder;
+
+    OptimizedModelCache(Path cacheDir, MetricsRecorder recorder) {
+        this.cacheDir = cacheDir;
+        this.recorder = recorder;
+    }
+
+    /**
+     * 缓存命中时返回已优化模型的路径；未命中时用 source 创建一次会话并写入缓存，写入失败返回 null
+     */
+    Path resolve(OrtEnvironment env, ModelSource source, SDKConfig config) throws IOException {
+        Path cached = cacheDir.resolve("model-" + key(env, source, config) + ".onnx");
+        if (Files.isRegularFile(cached)) {
+            return cached;
+        }
+
+        Files.createDirectories(cacheDir);
+        Path tempFile = Files.createTempFile(cacheDir, "model-", ".tmp");
+        try {
+            try (OrtSession.SessionOptions options = SessionPool.sessionOptions(config)) {
+                options.setOptimizedModelFilePath(tempFile.toString());
+                source.createSession(env, options).close();
+            }
+            // 先写临时文件再原子改名，并发启动的多个进程不会读到写了一半的模型
+            try {
+                Files.move(tempFile, cached, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, cached, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return cached;
+        } catch (OrtException e) {
+            recorder.recordError("optimized_cache", e);
+            return null;
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * 缓存中的模型无法创建会话（文件损坏或被截断）时删除它，下次启动重新生成
+     */
+    void invalidate(Path cached, OrtException error) throws IOException {
+        recorder.recordError("optimized_cache", error);
+        Files.deleteIfExists(cached);
+    }
+
+    private static String key(OrtEnvironment env, ModelSource source, SDKConfig config) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        source.identify(digest);
+        String options = "opt=" + config.getOptimizationLevel()
+                + ";mode=" + config.getExecutionMode()
+                + ";ort=" + env.getVersion()
+                + ";arch=" + System.getProperty("os.arch");
+        digest.update(options.getBytes(StandardCharsets.UTF_8));
+
+        StringBuilder hex = new StringBuilder();
+        byte[] hash = digest.digest();
+        for (int i = 0; i < 16; i++) {
+            hex.append(String.format("%02x", hash[i]));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,98 @@
+package org.sqx.javaaidemo.sdk;
+
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import org.sqx.javaaidemo.sdk.model.SDKConfig;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 同一模型的多个 OrtSession，请求按轮询分摊，避免所有线程争用一个会话的线程池
+ */
+class SessionPool implements AutoCloseable {
+
+    /**
+     * 用给定的 SessionOptions 创建一个会话
+     */
+    interface SessionFactory {
+        OrtSession create(OrtSession.SessionOptions options) throws OrtException;
+    }
+
+    private final OrtSession[] sessions;
+    private final AtomicInteger next = new AtomicInteger();
+
+    private SessionPool(OrtSession[] sessions) {
+        this.sessions = sessions;
+    }
+
+    static SessionPool create(SessionFactory factory, OrtSession.SessionOptions options, int size) throws OrtException {
+        OrtSession[] sessions = new OrtSession[size];
+        try {
+            for (int i = 0; i < sessions.length; i++) {
+                sessions[i] = factory.create(options);
+            }
+        } catch (OrtException | RuntimeException e) {
+            for (OrtSession session : sessions) {
+                if (session != null) {
+                    session.close();
+                }
+            }
+            throw e;
+        }
+        return new SessionPool(sessions);
+    }
+
+    static OrtSession.SessionOptions sessionOptions(SDKConfig config) throws OrtException {
+        OrtSession.SessionOptions options = new OrtSession.SessionOptions();
+        try {
+            if (config.getIntraOpThreads() > 0) {
+                options.setIntraOpNumThreads(config.getIntraOpThreads());
+            }
+            if (config.getInterOpThreads() > 0) {
+                options.setInterOpNumThreads(config.getInterOpThreads());
+            }
+            options.setExecutionMode(config.getExecutionMode());
+            options.setOptimizationLevel(config.getOptimizationLevel());
+            options.setCPUArenaAllocator(config.isMemoryArena());
+            options.setMemoryPatternOptimization(config.isMemoryPattern());
+            return options;
+        } catch (OrtException | RuntimeException e) {
+            options.close();
+            throw e;
+        }
+    }
+
+    OrtSession next() {
+        if (sessions.length == 1) {
+            return sessions[0];
+        }
+        return sessions[Math.floorMod(next.getAndIncrement(), sessions.length)];
+    }
+
+    OrtSession first() {
+        return sessions[0];
+    }
+
+    OrtSession get(int index) {
+        return sessions[index];
+    }
+
+    int size() {
+        return sessions.length;
+    }
+
+    @Override
+    public void close() throws OrtException {
+        OrtException failure = null;
+        for (OrtSession session : sessions) {
+            try {
+                session.close();
+            } catch (OrtException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.sqx.javaaidemo.sdk.admission;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 推理入口的准入控制：限制同时推理的请求数，超出的请求在有界队列中按到达顺序等待。
+ * <p>
+ * 队列已满时立即拒绝；排队超过请求截止时间时放弃等待，不再进入解码和推理。
+ * 过载时快速失败，使已接收的请求仍能在正常延迟内完成，而不是所有请求一起变慢。
+ */
+public class AdmissionLimiter {
+
+    /**
+     * 一次准入许可，使用完毕后必须关闭
+     */
+    public final class Permit implements AutoCloseable {
+        private final long deadlineNanos;
+        private boolean closed;
+
+        private Permit(long deadlineNanos) {
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * 在耗时阶段之间调用，截止时间已过时抛出异常，避免为已经超时的请求继续占用推理资源
+         */
+        public void checkDeadline() {
+            if (System.nanoTime() - deadlineNanos > 0) {
+                expired.increment();
+                throw new AdmissionRejectedException(AdmissionRejectedException.Reason.DEADLINE_EXCEEDED);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                permits.release();
+            }
+        }
+    }
+
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final Semaphore permits;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejectedQueueFull = new LongAdder();
+    private final LongAdder rejectedTimeout = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+
+    /**
+     * @param maxConcurrent 同时推理的最大请求数
+     * @param maxQueued     等待队列长度，0 表示不排队
+     */
+    public AdmissionLimiter(int maxConcurrent, int maxQueued) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("maxConcurrent 必须大于 0");
+        }
+        if (maxQueued < 0) {
+            throw new IllegalArgumentException("maxQueued 不能为负数");
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.permits = new Semaphore(maxConcurrent, true);
+    }
+
+    /**
+     * 申请准入，最多等待到截止时间
+     *
+     * @param timeoutMillis 从现在开始计算的请求截止时间（毫秒）
+     * @throws AdmissionRejectedException 队列已满或在截止时间内没有获得许可
+     */
+    public Permit acquire(long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        // 带超时的 tryAcquire 遵守公平顺序，新请求不会插到排队请求前面
+        if (!permits.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+            if (queued.incrementAndGet() > maxQueued) {
+                queued.decrementAndGet();
+                rejectedQueueFull.increment();
+                throw new AdmissionRejectedException(AdmissionRejectedException.Reason.QUEUE_FULL);
+            }
+            try {
+                if (!permits.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    rejectedTimeout.increment();
+                    throw new AdmissionRejectedException(AdmissionRejectedException.Reason.DEADLINE_EXCEEDED);
+                }
+            } finally {
+                queued.decrementAndGet();
+            }
+        }
+        admitted.increment();
+        return new Permit(deadline);
+    }
+
+    public AdmissionStats stats() {
+        return new AdmissionStats(maxConcurrent - permits.availablePermits(), queued.get(),
+                admitted.sum(), rejectedQueueFull.sum(), rejectedTimeout.sum(), expired.sum());
+    }
+}
@@ -0,0 +1,29 @@
+package org.sqx.javaaidemo.sdk.admission;
+
+/**
+ * 请求未被准入或在处理途中超过截止时间
+ */
+public class AdmissionRejectedException extends RuntimeException {
+
+    public enum Reason {
+        /**
+         * 等待队列已满，请求被立即拒绝
+         */
+        QUEUE_FULL,
+        /**
+         * 排队或处理过程中超过了请求截止时间
+         */
+        DEADLINE_EXCEEDED
+    }
+
+    private final Reason reason;
+
+    public AdmissionRejectedException(Reason reason) {
+        super(reason == Reason.QUEUE_FULL ? "推理请求过多，请稍后重试" : "推理请求超过截止时间");
+        this.reason = reason;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+}
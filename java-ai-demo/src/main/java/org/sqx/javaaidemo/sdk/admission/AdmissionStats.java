@@ -0,0 +1,73 @@
+package org.sqx.javaaidemo.sdk.admission;
+
+/**
+ * 准入控制的当前状态与累计计数
+ */
+public class AdmissionStats {
+    private final int inFlight;
+    private final int queueDepth;
+    private final long admitted;
+    private final long rejectedQueueFull;
+    private final long rejectedTimeout;
+    private final long expired;
+
+    public AdmissionStats(int inFlight, int queueDepth, long admitted, long rejectedQueueFull, long rejectedTimeout, long expired) {
+        this.inFlight = inFlight;
+        this.queueDepth = queueDepth;
+        this.admitted = admitted;
+        this.rejectedQueueFull = rejectedQueueFull;
+        this.rejectedTimeout = rejectedTimeout;
+        this.expired = expired;
+    }
+
+    /**
+     * 正在处理的请求数
+     */
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * 正在排队等待许可的请求数
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public long getAdmitted() {
+        return admitted;
+    }
+
+    /**
+     * 因队列已满被立即拒绝的请求数
+     */
+    public long getRejectedQueueFull() {
+        return rejectedQueueFull;
+    }
+
+    /**
+     * 排队期间超过截止时间被放弃的请求数
+     */
+    public long getRejectedTimeout() {
+        return rejectedTimeout;
+    }
+
+    /**
+     * 已获得许可、但在推理前超过截止时间被丢弃的请求数
+     */
+    public long getExpired() {
+        return expired;
+    }
+
+    @Override
+    public String toString() {
+        return "AdmissionStats{" +
+                "inFlight=" + inFlight +
+                ", queueDepth=" + queueDepth +
+                ", admitted=" + admitted +
+                ", rejectedQueueFull=" + rejectedQueueFull +
+                ", rejectedTimeout=" + rejectedTimeout +
+                ", expired=" + expired +
+                '}';
+    }
+}
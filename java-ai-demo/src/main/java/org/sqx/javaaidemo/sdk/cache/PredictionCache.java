@@ -0,0 +1,130 @@
+package org.sqx.javaaidemo.sdk.cache;
+
+import org.sqx.javaaidemo.sdk.utils.XXHash64;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按上传内容寻址的推理结果缓存。
+ * <p>
+ * 键是原始图片字节的 XXH64 哈希、字节长度和模型版本，同一张图片重复上传时不再解码、预处理和推理；
+ * 模型热更新后版本号变化，旧结果自然失效。条目数超过上限时按写入顺序淘汰，读取时检查 TTL。
+ * 缓存只保存调用方放入的对象，可变的结果对象需要由调用方在返回前复制。
+ */
+public class PredictionCache<V> {
+
+    /**
+     * 缓存键，通过 {@link #key(byte[], long)} 计算
+     */
+    public static final class Key {
+        private final long hash;
+        private final int length;
+        private final long modelVersion;
+
+        private Key(long hash, int length, long modelVersion) {
+            this.hash = hash;
+            this.length = length;
+            this.modelVersion = modelVersion;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return hash == other.hash && length == other.length && modelVersion == other.modelVersion;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hash) * 31 + Long.hashCode(modelVersion);
+        }
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final Map<Key, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final Queue<Key> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxEntries 最多缓存的结果数
+     * @param ttlMillis  结果有效期（毫秒），0 表示不过期
+     */
+    public PredictionCache(int maxEntries, long ttlMillis) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries 必须大于 0");
+        }
+        if (ttlMillis < 0) {
+            throw new IllegalArgumentException("ttlMillis 不能为负数");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    }
+
+    public static Key key(byte[] content, long modelVersion) {
+        return new Key(XXHash64.hash(content), content.length, modelVersion);
+    }
+
+    /**
+     * 命中且未过期时返回缓存的结果，否则返回 null
+     */
+    public V get(Key key) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && ttlNanos > 0 && System.nanoTime() - entry.expiresAt > 0) {
+            if (entries.remove(key, entry)) {
+                evictions.increment();
+            }
+            entry = null;
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    public void put(Key key, V value) {
+        Entry<V> entry = new Entry<>(value, System.nanoTime() + ttlNanos);
+        if (entries.put(key, entry) == null) {
+            insertionOrder.offer(key);
+        }
+        // 队列里可能残留已过期删除的键，remove 返回 null 时不计入淘汰
+        while (entries.size() > maxEntries) {
+            Key eldest = insertionOrder.poll();
+            if (eldest == null) {
+                break;
+            }
+            if (entries.remove(eldest) != null) {
+                evictions.increment();
+            }
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+        insertionOrder.clear();
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), entries.size());
+    }
+}
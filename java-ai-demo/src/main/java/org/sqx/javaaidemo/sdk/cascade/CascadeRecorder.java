@@ -0,0 +1,19 @@
+package org.sqx.javaaidemo.sdk.cascade;
+
+/**
+ * 级联每一级推理完成后的回调，通过 {@link ModelCascade.Builder#recorder} 配置，默认不记录。
+ * 在推理线程上同步调用，实现应当足够轻量，不能阻塞
+ */
+public interface CascadeRecorder {
+
+    CascadeRecorder NOOP = (level, name, nanos, escalated) -> {
+    };
+
+    /**
+     * @param level     级别，从 0 开始
+     * @param name      该级模型的名称
+     * @param nanos     该级 predict 的耗时（含预处理）
+     * @param escalated 置信度低于阈值、请求继续交给下一级
+     */
+    void record(int level, String name, long nanos, boolean escalated);
+}
@@ -0,0 +1,54 @@
+package org.sqx.javaaidemo.sdk.cascade;
+
+import org.sqx.javaaidemo.sdk.model.PredictionResult;
+
+/**
+ * 级联推理的结果：给出结果的那一级的预测，以及经过的每一级的耗时
+ */
+public class CascadeResult {
+    private final PredictionResult result;
+    private final int level;
+    private final String name;
+    private final long[] levelNanos;
+
+    public CascadeResult(PredictionResult result, int level, String name, long[] levelNanos) {
+        this.result = result;
+        this.level = level;
+        this.name = name;
+        this.levelNanos = levelNanos;
+    }
+
+    public PredictionResult getResult() {
+        return result;
+    }
+
+    /**
+     * 给出结果的级别，从 0 开始；大于 0 表示请求被升级过
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * 给出结果的那一级模型的名称
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 经过的每一级 predict 的纳秒耗时，长度为 level + 1
+     */
+    public long[] getLevelNanos() {
+        return levelNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "CascadeResult{" +
+                "result=" + result +
+                ", level=" + level +
+                ", name='" + name + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,52 @@
+package org.sqx.javaaidemo.sdk.cascade;
+
+import java.util.List;
+
+/**
+ * 级联的累计统计，每一级一项，顺序与级联相同
+ */
+public class CascadeStats {
+    private final List<LevelStats> levels;
+
+    public CascadeStats(List<LevelStats> levels) {
+        this.levels = levels;
+    }
+
+    public List<LevelStats> getLevels() {
+        return levels;
+    }
+
+    public long getRequests() {
+        return levels.get(0).getRequests();
+    }
+
+    /**
+     * 没有在第一级得到结果的请求比例
+     */
+    public double getEscalationRate() {
+        return levels.get(0).getEscalationRate();
+    }
+
+    /**
+     * 与每个请求都只跑最后一级相比节省的推理耗时比例，按各级平均耗时估算；最后一级还没有请求时为 0
+     */
+    public double getEstimatedSavings() {
+        LevelStats last = levels.get(levels.size() - 1);
+        long requests = getRequests();
+        if (last.getRequests() == 0 || requests == 0) {
+            return 0;
+        }
+        double spent = 0;
+        for (LevelStats level : levels) {
+            spent += level.getMeanLatencyMs() * level.getRequests();
+        }
+        return 1 - spent / (last.getMeanLatencyMs() * requests);
+    }
+
+    @Override
+    public String toString() {
+        return "CascadeStats{" +
+                "levels=" + levels +
+                '}';
+    }
+}
@@ -0,0 +1,71 @@
+package org.sqx.javaaidemo.sdk.cascade;
+
+/**
+ * 级联中一级模型的累计统计
+ */
+public class LevelStats {
+    private final String name;
+    private final float threshold;
+    private final long requests;
+    private final long escalated;
+    private final long totalNanos;
+
+    public LevelStats(String name, float threshold, long requests, long escalated, long totalNanos) {
+        this.name = name;
+        this.threshold = threshold;
+        this.requests = requests;
+        this.escalated = escalated;
+        this.totalNanos = totalNanos;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public float getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * 到达这一级的请求数
+     */
+    public long getRequests() {
+        return requests;
+    }
+
+    /**
+     * 在这一级置信度不足、交给下一级的请求数
+     */
+    public long getEscalated() {
+        return escalated;
+    }
+
+    /**
+     * 由这一级给出最终结果的请求数
+     */
+    public long getAnswered() {
+        return requests - escalated;
+    }
+
+    public double getEscalationRate() {
+        return requests == 0 ? 0 : (double) escalated / requests;
+    }
+
+    /**
+     * 这一级每次 predict 的平均耗时（毫秒）
+     */
+    public double getMeanLatencyMs() {
+        return requests == 0 ? 0 : totalNanos / 1e6 / requests;
+    }
+
+    @Override
+    public String toString() {
+        return "LevelStats{" +
+                "name='" + name + '\'' +
+                ", threshold=" + threshold +
+                ", requests=" + requests +
+                ", escalated=" + escalated +
+                ", meanLatencyMs=" + getMeanLatencyMs() +
+                '}';
+    }
+}
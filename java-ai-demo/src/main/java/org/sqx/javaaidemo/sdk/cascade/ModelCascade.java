@@ -0,0 +1,118 @@
+package org.sqx.javaaidemo.sdk.cascade;
+
+import org.sqx.javaaidemo.sdk.AISDK;
+import org.sqx.javaaidemo.sdk.model.PredictionResult;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按置信度逐级升级的模型级联：先用便宜的模型推理，top-1 概率达到该级阈值就直接返回，
+ * 否则把同一张图片交给下一级，最后一级总是给出结果。大部分请求是容易的图片时，平均只需要跑小模型。
+ * <p>
+ * 每一级是一个独立初始化的 {@link AISDK}，输入尺寸可以不同；图片只解码一次，各级分别按自己的输入尺寸预处理。
+ * 级联不持有这些 AISDK，由调用方负责关闭。阈值作用于 softmax 之后的概率，SDKConfig 的温度会影响它
+ */
+public class ModelCascade {
+
+    private static final class Level {
+        final String name;
+        final AISDK sdk;
+        final float threshold;
+        final LongAdder requests = new LongAdder();
+        final LongAdder escalated = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+
+        Level(String name, AISDK sdk, float threshold) {
+            this.name = name;
+            this.sdk = sdk;
+            this.threshold = threshold;
+        }
+    }
+
+    private final Level[] levels;
+    private final CascadeRecorder recorder;
+
+    private ModelCascade(Builder builder) {
+        this.levels = builder.levels.toArray(new Level[0]);
+        this.recorder = builder.recorder;
+    }
+
+    public CascadeResult predict(BufferedImage image) throws Exception {
+        return predict(image, 1);
+    }
+
+    /**
+     * @param topK 返回概率最高的 K 个类别，见 {@link PredictionResult#getTopK()}
+     */
+    public CascadeResult predict(BufferedImage image, int topK) throws Exception {
+        long[] levelNanos = new long[levels.length];
+        for (int i = 0; ; i++) {
+            Level level = levels[i];
+            long begin = System.nanoTime();
+            PredictionResult result = level.sdk.predict(image, topK);
+            long nanos = System.nanoTime() - begin;
+            levelNanos[i] = nanos;
+            boolean escalate = i < levels.length - 1 && result.getScore() < level.threshold;
+            level.requests.increment();
+            level.totalNanos.add(nanos);
+            if (escalate) {
+                level.escalated.increment();
+            }
+            recorder.record(i, level.name, nanos, escalate);
+            if (!escalate) {
+                return new CascadeResult(result, i, level.name, Arrays.copyOf(levelNanos, i + 1));
+            }
+        }
+    }
+
+    public CascadeStats getStats() {
+        List<LevelStats> stats = new ArrayList<>(levels.length);
+        for (Level level : levels) {
+            // 先读 escalated 再读 requests，并发更新时不会出现 escalated 大于 requests
+            long escalated = level.escalated.sum();
+            stats.add(new LevelStats(level.name, level.threshold, level.requests.sum(), escalated, level.totalNanos.sum()));
+        }
+        return new CascadeStats(stats);
+    }
+
+    public static class Builder {
+        private final List<Level> levels = new ArrayList<>();
+        private CascadeRecorder recorder = CascadeRecorder.NOOP;
+
+        /**
+         * 追加一级模型
+         *
+         * @param threshold top-1 概率低于该值时升级到下一级，取值 [0, 1]；最后一级的阈值不起作用
+         */
+        public Builder level(String name, AISDK sdk, float threshold) {
+            if (!(threshold >= 0 && threshold <= 1)) {
+                throw new IllegalArgumentException("threshold 必须在 [0, 1] 之间");
+            }
+            levels.add(new Level(name, sdk, threshold));
+            return this;
+        }
+
+        /**
+         * 追加最后一级模型，总是给出结果
+         */
+        public Builder level(String name, AISDK sdk) {
+            return level(name, sdk, 0);
+        }
+
+        public Builder recorder(CascadeRecorder recorder) {
+            this.recorder = recorder;
+            return this;
+        }
+
+        public ModelCascade build() {
+            if (levels.isEmpty()) {
+                throw new IllegalArgumentException("级联至少需要一级模型");
+            }
+            return new ModelCascade(this);
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package org.sqx.javaaidemo.sdk.embedding;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+/**
+ * 精确最近邻检索的向量库。向量写入时归一化为单位长度，按行连续存放在堆外内存中，余弦相似度即点积；
+ * 检索把所有行按块分给 ForkJoin 公共线程池并行计算，每块保留局部 top-K 后再合并。
+ * <p>
+ * 堆外内存按段分配，每段不超过 1GB（ByteBuffer 和 FileChannel.map 单块上限为 2GB），百万条 2048 维向量（8GB）也能存放。
+ * {@link #save} 把 id 和向量写成一个文件，{@link #open} 以内存映射方式打开：只读取 id，向量在检索时才由操作系统按页加载，
+ * 打开百万条向量的库只需毫秒级。打开的库是只读的。
+ * <p>
+ * 检索可以并发执行，{@link #add} 与检索互斥
+ */
+public class EmbeddingStore {
+    private static final int MAGIC = 0x31424D45; // "EMB1"，小端序
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final long SEGMENT_BYTES = 1L << 30;
+    private static final int INITIAL_ROWS = 1024;
+    // 每个并行任务扫描的行数
+    private static final int BLOCK_ROWS = 8192;
+
+    private final int dimension;
+    private final int rowsPerSegment;
+    private final boolean readOnly;
+    private final List<ByteBuffer> segments = new ArrayList<>();
+    private final List<FloatBuffer> vectors = new ArrayList<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private long[] ids;
+    private int size;
+
+    public EmbeddingStore(int dimension) {
+        this(dimension, SEGMENT_BYTES);
+    }
+
+    EmbeddingStore(int dimension, long segmentBytes) {
+        this(dimension, rowsPerSegment(dimension, segmentBytes), false, new long[INITIAL_ROWS], 0);
+    }
+
+    private EmbeddingStore(int dimension, int rowsPerSegment, boolean readOnly, long[] ids, int size) {
+        if (dimension < 1) {
+            throw new IllegalArgumentException("dimension 必须大于 0");
+        }
+        this.dimension = dimension;
+        this.rowsPerSegment = rowsPerSegment;
+        this.readOnly = readOnly;
+        this.ids = ids;
+        this.size = size;
+    }
+
+    private static int rowsPerSegment(int dimension, long segmentBytes) {
+        return (int) Math.max(1, segmentBytes / ((long) dimension * Float.BYTES));
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * 添加一条向量，写入前归一化为单位长度；id 由调用方分配，不检查重复
+     *
+     * @return 向量所在的行号
+     */
+    public int add(long id, float[] vector) {
+        if (readOnly) {
+            throw new IllegalStateException("内存映射打开的向量库是只读的");
+        }
+        float[] unit = normalize(vector);
+        lock.writeLock().lock();
+        try {
+            int row = size;
+            FloatBuffer segment = ensureCapacity(row);
+            segment.put((row % rowsPerSegment) * dimension, unit);
+            if (row == ids.length) {
+                ids = Arrays.copyOf(ids, ids.length * 2);
+            }
+            ids[row] = id;
+            size = row + 1;
+            return row;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 段按需倍增，写满 rowsPerSegment 行后开始新的段
+     */
+    private FloatBuffer ensureCapacity(int row) {
+        int index = row / rowsPerSegment;
+        int rowInSegment = row % rowsPerSegment;
+        if (index == segments.size()) {
+            ByteBuffer fresh = allocate(Math.min(rowsPerSegment, INITIAL_ROWS));
+            segments.add(fresh);
+            vectors.add(fresh.asFloatBuffer());
+        }
+        FloatBuffer segment = vectors.get(index);
+        int capacityRows = segment.capacity() / dimension;
+        if (rowInSegment == capacityRows) {
+            ByteBuffer grown = allocate((int) Math.min(rowsPerSegment, capacityRows * 2L));
+            grown.put(segments.get(index).duplicate().clear()).clear();
+            segments.set(index, grown);
+            segment = grown.asFloatBuffer();
+            vectors.set(index, segment);
+        }
+        return segment;
+    }
+
+    private ByteBuffer allocate(int rows) {
+        return ByteBuffer.allocateDirect(rows * dimension * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private float[] normalize(float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("向量维度为 " + vector.length + "，应为 " + dimension);
+        }
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        if (norm == 0) {
+            throw new IllegalArgumentException("向量长度为 0，无法计算余弦相似度");
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        float[] unit = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            unit[i] = vector[i] * scale;
+        }
+        return unit;
+    }
+
+    /**
+     * 精确检索与 query 余弦相似度最高的 k 条向量，按相似度从高到低排列
+     */
+    public List<Neighbor> search(float[] query, int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k 必须大于 0");
+        }
+        float[] unit = normalize(query);
+        lock.readLock().lock();
+        try {
+            int rows = size;
+            int blocks = (rows + BLOCK_ROWS - 1) / BLOCK_ROWS;
+            MinHeap best;
+            if (blocks <= 1) {
+                best = scan(unit, k, 0, rows);
+            } else {
+                best = IntStream.range(0, blocks).parallel()
+                        .mapToObj(b -> scan(unit, k, b * BLOCK_ROWS, Math.min(rows, (b + 1) * BLOCK_ROWS)))
+                        .reduce(MinHeap::merge)
+                        .orElseThrow();
+            }
+            return best.toNeighbors(ids);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private MinHeap scan(float[] query, int k, int from, int to) {
+        MinHeap heap = new MinHeap(k);
+        int index = from / rowsPerSegment;
+        int rowInSegment = from % rowsPerSegment;
+        FloatBuffer segment = index < vectors.size() ? vectors.get(index) : null;
+        for (int row = from; row < to; row++) {
+            if (rowInSegment == rowsPerSegment) {
+                segment = vectors.get(++index);
+                rowInSegment = 0;
+            }
+            heap.offer(dot(segment, rowInSegment * dimension, query), row);
+            rowInSegment++;
+        }
+        return heap;
+    }
+
+    /**
+     * 四路独立累加，打断浮点加法的依赖链，让相邻的乘加可以同时执行
+     */
+    private static float dot(FloatBuffer segment, int offset, float[] query) {
+        float s0 = 0;
+        float s1 = 0;
+        float s2 = 0;
+        float s3 = 0;
+        int n = query.length;
+        int i = 0;
+        for (; i + 3 < n; i += 4) {
+            s0 += segment.get(offset + i) * query[i];
+            s1 += segment.get(offset + i + 1) * query[i + 1];
+            s2 += segment.get(offset + i + 2) * query[i + 2];
+            s3 += segment.get(offset + i + 3) * query[i + 3];
+        }
+        for (; i < n; i++) {
+            s0 += segment.get(offset + i) * query[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * 写成一个文件：64 字节头部（魔数、版本、维度、条数），随后 size 个 int64 id，按 64 字节对齐后是 size 行 float32 向量，全部为小端序
+     */
+    public void save(Path file) throws IOException {
+        lock.readLock().lock();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(dimension).putInt(0).putLong(size).clear();
+            writeFully(channel, header);
+
+            ByteBuffer idBytes = ByteBuffer.allocate(idsBytes(size)).order(ByteOrder.LITTLE_ENDIAN);
+            idBytes.asLongBuffer().put(ids, 0, size);
+            writeFully(channel, idBytes);
+
+            int remaining = size;
+            for (ByteBuffer segment : segments) {
+                int rows = Math.min(remaining, rowsPerSegment);
+                writeFully(channel, segment.duplicate().position(0).limit(rows * dimension * Float.BYTES));
+                remaining -= rows;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static int idsBytes(int size) {
+        // id 区补齐到 64 字节，向量区的起始位置按缓存行对齐
+        return (size * Long.BYTES + HEADER_BYTES - 1) / HEADER_BYTES * HEADER_BYTES;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * 以内存映射方式打开 {@link #save} 写出的文件，返回只读的向量库。映射在向量库不再被引用后由 GC 释放
+     */
+    public static EmbeddingStore open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+                throw new IOException(file + " 不是向量库文件");
+            }
+            int dimension = header.getInt();
+            header.getInt();
+            long count = header.getLong();
+            if (dimension < 1 || count < 0 || count > Integer.MAX_VALUE / Long.BYTES) {
+                throw new IOException(file + " 的头部已损坏");
+            }
+            int size = (int) count;
+            long vectorsOffset = HEADER_BYTES + (long) idsBytes(size);
+            if (channel.size() < vectorsOffset + (long) size * dimension * Float.BYTES) {
+                throw new IOException(file + " 的长度不足，文件可能不完整");
+            }
+
+            long[] ids = new long[Math.max(size, 1)];
+            if (size > 0) {
+                channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, (long) size * Long.BYTES)
+                        .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().get(ids, 0, size);
+            }
+            int rowsPerSegment = rowsPerSegment(dimension, SEGMENT_BYTES);
+            EmbeddingStore store = new EmbeddingStore(dimension, rowsPerSegment, true, ids, size);
+            long segmentBytes = (long) rowsPerSegment * dimension * Float.BYTES;
+            for (int from = 0; from < size; from += rowsPerSegment) {
+                int rows = Math.min(rowsPerSegment, size - from);
+                ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY,
+                        vectorsOffset + (from / rowsPerSegment) * segmentBytes, (long) rows * dimension * Float.BYTES)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                store.segments.add(mapped);
+                store.vectors.add(mapped.asFloatBuffer());
+            }
+            return store;
+        }
+    }
+
+    /**
+     * 固定容量的小顶堆，堆顶是当前 top-K 中相似度最低的一条
+     */
+    private static final class MinHeap {
+        private final float[] scores;
+        private final int[] rows;
+        private int count;
+
+        MinHeap(int k) {
+            scores = new float[k];
+            rows = new int[k];
+        }
+
+        void offer(float score, int row) {
+            if (count < scores.length) {
+                int i = count++;
+                while (i > 0) {
+                    int parent = (i - 1) >>> 1;
+                    if (scores[parent] <= score) {
+                        break;
+                    }
+                    scores[i] = scores[parent];
+                    rows[i] = rows[parent];
+                    i = parent;
+                }
+                scores[i] = score;
+                rows[i] = row;
+            } else if (score > scores[0]) {
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= count) {
+                        break;
+                    }
+                    if (child + 1 < count && scores[child + 1] < scores[child]) {
+                        child++;
+                    }
+                    if (scores[child] >= score) {
+                        break;
+                    }
+                    scores[i] = scores[child];
+                    rows[i] = rows[child];
+                    i = child;
+                }
+                scores[i] = score;
+                rows[i] = row;
+            }
+        }
+
+        MinHeap merge(MinHeap other) {
+            for (int i = 0; i < other.count; i++) {
+                offer(other.scores[i], other.rows[i]);
+            }
+            return this;
+        }
+
+        List<Neighbor> toNeighbors(long[] ids) {
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Float.compare(scores[b], scores[a]));
+            List<Neighbor> neighbors = new ArrayList<>(count);
+            for (int i : order) {
+                neighbors.add(new Neighbor(ids[rows[i]], scores[i]));
+            }
+            return neighbors;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package org.sqx.javaaidemo.sdk.embedding;
+
+/**
+ * 检索结果中的一条：向量 id 和与查询向量的余弦相似度
+ */
+public class Neighbor {
+    private final long id;
+    private final float score;
+
+    public Neighbor(long id, float score) {
+        this.id = id;
+        this.score = score;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * 余弦相似度，范围 [-1, 1]
+     */
+    public float getScore() {
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return "Neighbor{" +
+                "id=" + id +
+                ", score=" + score +
+                '}';
+    }
+}
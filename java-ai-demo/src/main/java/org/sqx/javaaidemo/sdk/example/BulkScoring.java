@@ -0,0 +1,475 @@
+package org.sqx.javaaidemo.sdk.example;
+
+import org.sqx.javaaidemo.sdk.AISDK;
+import org.sqx.javaaidemo.sdk.model.ClassScore;
+import org.sqx.javaaidemo.sdk.model.ModelSignature;
+import org.sqx.javaaidemo.sdk.model.PredictionResult;
+import org.sqx.javaaidemo.sdk.model.SDKConfig;
+import org.sqx.javaaidemo.sdk.utils.ImageDecoder;
+import org.sqx.javaaidemo.sdk.utils.ImagePreprocessor;
+import org.sqx.javaaidemo.sdk.utils.TensorBufferPool;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.FloatBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * 离线批量打分：遍历目录（或逐行列出图片路径的文本文件），按 读取 → 解码 → 预处理 → 批量推理 → 写结果
+ * 五个阶段流水线处理，结果写成 CSV 或 JSONL（按输出文件扩展名）。多线程解码时结果行的顺序可能与输入不同，
+ * 按 index 列对应。
+ * <p>
+ * 阶段之间是有界队列，下游跟不上时上游阻塞，内存中同时存在的图片数量固定。
+ * 运行中每 10 秒、结束时输出一次吞吐（张/秒）和各阶段利用率（处理时间 / (墙钟时间 × 线程数)），
+ * 利用率接近 100% 的阶段就是瓶颈，应增加该阶段的线程数：
+ * <pre>
+ * java ... BulkScoring models/resnet50-v2-7.onnx /data/catalogue scores.csv --batch 16 --decode-threads 8
+ * </pre>
+ * 单张图片失败只记在结果行里；读不了图片列表或写不了结果文件时中断所有阶段，进程以非 0 状态码退出。
+ */
+public class BulkScoring {
+
+    /**
+     * 在阶段之间传递的一张图片，某个阶段失败后只带着 error 直接流向写结果阶段
+     */
+    private static final class Item {
+        final int index;
+        final Path path;
+        byte[] content;
+        BufferedImage image;
+        FloatBuffer input;
+        PredictionResult result;
+        String error;
+
+        Item(int index, Path path) {
+            this.index = index;
+            this.path = path;
+        }
+    }
+
+    /**
+     * 队列结束标记，上游每个线程结束时不放，最后一个结束的线程按下游线程数放入
+     */
+    private static final Item END = new Item(-1, null);
+
+    private interface Step {
+        void apply(Item item) throws Exception;
+    }
+
+    /**
+     * 整体失败时通知其他阶段停止
+     */
+    private interface Abort {
+        void fail(IOException e);
+    }
+
+    /**
+     * 一个阶段的线程数和累计处理时间（不含在队列上等待的时间）
+     */
+    private static final class Stage {
+        final String name;
+        final int threads;
+        final LongAdder busyNanos = new LongAdder();
+        final LongAdder items = new LongAdder();
+        final List<Thread> workers = new ArrayList<>();
+
+        Stage(String name, int threads) {
+            this.name = name;
+            this.threads = threads;
+        }
+
+        double utilization(long wallNanos) {
+            return wallNanos == 0 ? 0 : (double) busyNanos.sum() / ((double) wallNanos * threads);
+        }
+
+        void join() throws InterruptedException {
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int status = run(args);
+        if (status != 0) {
+            System.exit(status);
+        }
+    }
+
+    /**
+     * @return 进程退出码，整体失败（图片列表或结果文件读写失败）时为 1
+     */
+    static int run(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.out.println("用法：BulkScoring <模型文件路径> <图片目录|图片列表文件> <输出.csv|输出.jsonl> "
+                    + "[--batch 16] [--topK 1] [--read-threads 2] [--decode-threads N] [--preprocess-threads N]");
+            return 0;
+        }
+        Path modelPath = Path.of(args[0]);
+        Path input = Path.of(args[1]);
+        Path output = Path.of(args[2]);
+        int cores = Runtime.getRuntime().availableProcessors();
+        int batchSize = intOption(args, "--batch", 16);
+        int topK = intOption(args, "--topK", 1);
+        int readThreads = intOption(args, "--read-threads", 2);
+        int decodeThreads = intOption(args, "--decode-threads", Math.max(1, cores / 2));
+        int preprocessThreads = intOption(args, "--preprocess-threads", Math.max(1, cores / 2));
+        boolean jsonl = output.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".jsonl");
+
+        // 编码后的字节较小，可以多缓存一些；解码后的图片可能有几十 MB，队列只保留少量
+        BlockingQueue<Item> paths = new ArrayBlockingQueue<>(256);
+        BlockingQueue<Item> encoded = new ArrayBlockingQueue<>(64);
+        BlockingQueue<Item> decoded = new ArrayBlockingQueue<>(preprocessThreads * 2);
+        BlockingQueue<Item> tensors = new ArrayBlockingQueue<>(batchSize * 2);
+        BlockingQueue<Item> results = new ArrayBlockingQueue<>(batchSize * 4);
+
+        AISDK sdk = AISDK.initialize(new SDKConfig.Builder(modelPath).build());
+        try {
+            // 解码、预处理尺寸和缓冲区大小都取自模型输入
+            ModelSignature signature = sdk.getModelSignature();
+            int width = signature.getWidth();
+            int height = signature.getHeight();
+            ImageDecoder decoder = new ImageDecoder(width, height);
+            ImagePreprocessor preprocessor = new ImagePreprocessor();
+            TensorBufferPool inputPool = new TensorBufferPool(signature.getImageSize(), batchSize * 3 + preprocessThreads);
+
+            Stage read = new Stage("读取", readThreads);
+            Stage decode = new Stage("解码", decodeThreads);
+            Stage preprocess = new Stage("预处理", preprocessThreads);
+            Stage infer = new Stage("推理", 1);
+            Stage write = new Stage("写结果", 1);
+            Stage[] stages = {read, decode, preprocess, infer, write};
+
+            long begin = System.nanoTime();
+            AtomicLong written = new AtomicLong();
+            // 第一个整体失败，记录后中断所有阶段：否则上游会一直阻塞在已经没人消费的队列上
+            AtomicReference<IOException> failure = new AtomicReference<>();
+            List<Thread> threads = new ArrayList<>();
+            Abort abort = e -> {
+                if (failure.compareAndSet(null, e)) {
+                    for (Thread thread : threads) {
+                        thread.interrupt();
+                    }
+                }
+            };
+            Thread lister = new Thread(() -> listImages(input, paths, readThreads, abort), "bulk-list");
+            start(read, paths, encoded, decodeThreads, item -> item.content = Files.readAllBytes(item.path));
+            start(decode, encoded, decoded, preprocessThreads, item -> {
+                item.image = decoder.decode(item.content);
+                item.content = null;
+                if (item.image == null) {
+                    item.error = "无法读取图片";
+                }
+            });
+            start(preprocess, decoded, tensors, 1, item -> {
+                FloatBuffer buffer = inputPool.acquire();
+                preprocessor.preprocess(item.image, width, height, buffer);
+                buffer.flip();
+                item.image = null;
+                item.input = buffer;
+            });
+            startInfer(infer, tensors, results, sdk, batchSize, topK, inputPool);
+            startWriter(write, results, output, jsonl, written, abort);
+            // 所有线程登记完再启动，中断时不会漏掉
+            threads.add(lister);
+            for (Stage stage : stages) {
+                threads.addAll(stage.workers);
+            }
+            for (Thread thread : threads) {
+                thread.start();
+            }
+
+            Thread reporter = new Thread(() -> {
+                try {
+                    while (true) {
+                        TimeUnit.SECONDS.sleep(10);
+                        report(stages, written.get(), System.nanoTime() - begin);
+                    }
+                } catch (InterruptedException e) {
+                    // 结束
+                }
+            }, "bulk-report");
+            reporter.setDaemon(true);
+            reporter.start();
+
+            lister.join();
+            for (Stage stage : stages) {
+                stage.join();
+            }
+            reporter.interrupt();
+            if (failure.get() != null) {
+                System.err.println("批量打分失败：" + failure.get().getMessage());
+                return 1;
+            }
+            System.out.println("=== 完成 ===");
+            report(stages, written.get(), System.nanoTime() - begin);
+            return 0;
+        } finally {
+            sdk.close();
+        }
+    }
+
+    private static int intOption(String[] args, String name, int defaultValue) {
+        for (int i = 3; i < args.length - 1; i++) {
+            if (args[i].equals(name)) {
+                return Integer.parseInt(args[i + 1]);
+            }
+        }
+        return defaultValue;
+    }
+
+    private static void report(Stage[] stages, long written, long wallNanos) {
+        double seconds = wallNanos / 1e9;
+        StringBuilder line = new StringBuilder(String.format("已处理 %d 张，%.1f 张/秒 |", written, written / Math.max(seconds, 1e-9)));
+        for (Stage stage : stages) {
+            line.append(String.format(" %s(%d线程) %.0f%%", stage.name, stage.threads, stage.utilization(wallNanos) * 100));
+        }
+        System.out.println(line);
+    }
+
+    /**
+     * 目录递归查找常见图片格式；普通文件视为图片列表，每行一个路径，空行和 # 开头的行忽略
+     */
+    private static void listImages(Path input, BlockingQueue<Item> out, int consumers, Abort abort) {
+        int index = 0;
+        try {
+            Iterator<Path> files;
+            Stream<Path> stream;
+            if (Files.isDirectory(input)) {
+                stream = Files.walk(input)
+                        .filter(Files::isRegularFile)
+                        .filter(path -> path.getFileName().toString().toLowerCase(Locale.ROOT).matches(".*\\.(jpe?g|png|bmp|gif)"))
+                        .sorted();
+            } else {
+                stream = Files.lines(input, StandardCharsets.UTF_8)
+                        .map(String::trim)
+                        .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                        .map(Path::of);
+            }
+            try (Stream<Path> paths = stream) {
+                files = paths.iterator();
+                while (files.hasNext()) {
+                    out.put(new Item(index++, files.next()));
+                }
+            }
+        } catch (IOException e) {
+            abort.fail(new IOException("读取图片列表失败：" + e.getMessage(), e));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            putEnd(out, consumers);
+        }
+    }
+
+    /**
+     * 创建一个逐张处理的阶段，线程由 run 统一启动。失败的图片带着 error 继续向下游传递
+     */
+    private static void start(Stage stage, BlockingQueue<Item> in, BlockingQueue<Item> out, int downstreamThreads, Step step) {
+        AtomicInteger running = new AtomicInteger(stage.threads);
+        for (int i = 0; i < stage.threads; i++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    Item item;
+                    while ((item = in.take()) != END) {
+                        if (item.error == null) {
+                            long t0 = System.nanoTime();
+                            try {
+                                step.apply(item);
+                            } catch (Exception e) {
+                                item.error = e.getClass().getSimpleName() + ": " + e.getMessage();
+                            }
+                            stage.busyNanos.add(System.nanoTime() - t0);
+                            stage.items.increment();
+                        }
+                        out.put(item);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    if (running.decrementAndGet() == 0) {
+                        putEnd(out, downstreamThreads);
+                    }
+                }
+            }, "bulk-" + stage.name + "-" + i);
+            stage.workers.add(worker);
+        }
+    }
+
+    /**
+     * 推理阶段：先取一张，再把队列里已经就绪的张量凑成一批，拼成连续的 [N,C,H,W] 缓冲区推理
+     */
+    private static void startInfer(Stage stage, BlockingQueue<Item> in, BlockingQueue<Item> out, AISDK sdk,
+                                   int batchSize, int topK, TensorBufferPool inputPool) {
+        Thread worker = new Thread(() -> {
+            FloatBuffer batchData = TensorBufferPool.allocateDirect(batchSize * inputPool.getCapacity());
+            List<Item> pending = new ArrayList<>(batchSize);
+            List<Item> batch = new ArrayList<>(batchSize);
+            try {
+                boolean finished = false;
+                while (!finished) {
+                    pending.add(in.take());
+                    in.drainTo(pending, batchSize - 1);
+                    for (Item item : pending) {
+                        if (item == END) {
+                            finished = true;
+                        } else if (item.error != null) {
+                            out.put(item);
+                        } else {
+                            batch.add(item);
+                        }
+                    }
+                    pending.clear();
+                    if (batch.isEmpty()) {
+                        continue;
+                    }
+
+                    long t0 = System.nanoTime();
+                    batchData.clear();
+                    for (Item item : batch) {
+                        batchData.put(item.input);
+                        inputPool.release(item.input);
+                        item.input = null;
+                    }
+                    batchData.flip();
+                    try {
+                        List<PredictionResult> predictions = sdk.predictBatch(batchData, batch.size(), topK);
+                        for (int i = 0; i < batch.size(); i++) {
+                            batch.get(i).result = predictions.get(i);
+                        }
+                    } catch (Exception e) {
+                        for (Item item : batch) {
+                            item.error = "推理失败：" + e.getMessage();
+                        }
+                    }
+                    stage.busyNanos.add(System.nanoTime() - t0);
+                    stage.items.add(batch.size());
+                    for (Item item : batch) {
+                        out.put(item);
+                    }
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                putEnd(out, 1);
+            }
+        }, "bulk-" + stage.name);
+        stage.workers.add(worker);
+    }
+
+    private static void startWriter(Stage stage, BlockingQueue<Item> in, Path output, boolean jsonl, AtomicLong written, Abort abort) {
+        Thread worker = new Thread(() -> {
+            try (BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+                if (!jsonl) {
+                    writer.write("index,path,class_id,score,top_k,error\n");
+                }
+                Item item;
+                while ((item = in.take()) != END) {
+                    long t0 = System.nanoTime();
+                    if (jsonl) {
+                        writeJson(writer, item);
+                    } else {
+                        writeCsv(writer, item);
+                    }
+                    stage.busyNanos.add(System.nanoTime() - t0);
+                    stage.items.increment();
+                    written.incrementAndGet();
+                }
+            } catch (IOException e) {
+                abort.fail(new IOException("写入结果失败：" + e.getMessage(), e));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "bulk-" + stage.name);
+        stage.workers.add(worker);
+    }
+
+    private static void writeCsv(Writer writer, Item item) throws IOException {
+        StringBuilder line = new StringBuilder();
+        line.append(item.index).append(',').append(csv(item.path.toString())).append(',');
+        if (item.result != null) {
+            StringBuilder topK = new StringBuilder();
+            for (ClassScore score : item.result.getTopK()) {
+                if (topK.length() > 0) {
+                    topK.append(';');
+                }
+                topK.append(score.getClassId()).append(':').append(score.getProbability());
+            }
+            line.append(item.result.getClassId()).append(',').append(item.result.getScore()).append(',').append(topK).append(',');
+        } else {
+            line.append(",,,").append(csv(item.error));
+        }
+        writer.write(line.append('\n').toString());
+    }
+
+    private static void writeJson(Writer writer, Item item) throws IOException {
+        StringBuilder line = new StringBuilder();
+        line.append("{\"index\":").append(item.index).append(",\"path\":").append(json(item.path.toString()));
+        if (item.result != null) {
+            line.append(",\"classId\":").append(item.result.getClassId())
+                    .append(",\"score\":").append(item.result.getScore())
+                    .append(",\"topK\":[");
+            List<ClassScore> scores = item.result.getTopK();
+            for (int i = 0; i < scores.size(); i++) {
+                if (i > 0) {
+                    line.append(',');
+                }
+                line.append("{\"classId\":").append(scores.get(i).getClassId())
+                        .append(",\"probability\":").append(scores.get(i).getProbability()).append('}');
+            }
+            line.append(']');
+        } else {
+            line.append(",\"error\":").append(json(item.error));
+        }
+        writer.write(line.append("}\n").toString());
+    }
+
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String json(String value) {
+        StringBuilder out = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        return out.append('"').toString();
+    }
+
+    private static void putEnd(BlockingQueue<Item> queue, int count) {
+        for (int i = 0; i < count; i++) {
+            try {
+                queue.put(END);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
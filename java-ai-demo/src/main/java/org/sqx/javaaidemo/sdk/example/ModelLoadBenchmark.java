@@ -0,0 +1,56 @@
+package org.sqx.javaaidemo.sdk.example;
+
+import org.sqx.javaaidemo.sdk.AISDK;
+import org.sqx.javaaidemo.sdk.model.ModelLoadStats;
+import org.sqx.javaaidemo.sdk.model.SDKConfig;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 对比不同模型加载方式的启动耗时和峰值内存。
+ * 峰值 RSS 是进程级指标，每种方式需要单独启动一个 JVM：
+ * <pre>
+ * java ... ModelLoadBenchmark models/resnet50-v2-7.onnx stream
+ * java ... ModelLoadBenchmark models/resnet50-v2-7.onnx path
+ * java ... ModelLoadBenchmark models/resnet50-v2-7.onnx mmap
+ * </pre>
+ */
+public class ModelLoadBenchmark {
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.out.println("用法：ModelLoadBenchmark <模型文件路径> <stream|path|mmap>");
+            return;
+        }
+        Path modelPath = Path.of(args[0]);
+        String mode = args[1];
+
+        AISDK sdk;
+        switch (mode) {
+            case "stream":
+                try (InputStream modelStream = Files.newInputStream(modelPath)) {
+                    sdk = AISDK.initialize(new SDKConfig.Builder(modelStream).build());
+                }
+                break;
+            case "path":
+                sdk = AISDK.initialize(new SDKConfig.Builder(modelPath).build());
+                break;
+            case "mmap":
+                sdk = AISDK.initialize(new SDKConfig.Builder(modelPath).memoryMapped(true).build());
+                break;
+            default:
+                throw new IllegalArgumentException("未知的加载方式：" + mode);
+        }
+
+        try {
+            ModelLoadStats stats = sdk.getModelLoadStats();
+            System.out.println("加载方式: " + stats.getMode());
+            System.out.println("加载耗时: " + stats.getLoadMillis() + "ms");
+            System.out.println("峰值RSS: " + stats.getPeakRssKb() / 1024 + "MB");
+            System.out.println("加载期间堆峰值: " + stats.getPeakHeapKb() / 1024 + "MB");
+        } finally {
+            sdk.close();
+        }
+    }
+}
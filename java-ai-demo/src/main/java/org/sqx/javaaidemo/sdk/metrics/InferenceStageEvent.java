@@ -0,0 +1,70 @@
+package org.sqx.javaaidemo.sdk.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 推理阶段的 JDK Flight Recorder 事件，事件的起止时间就是阶段的起止时间，在 JMC 的线程时间线上可以直接看到。
+ * 没有正在进行的 JFR 录制时 begin/commit 几乎没有开销，对象分配也会被 JIT 消除，可以常驻在热路径上。
+ * <pre>
+ * InferenceStageEvent event = InferenceStageEvent.start(Stage.PREPROCESS);
+ * ...
+ * event.finish(model, version, width, height, 1);
+ * </pre>
+ */
+@Name("org.sqx.javaaidemo.InferenceStage")
+@Label("Inference Stage")
+@Category({"AI Inference"})
+@Description("一次推理请求中的解码、预处理、ONNX Runtime 推理或后处理阶段")
+@StackTrace(false)
+public class InferenceStageEvent extends Event {
+
+    @Label("Stage")
+    @Description("decode、preprocess、inference 或 postprocess")
+    String stage;
+
+    @Label("Model")
+    String model;
+
+    @Label("Model Version")
+    long modelVersion;
+
+    @Label("Image Width")
+    @Description("原图宽度；整批推理时为模型输入宽度")
+    int imageWidth;
+
+    @Label("Image Height")
+    int imageHeight;
+
+    @Label("Batch Size")
+    int batchSize;
+
+    /**
+     * 开始一个阶段
+     */
+    public static InferenceStageEvent start(Stage stage) {
+        InferenceStageEvent event = new InferenceStageEvent();
+        event.stage = stage.tag();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * 结束阶段；只有录制中且耗时超过配置的阈值时才填充字段并提交
+     */
+    public void finish(String model, long modelVersion, int imageWidth, int imageHeight, int batchSize) {
+        end();
+        if (shouldCommit()) {
+            this.model = model;
+            this.modelVersion = modelVersion;
+            this.imageWidth = imageWidth;
+            this.imageHeight = imageHeight;
+            this.batchSize = batchSize;
+            commit();
+        }
+    }
+}
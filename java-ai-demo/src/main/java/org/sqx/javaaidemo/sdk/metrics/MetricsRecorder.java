@@ -0,0 +1,30 @@
+package org.sqx.javaaidemo.sdk.metrics;
+
+/**
+ * 推理指标的接收方，通过 SDKConfig.Builder#metricsRecorder 配置，默认不记录。
+ * 在推理线程上同步调用，实现应当足够轻量（例如写入直方图），不能阻塞
+ */
+public interface MetricsRecorder {
+
+    MetricsRecorder NOOP = timings -> {
+    };
+
+    /**
+     * 每个请求完成时调用一次，命中结果缓存的请求不调用
+     */
+    void record(StageTimings timings);
+
+    /**
+     * 每推理一个批次调用一次
+     */
+    default void recordBatch(int batchSize) {
+    }
+
+    /**
+     * SDK 内部不影响当前请求结果、但需要关注的错误，例如旧模型的会话关闭失败、优化模型缓存不可用
+     *
+     * @param event 错误类别，如 session_close、optimized_cache
+     */
+    default void recordError(String event, Throwable error) {
+    }
+}
@@ -0,0 +1,26 @@
+package org.sqx.javaaidemo.sdk.metrics;
+
+import java.util.Locale;
+
+/**
+ * 一次推理请求经过的阶段
+ */
+public enum Stage {
+    /** 图片字节解码为 BufferedImage */
+    DECODE,
+    /** 缩放、归一化并写入输入张量 */
+    PREPROCESS,
+    /** 等待推理资源：准入队列、推理线程池或凑批队列 */
+    QUEUE,
+    /** ONNX Runtime 执行，批处理时为整批的耗时 */
+    INFERENCE,
+    /** softmax、top-K 和结果组装 */
+    POSTPROCESS;
+
+    /**
+     * 小写名称，用作指标标签和响应中的键
+     */
+    public String tag() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
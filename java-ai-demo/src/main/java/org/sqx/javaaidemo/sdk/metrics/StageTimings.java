@@ -0,0 +1,63 @@
+package org.sqx.javaaidemo.sdk.metrics;
+
+import java.util.Arrays;
+
+/**
+ * 一次请求各阶段的耗时（纳秒）。没有经过的阶段为 -1，例如直接传入 BufferedImage 时没有 DECODE。
+ * 由处理请求的线程依次写入，请求完成后只读
+ */
+public class StageTimings {
+    private final long[] nanos = new long[Stage.values().length];
+    private int batchSize = 1;
+
+    public StageTimings() {
+        Arrays.fill(nanos, -1);
+    }
+
+    public void set(Stage stage, long elapsedNanos) {
+        nanos[stage.ordinal()] = elapsedNanos;
+    }
+
+    /**
+     * 阶段耗时（纳秒），没有经过该阶段时为 -1
+     */
+    public long get(Stage stage) {
+        return nanos[stage.ordinal()];
+    }
+
+    /**
+     * 各阶段耗时之和（纳秒）
+     */
+    public long getTotalNanos() {
+        long total = 0;
+        for (long value : nanos) {
+            if (value > 0) {
+                total += value;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 这张图片所在推理批次的大小，未凑批时为 1
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("StageTimings{");
+        for (Stage stage : Stage.values()) {
+            long value = nanos[stage.ordinal()];
+            if (value >= 0) {
+                sb.append(stage.tag()).append('=').append(value / 1000).append("us, ");
+            }
+        }
+        return sb.append("batchSize=").append(batchSize).append('}').toString();
+    }
+}
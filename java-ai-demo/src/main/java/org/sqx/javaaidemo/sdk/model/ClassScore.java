@@ -0,0 +1,30 @@
+package org.sqx.javaaidemo.sdk.model;
+
+/**
+ * 单个类别的预测概率
+ */
+public class ClassScore {
+    private final int classId;
+    private final float probability;
+
+    public ClassScore(int classId, float probability) {
+        this.classId = classId;
+        this.probability = probability;
+    }
+
+    public int getClassId() {
+        return classId;
+    }
+
+    public float getProbability() {
+        return probability;
+    }
+
+    @Override
+    public String toString() {
+        return "ClassScore{" +
+                "classId=" + classId +
+                ", probability=" + probability +
+                '}';
+    }
+}
@@ -0,0 +1,13 @@
+package org.sqx.javaaidemo.sdk.model;
+
+/**
+ * 模型加载方式
+ */
+public enum ModelLoadMode {
+    /** 从 InputStream 读入 byte[] 后创建会话，加载期间模型在 JVM 堆上有一份完整拷贝 */
+    STREAM,
+    /** 把文件路径交给 ONNX Runtime 直接读取 */
+    PATH,
+    /** 把模型文件内存映射为直接缓冲区后创建会话 */
+    MEMORY_MAPPED
+}
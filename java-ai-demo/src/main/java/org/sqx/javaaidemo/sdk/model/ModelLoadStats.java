@@ -0,0 +1,60 @@
+package org.sqx.javaaidemo.sdk.model;
+
+/**
+ * 模型加载统计：耗时、进程峰值常驻内存和加载期间的堆内存峰值，用于对比不同加载方式的启动开销
+ */
+public class ModelLoadStats {
+    private final ModelLoadMode mode;
+    private final boolean optimizedModel;
+    private final long loadMillis;
+    private final long peakRssKb;
+    private final long peakHeapKb;
+
+    public ModelLoadStats(ModelLoadMode mode, boolean optimizedModel, long loadMillis, long peakRssKb, long peakHeapKb) {
+        this.mode = mode;
+        this.optimizedModel = optimizedModel;
+        this.loadMillis = loadMillis;
+        this.peakRssKb = peakRssKb;
+        this.peakHeapKb = peakHeapKb;
+    }
+
+    public ModelLoadMode getMode() {
+        return mode;
+    }
+
+    /**
+     * 会话是否从优化模型缓存创建
+     */
+    public boolean isOptimizedModel() {
+        return optimizedModel;
+    }
+
+    public long getLoadMillis() {
+        return loadMillis;
+    }
+
+    /**
+     * 进程启动以来的峰值常驻内存（Linux 下读取 /proc/self/status 的 VmHWM），无法获取时为 -1
+     */
+    public long getPeakRssKb() {
+        return peakRssKb;
+    }
+
+    /**
+     * 加载期间各堆内存池峰值之和（加载前会重置峰值）
+     */
+    public long getPeakHeapKb() {
+        return peakHeapKb;
+    }
+
+    @Override
+    public String toString() {
+        return "ModelLoadStats{" +
+                "mode=" + mode +
+                ", optimizedModel=" + optimizedModel +
+                ", loadMillis=" + loadMillis +
+                ", peakRssKb=" + peakRssKb +
+                ", peakHeapKb=" + peakHeapKb +
+                '}';
+    }
+}
@@ -0,0 +1,103 @@
+package org.sqx.javaaidemo.sdk.model;
+
+/**
+ * 模型加载时从会话读取的输入输出信息，SDK 按它决定预处理尺寸、张量形状和能否凑批。
+ * 输入固定为 NCHW 布局的 3 通道 float 张量
+ */
+public class ModelSignature {
+    private final String inputName;
+    private final String outputName;
+    private final int channels;
+    private final int height;
+    private final int width;
+    private final boolean dynamicBatch;
+    private final int numClasses;
+    private final long[] outputShape;
+
+    public ModelSignature(String inputName, String outputName, int channels, int height, int width,
+                          boolean dynamicBatch, int numClasses, long[] outputShape) {
+        this.inputName = inputName;
+        this.outputName = outputName;
+        this.channels = channels;
+        this.height = height;
+        this.width = width;
+        this.dynamicBatch = dynamicBatch;
+        this.numClasses = numClasses;
+        this.outputShape = outputShape;
+    }
+
+    public String getInputName() {
+        return inputName;
+    }
+
+    public String getOutputName() {
+        return outputName;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    /**
+     * 模型输入高度；模型中为动态维度时取 SDKConfig 的 inputSize
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * 模型输入宽度；模型中为动态维度时取 SDKConfig 的 inputSize
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * batch 维是否为动态维度。为 false 时 batch 固定为 1，每次只能推理一张图片
+     */
+    public boolean isDynamicBatch() {
+        return dynamicBatch;
+    }
+
+    /**
+     * 每张图片输出的类别数，模型中为动态维度时为 -1
+     */
+    public int getNumClasses() {
+        return numClasses;
+    }
+
+    /**
+     * 单张图片推理时 float 输出的完整形状（batch 维为 1），如 [1,1000] 或 [1,1000,1,1]；
+     * 输出不是 float 或含动态维度时为 null，此时不能预先分配输出张量
+     */
+    public long[] getOutputShape() {
+        return outputShape != null ? outputShape.clone() : null;
+    }
+
+    /**
+     * 单张图片输入张量的 float 个数（C*H*W）
+     */
+    public int getImageSize() {
+        return channels * height * width;
+    }
+
+    /**
+     * 输入尺寸相同时，两个模型可以共用预处理结果和输入缓冲区
+     */
+    public boolean isInputCompatible(ModelSignature other) {
+        return channels == other.channels && height == other.height && width == other.width;
+    }
+
+    @Override
+    public String toString() {
+        return "ModelSignature{" +
+                "inputName='" + inputName + '\'' +
+                ", outputName='" + outputName + '\'' +
+                ", channels=" + channels +
+                ", height=" + height +
+                ", width=" + width +
+                ", dynamicBatch=" + dynamicBatch +
+                ", numClasses=" + numClasses +
+                '}';
+    }
+}
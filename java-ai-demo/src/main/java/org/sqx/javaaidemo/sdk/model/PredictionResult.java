@@ -1,9 +1,15 @@
 package org.sqx.javaaidemo.sdk.model;
 
+import org.sqx.javaaidemo.sdk.metrics.StageTimings;
+
+import java.util.List;
+
 public class PredictionResult {
     private int classId;
     private float score;
     private long latencyMs;
+    private List<ClassScore> topK;
+    private StageTimings timings;
 
     public int getClassId() {
         return classId;
@@ -29,12 +35,36 @@ public class PredictionResult {
         this.latencyMs = latencyMs;
     }
 
+    /**
+     * 概率最高的 K 个类别，按概率从高到低排列，第一个与 classId/score 相同
+     */
+    public List<ClassScore> getTopK() {
+        return topK;
+    }
+
+    public void setTopK(List<ClassScore> topK) {
+        this.topK = topK;
+    }
+
+    /**
+     * 各阶段的纳秒级耗时；命中结果缓存时为 null
+     */
+    public StageTimings getTimings() {
+        return timings;
+    }
+
+    public void setTimings(StageTimings timings) {
+        this.timings = timings;
+    }
+
     @Override
     public String toString() {
         return "PredictionResult{" +
                 "classId=" + classId +
                 ", score=" + score +
                 ", latencyMs=" + latencyMs +
+                ", topK=" + topK +
+                ", timings=" + timings +
                 '}';
     }
 }
\ No newline at end of file
@@ -1,30 +1,112 @@
 package org.sqx.javaaidemo.sdk.model;
 
+import ai.onnxruntime.OrtSession;
+import org.sqx.javaaidemo.sdk.metrics.MetricsRecorder;
+import org.sqx.javaaidemo.sdk.shadow.ShadowRecorder;
+
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.concurrent.Executor;
 
 public class SDKConfig {
     private final InputStream modelStream;
     private int inputWidth = 224;
     private int inputHeight = 224;
     private boolean useGPU = false;
+    private boolean batchingEnabled = false;
+    private int maxBatchSize = 8;
+    private long maxBatchWaitMillis = 2;
+    private int intraOpThreads = 0;
+    private int interOpThreads = 0;
+    private OrtSession.SessionOptions.ExecutionMode executionMode = OrtSession.SessionOptions.ExecutionMode.SEQUENTIAL;
+    private OrtSession.SessionOptions.OptLevel optimizationLevel = OrtSession.SessionOptions.OptLevel.ALL_OPT;
+    private boolean memoryArena = true;
+    private boolean memoryPattern = true;
+    private int sessionPoolSize = 1;
+    private Path modelPath;
+    private boolean memoryMapped = false;
+    private Path optimizedModelCacheDir;
+    private int predictionCacheSize = 0;
+    private long predictionCacheTtlMillis = 0;
+    private Executor asyncExecutor;
+    private int inferenceThreads = 0;
+    private float temperature = 1.0f;
+    private MetricsRecorder metricsRecorder = MetricsRecorder.NOOP;
+    private int warmupIterations = 0;
+    private Path shadowModelPath;
+    private double shadowSampleRate;
+    private ShadowRecorder shadowRecorder = ShadowRecorder.NOOP;
 
     private SDKConfig(Builder builder) {
         this.modelStream = builder.modelStream;
         this.inputWidth = builder.inputWidth;
         this.inputHeight = builder.inputHeight;
         this.useGPU = builder.useGPU;
+        this.batchingEnabled = builder.batchingEnabled;
+        this.maxBatchSize = builder.maxBatchSize;
+        this.maxBatchWaitMillis = builder.maxBatchWaitMillis;
+        this.intraOpThreads = builder.intraOpThreads;
+        this.interOpThreads = builder.interOpThreads;
+        this.executionMode = builder.executionMode;
+        this.optimizationLevel = builder.optimizationLevel;
+        this.memoryArena = builder.memoryArena;
+        this.memoryPattern = builder.memoryPattern;
+        this.sessionPoolSize = builder.sessionPoolSize;
+        this.modelPath = builder.modelPath;
+        this.memoryMapped = builder.memoryMapped;
+        this.optimizedModelCacheDir = builder.optimizedModelCacheDir;
+        this.predictionCacheSize = builder.predictionCacheSize;
+        this.predictionCacheTtlMillis = builder.predictionCacheTtlMillis;
+        this.asyncExecutor = builder.asyncExecutor;
+        this.inferenceThreads = builder.inferenceThreads;
+        this.temperature = builder.temperature;
+        this.metricsRecorder = builder.metricsRecorder;
+        this.warmupIterations = builder.warmupIterations;
+        this.shadowModelPath = builder.shadowModelPath;
+        this.shadowSampleRate = builder.shadowSampleRate;
+        this.shadowRecorder = builder.shadowRecorder;
     }
 
     public static class Builder {
-        private final InputStream modelStream;
+        private InputStream modelStream;
         private int inputWidth = 224;
         private int inputHeight = 224;
         private boolean useGPU = false;
+        private boolean batchingEnabled = false;
+        private int maxBatchSize = 8;
+        private long maxBatchWaitMillis = 2;
+        private int intraOpThreads = 0;
+        private int interOpThreads = 0;
+        private OrtSession.SessionOptions.ExecutionMode executionMode = OrtSession.SessionOptions.ExecutionMode.SEQUENTIAL;
+        private OrtSession.SessionOptions.OptLevel optimizationLevel = OrtSession.SessionOptions.OptLevel.ALL_OPT;
+        private boolean memoryArena = true;
+        private boolean memoryPattern = true;
+        private int sessionPoolSize = 1;
+        private Path modelPath;
+        private boolean memoryMapped = false;
+        private Path optimizedModelCacheDir;
+        private int predictionCacheSize = 0;
+        private long predictionCacheTtlMillis = 0;
+        private Executor asyncExecutor;
+        private int inferenceThreads = 0;
+        private float temperature = 1.0f;
+        private MetricsRecorder metricsRecorder = MetricsRecorder.NOOP;
+        private int warmupIterations = 0;
+        private Path shadowModelPath;
+        private double shadowSampleRate;
+        private ShadowRecorder shadowRecorder = ShadowRecorder.NOOP;
 
         public Builder(InputStream modelStream) {
             this.modelStream = modelStream;
         }
 
+        public Builder(Path modelPath) {
+            this.modelPath = modelPath;
+        }
+
+        /**
+         * 模型输入宽高为动态维度时使用的预处理尺寸，默认 224x224；模型固定了宽高时以模型为准
+         */
         public Builder inputSize(int width, int height) {
             this.inputWidth = width;
             this.inputHeight = height;
@@ -36,7 +118,200 @@ public class SDKConfig {
             return this;
         }
 
+        /**
+         * 开启动态批处理：并发的 predict 调用会被合并为一次 [N,3,H,W] 推理
+         * @param maxBatchSize 单批最大图片数
+         * @param maxWaitMillis 凑批最长等待时间（毫秒），超时后按当前数量直接推理
+         */
+        public Builder batching(int maxBatchSize, long maxWaitMillis) {
+            if (maxBatchSize < 1) {
+                throw new IllegalArgumentException("maxBatchSize 必须大于 0");
+            }
+            if (maxWaitMillis < 0) {
+                throw new IllegalArgumentException("maxWaitMillis 不能为负数");
+            }
+            this.batchingEnabled = true;
+            this.maxBatchSize = maxBatchSize;
+            this.maxBatchWaitMillis = maxWaitMillis;
+            return this;
+        }
+
+        /**
+         * 单个会话内算子并行的线程数，0 表示使用 ONNX Runtime 默认值（物理核数）
+         */
+        public Builder intraOpThreads(int threads) {
+            this.intraOpThreads = threads;
+            return this;
+        }
+
+        /**
+         * PARALLEL 执行模式下算子之间并行的线程数，0 表示使用 ONNX Runtime 默认值
+         */
+        public Builder interOpThreads(int threads) {
+            this.interOpThreads = threads;
+            return this;
+        }
+
+        public Builder executionMode(OrtSession.SessionOptions.ExecutionMode executionMode) {
+            this.executionMode = executionMode;
+            return this;
+        }
+
+        public Builder optimizationLevel(OrtSession.SessionOptions.OptLevel optimizationLevel) {
+            this.optimizationLevel = optimizationLevel;
+            return this;
+        }
+
+        /**
+         * 是否启用 CPU 内存池（arena），关闭后每次推理直接向系统申请内存，峰值内存更低但更慢
+         */
+        public Builder memoryArena(boolean memoryArena) {
+            this.memoryArena = memoryArena;
+            return this;
+        }
+
+        /**
+         * 是否启用内存复用规划（memory pattern），输入尺寸固定时能减少分配
+         */
+        public Builder memoryPattern(boolean memoryPattern) {
+            this.memoryPattern = memoryPattern;
+            return this;
+        }
+
+        /**
+         * 会话池大小，请求按轮询分摊到各个会话。
+         * 追求吞吐时可以配置多个单线程会话（intraOpThreads=1），追求延迟时使用一个多线程会话
+         */
+        public Builder sessionPoolSize(int sessionPoolSize) {
+            if (sessionPoolSize < 1) {
+                throw new IllegalArgumentException("sessionPoolSize 必须大于 0");
+            }
+            this.sessionPoolSize = sessionPoolSize;
+            return this;
+        }
+
+        /**
+         * 从文件加载模型：由 ONNX Runtime 直接读取文件，模型字节不会复制到 JVM 堆上
+         */
+        public Builder modelPath(Path modelPath) {
+            this.modelPath = modelPath;
+            return this;
+        }
+
+        /**
+         * 配合 modelPath 使用：把模型文件映射到内存后交给 ONNX Runtime，页面由操作系统按需加载
+         */
+        public Builder memoryMapped(boolean memoryMapped) {
+            this.memoryMapped = memoryMapped;
+            return this;
+        }
+
+        /**
+         * 优化后模型的缓存目录。首次启动时把 ONNX Runtime 图优化后的模型写入该目录，
+         * 之后以源模型和优化选项的哈希为键直接加载，跳过图优化
+         */
+        public Builder optimizedModelCacheDir(Path cacheDir) {
+            this.optimizedModelCacheDir = cacheDir;
+            return this;
+        }
+
+        /**
+         * 开启推理结果缓存，{@code AISDK.predict(byte[])} 对内容相同的图片直接返回缓存结果
+         * @param maxEntries 最多缓存的结果数
+         * @param ttlMillis 结果有效期（毫秒），0 表示不过期
+         */
+        public Builder predictionCache(int maxEntries, long ttlMillis) {
+            if (maxEntries < 1) {
+                throw new IllegalArgumentException("maxEntries 必须大于 0");
+            }
+            if (ttlMillis < 0) {
+                throw new IllegalArgumentException("ttlMillis 不能为负数");
+            }
+            this.predictionCacheSize = maxEntries;
+            this.predictionCacheTtlMillis = ttlMillis;
+            return this;
+        }
+
+        /**
+         * predictAsync 解码和预处理使用的执行器，默认在 JDK 21+ 上使用虚拟线程，否则使用 CPU 核数个线程。
+         * 传入的执行器由调用方负责关闭
+         */
+        public Builder asyncExecutor(Executor executor) {
+            this.asyncExecutor = executor;
+            return this;
+        }
+
+        /**
+         * predictAsync 执行 ONNX Runtime 推理的线程数，0 表示与会话池大小相同。
+         * 开启动态批处理时由凑批线程推理，该配置不生效
+         */
+        public Builder inferenceThreads(int threads) {
+            if (threads < 0) {
+                throw new IllegalArgumentException("inferenceThreads 不能为负数");
+            }
+            this.inferenceThreads = threads;
+            return this;
+        }
+
+        /**
+         * softmax 温度，用于概率校准：大于 1 时输出的概率更平缓，小于 1 时更尖锐，只影响概率不影响排序
+         */
+        public Builder temperature(float temperature) {
+            if (!(temperature > 0)) {
+                throw new IllegalArgumentException("temperature 必须大于 0");
+            }
+            this.temperature = temperature;
+            return this;
+        }
+
+        /**
+         * 每个请求各阶段耗时和批次大小的接收方，例如写入 Micrometer 直方图，默认不记录
+         */
+        public Builder metricsRecorder(MetricsRecorder metricsRecorder) {
+            this.metricsRecorder = metricsRecorder != null ? metricsRecorder : MetricsRecorder.NOOP;
+            return this;
+        }
+
+        /**
+         * 初始化和热更新模型时先预热：在每个会话上按每种批次大小各推理 iterations 次，
+         * 再用合成图片执行 iterations 次完整的 predict，预热完成后才返回或切换模型。0 表示不预热
+         */
+        public Builder warmup(int iterations) {
+            if (iterations < 0) {
+                throw new IllegalArgumentException("iterations 不能为负数");
+            }
+            this.warmupIterations = iterations;
+            return this;
+        }
+
+        /**
+         * 影子模型评估：按 sampleRate 抽样请求，把预处理好的输入交给影子模型在独立的低优先级线程上推理，
+         * 比较两个模型的 top-1 类别和推理耗时，结果见 AISDK#getShadowStats。影子模型的输入形状必须与线上模型相同
+         */
+        public Builder shadow(Path shadowModelPath, double sampleRate) {
+            if (!(sampleRate >= 0 && sampleRate <= 1)) {
+                throw new IllegalArgumentException("sampleRate 必须在 [0, 1] 之间");
+            }
+            this.shadowModelPath = shadowModelPath;
+            this.shadowSampleRate = sampleRate;
+            return this;
+        }
+
+        /**
+         * 影子模型每完成一次对比时调用，在影子线程上执行
+         */
+        public Builder shadowRecorder(ShadowRecorder shadowRecorder) {
+            this.shadowRecorder = shadowRecorder != null ? shadowRecorder : ShadowRecorder.NOOP;
+            return this;
+        }
+
         public SDKConfig build() {
+            if (modelStream == null && modelPath == null) {
+                throw new IllegalArgumentException("必须指定模型文件流或模型文件路径");
+            }
+            if (memoryMapped && modelPath == null) {
+                throw new IllegalArgumentException("内存映射加载需要指定 modelPath");
+            }
             return new SDKConfig(this);
         }
     }
@@ -45,6 +320,16 @@ public class SDKConfig {
         return modelStream;
     }
 
+    /**
+     * 模型加载方式：指定了 modelPath 时按文件路径或内存映射加载，否则读取模型文件流
+     */
+    public ModelLoadMode getModelLoadMode() {
+        if (modelPath == null) {
+            return ModelLoadMode.STREAM;
+        }
+        return memoryMapped ? ModelLoadMode.MEMORY_MAPPED : ModelLoadMode.PATH;
+    }
+
     public int getInputWidth() {
         return inputWidth;
     }
@@ -56,4 +341,100 @@ public class SDKConfig {
     public boolean isUseGPU() {
         return useGPU;
     }
+
+    public boolean isBatchingEnabled() {
+        return batchingEnabled;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public long getMaxBatchWaitMillis() {
+        return maxBatchWaitMillis;
+    }
+
+    public int getIntraOpThreads() {
+        return intraOpThreads;
+    }
+
+    public int getInterOpThreads() {
+        return interOpThreads;
+    }
+
+    public OrtSession.SessionOptions.ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    public OrtSession.SessionOptions.OptLevel getOptimizationLevel() {
+        return optimizationLevel;
+    }
+
+    public boolean isMemoryArena() {
+        return memoryArena;
+    }
+
+    public boolean isMemoryPattern() {
+        return memoryPattern;
+    }
+
+    public int getSessionPoolSize() {
+        return sessionPoolSize;
+    }
+
+    public Path getModelPath() {
+        return modelPath;
+    }
+
+    public boolean isMemoryMapped() {
+        return memoryMapped;
+    }
+
+    public Path getOptimizedModelCacheDir() {
+        return optimizedModelCacheDir;
+    }
+
+    public boolean isPredictionCacheEnabled() {
+        return predictionCacheSize > 0;
+    }
+
+    public int getPredictionCacheSize() {
+        return predictionCacheSize;
+    }
+
+    public long getPredictionCacheTtlMillis() {
+        return predictionCacheTtlMillis;
+    }
+
+    public Executor getAsyncExecutor() {
+        return asyncExecutor;
+    }
+
+    public int getInferenceThreads() {
+        return inferenceThreads > 0 ? inferenceThreads : sessionPoolSize;
+    }
+
+    public float getTemperature() {
+        return temperature;
+    }
+
+    public MetricsRecorder getMetricsRecorder() {
+        return metricsRecorder;
+    }
+
+    public int getWarmupIterations() {
+        return warmupIterations;
+    }
+
+    public Path getShadowModelPath() {
+        return shadowModelPath;
+    }
+
+    public double getShadowSampleRate() {
+        return shadowSampleRate;
+    }
+
+    public ShadowRecorder getShadowRecorder() {
+        return shadowRecorder;
+    }
 }
\ No newline at end of file
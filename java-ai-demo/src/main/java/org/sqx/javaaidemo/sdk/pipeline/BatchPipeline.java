@@ -0,0 +1,290 @@
+package org.sqx.javaaidemo.sdk.pipeline;
+
+import org.sqx.javaaidemo.sdk.utils.ImageDecoder;
+import org.sqx.javaaidemo.sdk.utils.TensorBufferPool;
+
+import java.awt.image.BufferedImage;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 多图片流水线：读取线程按顺序取出条目，解码线程池并行解码和预处理，调用 {@link #run} 的线程把已就绪的张量凑批推理，
+ * 每张图片的结果一产生就交给 sink。
+ * <p>
+ * 已读取但还没有输出结果的条目数不超过 maxInFlight，输入再大，内存中也只保留固定数量的图片和张量。
+ * 结果按完成顺序输出，{@link Outcome#getIndex()} 是条目在输入中的序号。
+ */
+public class BatchPipeline implements AutoCloseable {
+
+    /**
+     * 预处理回调，把图片按 CHW 顺序写入 dst
+     */
+    public interface Preprocessor {
+        void preprocess(BufferedImage image, FloatBuffer dst);
+    }
+
+    /**
+     * 批量推理回调，inputs 中每个元素是一张图片的张量（已 flip），返回值按相同顺序给出每张图片的结果
+     */
+    public interface BatchRunner<R> {
+        List<R> run(List<FloatBuffer> inputs) throws Exception;
+    }
+
+    /**
+     * 结果回调，在调用 {@link #run} 的线程上依次调用
+     */
+    public interface Sink<R> {
+        void accept(Outcome<R> outcome) throws Exception;
+    }
+
+    /**
+     * 单个条目的处理结果，成功时 result 非空，失败时 error 非空
+     */
+    public static class Outcome<R> {
+        private final int index;
+        private final String name;
+        private final R result;
+        private final String error;
+
+        Outcome(int index, String name, R result, String error) {
+            this.index = index;
+            this.name = name;
+            this.result = result;
+            this.error = error;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public R getResult() {
+            return result;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+
+    /**
+     * 解码完成的条目；读取结束时放入一个 input 和 error 都为 null、index 为条目总数的标记
+     */
+    private static final class Decoded {
+        final int index;
+        final String name;
+        final FloatBuffer input;
+        final String error;
+
+        Decoded(int index, String name, FloatBuffer input, String error) {
+            this.index = index;
+            this.name = name;
+            this.input = input;
+            this.error = error;
+        }
+
+        boolean isEnd() {
+            return input == null && error == null;
+        }
+    }
+
+    private final Preprocessor preprocessor;
+    private final ImageDecoder decoder = new ImageDecoder();
+    private final int maxBatchSize;
+    private final int maxInFlight;
+    private final TensorBufferPool inputPool;
+    private final ExecutorService decoders;
+    private final AtomicInteger readerIndex = new AtomicInteger();
+
+    /**
+     * @param imageSize    单张图片张量的 float 个数
+     * @param maxBatchSize 单次推理的最大图片数
+     * @param decodeThreads 解码和预处理线程数
+     */
+    public BatchPipeline(Preprocessor preprocessor, int imageSize, int maxBatchSize, int decodeThreads) {
+        this.preprocessor = preprocessor;
+        this.maxBatchSize = maxBatchSize;
+        // 一批在推理时，解码线程可以继续准备下一批
+        this.maxInFlight = maxBatchSize * 2 + decodeThreads;
+        this.inputPool = new TensorBufferPool(imageSize, maxInFlight);
+        AtomicInteger index = new AtomicInteger();
+        ThreadFactory factory = task -> {
+            Thread thread = new Thread(task, "batch-decode-" + index.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.decoders = Executors.newFixedThreadPool(decodeThreads, factory);
+    }
+
+    /**
+     * 处理 source 中的全部条目，所有结果交给 sink 后返回。单个条目解码失败不影响其他条目；
+     * 读取 source 失败时，已读取条目的结果照常输出，然后抛出读取异常。
+     * sink 抛出异常（例如客户端断开后写响应失败）时取消还没开始的解码任务、归还已解码条目的缓冲区，再把异常抛给调用方
+     */
+    public <R> void run(ImageEntrySource source, BatchRunner<R> runner, Sink<R> sink) throws Exception {
+        Semaphore permits = new Semaphore(maxInFlight);
+        BlockingQueue<Decoded> ready = new LinkedBlockingQueue<>();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Exception[] readFailure = new Exception[1];
+        Thread reader = new Thread(() -> read(source, permits, ready, cancelled, readFailure),
+                "batch-reader-" + readerIndex.getAndIncrement());
+        reader.setDaemon(true);
+        reader.start();
+
+        List<Decoded> batch = new ArrayList<>(maxBatchSize);
+        int total = -1;
+        int completed = 0;
+        try {
+            while (total < 0 || completed < total) {
+                batch.add(ready.take());
+                ready.drainTo(batch, maxBatchSize - 1);
+
+                List<Decoded> decoded = new ArrayList<>(batch.size());
+                for (Decoded item : batch) {
+                    if (item.isEnd()) {
+                        total = item.index;
+                    } else if (item.error != null) {
+                        sink.accept(new Outcome<>(item.index, item.name, null, item.error));
+                        completed++;
+                        permits.release();
+                    } else {
+                        decoded.add(item);
+                    }
+                }
+                batch.clear();
+                if (!decoded.isEmpty()) {
+                    completed += infer(decoded, runner, sink, permits);
+                }
+            }
+        } finally {
+            // 正常结束时所有条目都已输出，这里什么也不会释放；提前退出时还在排队或执行中的解码任务不再产出结果
+            cancelled.set(true);
+            reader.interrupt();
+            reader.join();
+            releaseAll(batch);
+            releaseReady(ready);
+        }
+        if (readFailure[0] != null) {
+            throw readFailure[0];
+        }
+    }
+
+    private <R> int infer(List<Decoded> decoded, BatchRunner<R> runner, Sink<R> sink, Semaphore permits) throws Exception {
+        List<FloatBuffer> inputs = new ArrayList<>(decoded.size());
+        for (Decoded item : decoded) {
+            inputs.add(item.input);
+        }
+        List<R> results = null;
+        String error = null;
+        try {
+            results = runner.run(inputs);
+        } catch (Exception e) {
+            error = "推理失败：" + e.getMessage();
+        } finally {
+            for (Decoded item : decoded) {
+                inputPool.release(item.input);
+            }
+        }
+        for (int i = 0; i < decoded.size(); i++) {
+            Decoded item = decoded.get(i);
+            sink.accept(new Outcome<>(item.index, item.name, results != null ? results.get(i) : null, error));
+            permits.release();
+        }
+        return decoded.size();
+    }
+
+    private void read(ImageEntrySource source, Semaphore permits, BlockingQueue<Decoded> ready, AtomicBoolean cancelled,
+                      Exception[] readFailure) {
+        int count = 0;
+        try {
+            ImageEntry entry;
+            while ((entry = source.next()) != null) {
+                permits.acquire();
+                int index = count++;
+                ImageEntry current = entry;
+                decoders.execute(() -> {
+                    if (cancelled.get()) {
+                        return;
+                    }
+                    ready.add(decode(index, current));
+                    // run 已经退出并清空过 ready 时，由解码线程自己归还
+                    if (cancelled.get()) {
+                        releaseReady(ready);
+                    }
+                });
+            }
+        } catch (InterruptedException e) {
+            // 输出端已经结束，不再读取
+        } catch (RejectedExecutionException e) {
+            readFailure[0] = new IllegalStateException("流水线已关闭", e);
+        } catch (Exception e) {
+            readFailure[0] = e;
+        } finally {
+            ready.add(new Decoded(count, null, null, null));
+        }
+    }
+
+    private void releaseAll(List<Decoded> items) {
+        for (Decoded item : items) {
+            if (item.input != null) {
+                inputPool.release(item.input);
+            }
+        }
+    }
+
+    private void releaseReady(BlockingQueue<Decoded> ready) {
+        Decoded item;
+        while ((item = ready.poll()) != null) {
+            if (item.input != null) {
+                inputPool.release(item.input);
+            }
+        }
+    }
+
+    /**
+     * 池中空闲的张量缓冲区数量，测试用
+     */
+    int idleBuffers() {
+        return inputPool.getIdleCount();
+    }
+
+    private Decoded decode(int index, ImageEntry entry) {
+        if (entry.getContent() == null) {
+            return new Decoded(index, entry.getName(), null, "图片超过 " + ImageEntrySource.MAX_ENTRY_BYTES / 1024 / 1024 + "MB");
+        }
+        FloatBuffer input = null;
+        try {
+            BufferedImage image = decoder.decode(entry.getContent());
+            if (image == null) {
+                return new Decoded(index, entry.getName(), null, "无法读取图片");
+            }
+            input = inputPool.acquire();
+            preprocessor.preprocess(image, input);
+            input.flip();
+            return new Decoded(index, entry.getName(), input, null);
+        } catch (Exception e) {
+            if (input != null) {
+                inputPool.release(input);
+            }
+            return new Decoded(index, entry.getName(), null, "预处理失败：" + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        decoders.shutdown();
+    }
+}
@@ -0,0 +1,54 @@
+package org.sqx.javaaidemo.sdk.pipeline;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 归档条目读取的公共逻辑
+ */
+final class EntryStreams {
+
+    private EntryStreams() {
+    }
+
+    /**
+     * 目录之外需要跳过的条目：隐藏文件和 macOS 打包时附带的 __MACOSX 元数据
+     */
+    static boolean ignored(String name) {
+        if (name.startsWith("__MACOSX/")) {
+            return true;
+        }
+        int slash = name.lastIndexOf('/');
+        return name.startsWith(".", slash + 1);
+    }
+
+    /**
+     * 读取 in 的全部内容，超过 {@link ImageEntrySource#MAX_ENTRY_BYTES} 时读完并丢弃剩余字节，返回 null
+     *
+     * @param sizeHint 已知的条目大小，未知时为 -1
+     */
+    static byte[] readLimited(InputStream in, long sizeHint) throws IOException {
+        byte[] chunk = new byte[64 * 1024];
+        if (sizeHint > ImageEntrySource.MAX_ENTRY_BYTES) {
+            drain(in, chunk);
+            return null;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(sizeHint > 0 ? (int) sizeHint : chunk.length);
+        int read;
+        while ((read = in.read(chunk)) != -1) {
+            if (out.size() + read > ImageEntrySource.MAX_ENTRY_BYTES) {
+                drain(in, chunk);
+                return null;
+            }
+            out.write(chunk, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static void drain(InputStream in, byte[] chunk) throws IOException {
+        while (in.read(chunk) != -1) {
+            // 丢弃
+        }
+    }
+}
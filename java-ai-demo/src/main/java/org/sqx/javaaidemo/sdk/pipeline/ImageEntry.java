@@ -0,0 +1,23 @@
+package org.sqx.javaaidemo.sdk.pipeline;
+
+/**
+ * 批量推理的一个输入：条目名称（文件名或归档内路径）和编码后的图片字节。
+ * 条目超过大小上限时 content 为 null，由流水线作为失败结果返回
+ */
+public class ImageEntry {
+    private final String name;
+    private final byte[] content;
+
+    public ImageEntry(String name, byte[] content) {
+        this.name = name;
+        this.content = content;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public byte[] getContent() {
+        return content;
+    }
+}
@@ -0,0 +1,59 @@
+package org.sqx.javaaidemo.sdk.pipeline;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * 按顺序读取图片条目，每次只在内存中保留一个条目，上传内容再大内存占用也不变
+ */
+public interface ImageEntrySource extends Closeable {
+
+    /**
+     * 单个条目的大小上限，与单文件上传限制一致
+     */
+    int MAX_ENTRY_BYTES = 10 * 1024 * 1024;
+
+    /**
+     * @return 下一个条目，没有更多条目时返回 null
+     */
+    ImageEntry next() throws IOException;
+
+    /**
+     * 读取 zip 流，跳过目录、隐藏文件和 __MACOSX 元数据
+     */
+    static ImageEntrySource zip(InputStream in) {
+        return new ZipImageSource(in);
+    }
+
+    /**
+     * 读取 tar 流（ustar / GNU 格式），只返回普通文件
+     */
+    static ImageEntrySource tar(InputStream in) {
+        return new TarImageSource(in);
+    }
+
+    /**
+     * 由调用方提供的条目序列，例如 multipart 请求中的多个文件
+     */
+    static ImageEntrySource of(Iterator<? extends EntrySupplier> entries) {
+        return new ImageEntrySource() {
+            @Override
+            public ImageEntry next() throws IOException {
+                return entries.hasNext() ? entries.next().get() : null;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    /**
+     * 延迟读取的条目，{@link #next()} 时才读取内容
+     */
+    interface EntrySupplier {
+        ImageEntry get() throws IOException;
+    }
+}
@@ -0,0 +1,165 @@
+package org.sqx.javaaidemo.sdk.pipeline;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 最小的 tar 读取实现：支持 ustar 的 prefix 字段和 GNU 长文件名（'L' 条目），只返回普通文件，
+ * 其余条目（目录、链接、pax 扩展头等）按大小跳过
+ */
+class TarImageSource implements ImageEntrySource {
+    private static final int BLOCK = 512;
+
+    private final InputStream in;
+    private final byte[] header = new byte[BLOCK];
+
+    TarImageSource(InputStream in) {
+        this.in = in;
+    }
+
+    @Override
+    public ImageEntry next() throws IOException {
+        String longName = null;
+        while (true) {
+            if (!readHeader()) {
+                return null;
+            }
+            String name = longName != null ? longName : name();
+            longName = null;
+            long size = octal(124, 12);
+            byte type = header[156];
+            long padding = (BLOCK - size % BLOCK) % BLOCK;
+
+            if (type == 'L') {
+                byte[] nameBytes = new byte[(int) size];
+                readFully(nameBytes);
+                skip(padding);
+                longName = cString(nameBytes, 0, nameBytes.length);
+                continue;
+            }
+            if ((type == '0' || type == 0) && !EntryStreams.ignored(name)) {
+                byte[] content = EntryStreams.readLimited(new BoundedStream(in, size), size);
+                skip(padding);
+                return new ImageEntry(name, content);
+            }
+            skip(size + padding);
+        }
+    }
+
+    /**
+     * 读取一个头部块，遇到归档结尾（全零块）或流结束时返回 false
+     */
+    private boolean readHeader() throws IOException {
+        int read = in.readNBytes(header, 0, BLOCK);
+        if (read == 0) {
+            return false;
+        }
+        if (read < BLOCK) {
+            throw new EOFException("tar 头部不完整");
+        }
+        for (byte b : header) {
+            if (b != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String name() {
+        String name = cString(header, 0, 100);
+        // ustar 格式把长路径拆成 prefix/name
+        if (header[257] == 'u' && header[258] == 's' && header[259] == 't' && header[260] == 'a' && header[261] == 'r') {
+            String prefix = cString(header, 345, 155);
+            if (!prefix.isEmpty()) {
+                name = prefix + "/" + name;
+            }
+        }
+        return name;
+    }
+
+    private long octal(int offset, int length) throws IOException {
+        long value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            byte b = header[i];
+            if (b == 0 || b == ' ') {
+                if (value > 0) {
+                    break;
+                }
+                continue;
+            }
+            if (b < '0' || b > '7') {
+                throw new IOException("tar 头部大小字段无效");
+            }
+            value = value * 8 + (b - '0');
+        }
+        return value;
+    }
+
+    private static String cString(byte[] bytes, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && bytes[end] != 0) {
+            end++;
+        }
+        return new String(bytes, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    private void readFully(byte[] buffer) throws IOException {
+        if (in.readNBytes(buffer, 0, buffer.length) < buffer.length) {
+            throw new EOFException("tar 条目不完整");
+        }
+    }
+
+    private void skip(long bytes) throws IOException {
+        in.skipNBytes(bytes);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * 只能读取当前条目 size 个字节的视图，关闭时不关闭底层流
+     */
+    private static final class BoundedStream extends FilterInputStream {
+        private long remaining;
+
+        BoundedStream(InputStream in, long size) {
+            super(in);
+            this.remaining = size;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = in.read();
+            if (b == -1) {
+                throw new EOFException("tar 条目不完整");
+            }
+            remaining--;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = in.read(b, off, (int) Math.min(len, remaining));
+            if (read == -1) {
+                throw new EOFException("tar 条目不完整");
+            }
+            remaining -= read;
+            return read;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
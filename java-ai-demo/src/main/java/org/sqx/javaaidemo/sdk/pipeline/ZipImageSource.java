@@ -0,0 +1,33 @@
+package org.sqx.javaaidemo.sdk.pipeline;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * 流式读取 zip，不需要先把整个归档保存下来
+ */
+class ZipImageSource implements ImageEntrySource {
+    private final ZipInputStream zip;
+
+    ZipImageSource(InputStream in) {
+        this.zip = new ZipInputStream(in);
+    }
+
+    @Override
+    public ImageEntry next() throws IOException {
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null) {
+            if (!entry.isDirectory() && !EntryStreams.ignored(entry.getName())) {
+                return new ImageEntry(entry.getName(), EntryStreams.readLimited(zip, entry.getSize()));
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        zip.close();
+    }
+}
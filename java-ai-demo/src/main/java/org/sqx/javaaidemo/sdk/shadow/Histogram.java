@@ -0,0 +1,117 @@
+package org.sqx.javaaidemo.sdk.shadow;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 固定桶的直方图，可以被多个线程同时记录。第 i 个桶统计 (upperBounds[i-1], upperBounds[i]] 内的值，
+ * 最后一个桶统计大于最大上界的值。分位数按桶上界估计，误差不超过一个桶宽
+ */
+public final class Histogram {
+    private final double[] upperBounds;
+    private final LongAdder[] counts;
+    private final DoubleAccumulator max = new DoubleAccumulator(Math::max, Double.NEGATIVE_INFINITY);
+
+    /**
+     * @param upperBounds 严格递增的桶上界
+     */
+    public Histogram(double... upperBounds) {
+        if (upperBounds.length == 0) {
+            throw new IllegalArgumentException("至少需要一个桶");
+        }
+        for (int i = 1; i < upperBounds.length; i++) {
+            if (upperBounds[i] <= upperBounds[i - 1]) {
+                throw new IllegalArgumentException("桶上界必须严格递增");
+            }
+        }
+        this.upperBounds = upperBounds.clone();
+        this.counts = new LongAdder[upperBounds.length + 1];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    public void record(double value) {
+        int bucket = Arrays.binarySearch(upperBounds, value);
+        counts[bucket >= 0 ? bucket : -bucket - 1].increment();
+        max.accumulate(value);
+    }
+
+    public Snapshot snapshot() {
+        long[] snapshot = new long[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            snapshot[i] = counts[i].sum();
+        }
+        return new Snapshot(upperBounds, snapshot, max.get());
+    }
+
+    /**
+     * 某一时刻各个桶的计数
+     */
+    public static final class Snapshot {
+        private final double[] upperBounds;
+        private final long[] counts;
+        private final double max;
+        private final long count;
+
+        Snapshot(double[] upperBounds, long[] counts, double max) {
+            this.upperBounds = upperBounds;
+            this.counts = counts;
+            this.max = max;
+            long total = 0;
+            for (long c : counts) {
+                total += c;
+            }
+            this.count = total;
+        }
+
+        public double[] getUpperBounds() {
+            return upperBounds.clone();
+        }
+
+        /**
+         * 各个桶的计数，比 {@link #getUpperBounds()} 多一个，最后一个是超过最大上界的值
+         */
+        public long[] getCounts() {
+            return counts.clone();
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * 第 q 分位数所在桶的上界；落在最后一个桶时返回记录到的最大值，没有数据时返回 0
+         */
+        public double quantile(double q) {
+            if (!(q >= 0 && q <= 1)) {
+                throw new IllegalArgumentException("q 必须在 [0, 1] 之间");
+            }
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(q * count));
+            long seen = 0;
+            for (int i = 0; i < upperBounds.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(upperBounds[i], max);
+                }
+            }
+            return max;
+        }
+
+        public double getP50() {
+            return quantile(0.5);
+        }
+
+        public double getP90() {
+            return quantile(0.9);
+        }
+
+        public double getP99() {
+            return quantile(0.99);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package org.sqx.javaaidemo.sdk.shadow;
+
+import ai.onnxruntime.NodeInfo;
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import ai.onnxruntime.TensorInfo;
+import org.sqx.javaaidemo.sdk.utils.TensorBufferPool;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 影子模型评估：按比例抽样线上请求，把已经预处理好的输入张量复制一份，交给独立的低优先级线程在影子会话上推理，
+ * 比较两个模型的 top-1 类别和推理耗时，并按直方图统计每次对比的分歧程度和耗时差的分布。
+ * <p>
+ * 线上请求只做一次抽样判断和一次内存复制（224x224 约 600KB），不解码、不等待影子推理；
+ * 影子队列已满时直接放弃这次镜像。影子会话应当与线上会话使用相同的会话选项（线程数、优化级别、模型加载方式），
+ * 耗时对比才有意义；影子线程只有一个，同一时刻最多一次影子推理，由此限制它占用的 CPU。
+ * 线程优先级在 Linux 上默认不生效，限制并发才是主要手段
+ */
+public class ShadowEvaluator implements AutoCloseable {
+
+    public static final int DEFAULT_QUEUE_SIZE = 16;
+
+    /**
+     * 耗时差（影子减线上，毫秒）的桶上界，正负对称
+     */
+    private static final double[] LATENCY_DELTA_BOUNDS_MS = {
+            -1000, -500, -200, -100, -50, -20, -10, -5, -2, -1, -0.5, -0.2, -0.1,
+            0, 0.1, 0.2, 0.5, 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000};
+
+    /**
+     * 分歧程度的桶上界，小的分歧分得更细
+     */
+    private static final double[] DISAGREEMENT_BOUNDS = {
+            0.01, 0.02, 0.05, 0.1, 0.2, 0.3, 0.4, 0.5, 0.6, 0.7, 0.8, 0.9, 1};
+
+    private final OrtEnvironment env;
+    private final OrtSession session;
+    private final String inputName;
+    private final long[] inputShape;
+    private final int inputSize;
+    private final double sampleRate;
+    private final ShadowRecorder recorder;
+    private final TensorBufferPool inputPool;
+    private final ThreadPoolExecutor executor;
+    private final LongAdder sampled = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder agreed = new LongAdder();
+    private final LongAdder primaryNanos = new LongAdder();
+    private final LongAdder shadowNanos = new LongAdder();
+    private final Histogram latencyDelta = new Histogram(LATENCY_DELTA_BOUNDS_MS);
+    private final Histogram disagreement = new Histogram(DISAGREEMENT_BOUNDS);
+
+    /**
+     * @param session    影子会话，由 ShadowEvaluator 持有并在 close 时关闭
+     * @param inputShape 单张图片的输入形状，与线上模型相同，如 [1, 3, 224, 224]
+     * @param sampleRate 镜像的请求比例，取值 [0, 1]
+     * @param queueSize  等待影子推理的最大请求数
+     * @throws IllegalArgumentException 影子模型的输入与 inputShape 不兼容
+     */
+    public ShadowEvaluator(OrtEnvironment env, OrtSession session, long[] inputShape, double sampleRate, int queueSize,
+                           ShadowRecorder recorder) throws OrtException {
+        if (!(sampleRate >= 0 && sampleRate <= 1)) {
+            throw new IllegalArgumentException("sampleRate 必须在 [0, 1] 之间");
+        }
+        if (queueSize < 1) {
+            throw new IllegalArgumentException("queueSize 必须大于 0");
+        }
+        Map.Entry<String, NodeInfo> input = session.getInputInfo().entrySet().iterator().next();
+        checkShape(((TensorInfo) input.getValue().getInfo()).getShape(), inputShape);
+        this.env = env;
+        this.session = session;
+        this.inputName = input.getKey();
+        this.inputShape = inputShape.clone();
+        int size = 1;
+        for (long dim : inputShape) {
+            size *= (int) dim;
+        }
+        this.inputSize = size;
+        this.sampleRate = sampleRate;
+        this.recorder = recorder != null ? recorder : ShadowRecorder.NOOP;
+        this.inputPool = new TensorBufferPool(inputSize, queueSize + 1);
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize), task -> {
+            Thread thread = new Thread(task, "aisdk-shadow");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    private static void checkShape(long[] shadow, long[] primary) {
+        boolean compatible = shadow.length == primary.length;
+        for (int i = 0; compatible && i < shadow.length; i++) {
+            compatible = shadow[i] < 0 || shadow[i] == primary[i];
+        }
+        if (!compatible) {
+            throw new IllegalArgumentException("影子模型的输入形状 " + Arrays.toString(shadow)
+                    + " 与线上模型 " + Arrays.toString(primary) + " 不兼容");
+        }
+    }
+
+    /**
+     * 按抽样比例决定是否镜像这次请求；镜像时同步复制 input 后立即返回，调用方随后可以复用 input
+     *
+     * @param input          线上模型使用的预处理结果，读取 position 到 limit 之间的数据，不改变 position
+     * @param primaryClassId 线上模型的 top-1 类别
+     * @param primaryNanos   线上模型的推理耗时
+     * @return 是否已提交给影子线程
+     */
+    public boolean mirror(FloatBuffer input, int primaryClassId, long primaryNanos) {
+        if (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return false;
+        }
+        if (input.remaining() != inputSize) {
+            throw new IllegalArgumentException("输入长度为 " + input.remaining() + "，应为 " + inputSize);
+        }
+        sampled.increment();
+        if (executor.getQueue().remainingCapacity() == 0) {
+            // 队列已满时连复制也省掉
+            dropped.increment();
+            return false;
+        }
+        FloatBuffer copy = inputPool.acquire();
+        copy.put(input.duplicate()).flip();
+        try {
+            executor.execute(() -> evaluate(copy, primaryClassId, primaryNanos));
+            return true;
+        } catch (RejectedExecutionException e) {
+            inputPool.release(copy);
+            dropped.increment();
+            return false;
+        }
+    }
+
+    private void evaluate(FloatBuffer input, int primaryClassId, long primary) {
+        try (OnnxTensor tensor = OnnxTensor.createTensor(env, input, inputShape)) {
+            long begin = System.nanoTime();
+            try (OrtSession.Result results = session.run(Collections.singletonMap(inputName, tensor))) {
+                long nanos = System.nanoTime() - begin;
+                FloatBuffer logits = ((OnnxTensor) results.get(0)).getFloatBuffer();
+                boolean agree = argmax(logits) == primaryClassId;
+                completed.increment();
+                if (agree) {
+                    agreed.increment();
+                }
+                primaryNanos.add(primary);
+                shadowNanos.add(nanos);
+                latencyDelta.record((nanos - primary) / 1e6);
+                disagreement.record(1 - probability(logits, primaryClassId));
+                recorder.record(primary, nanos, agree);
+            }
+        } catch (Exception e) {
+            failed.increment();
+        } finally {
+            inputPool.release(input);
+        }
+    }
+
+    private static int argmax(FloatBuffer logits) {
+        int best = 0;
+        float max = Float.NEGATIVE_INFINITY;
+        for (int i = logits.position(); i < logits.limit(); i++) {
+            float value = logits.get(i);
+            if (value > max) {
+                max = value;
+                best = i - logits.position();
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 影子模型的 softmax 概率中分给线上 top-1 类别的部分；类别超出影子模型的输出范围时为 0
+     */
+    private static double probability(FloatBuffer logits, int classId) {
+        int start = logits.position();
+        if (classId < 0 || classId >= logits.limit() - start) {
+            return 0;
+        }
+        float max = Float.NEGATIVE_INFINITY;
+        for (int i = start; i < logits.limit(); i++) {
+            max = Math.max(max, logits.get(i));
+        }
+        double sum = 0;
+        for (int i = start; i < logits.limit(); i++) {
+            sum += Math.exp(logits.get(i) - max);
+        }
+        return Math.exp(logits.get(start + classId) - max) / sum;
+    }
+
+    /**
+     * 全为 0 的统计，用于没有配置影子模型的场合
+     */
+    public static ShadowStats emptyStats() {
+        return new ShadowStats(0, 0, 0, 0, 0, 0, 0,
+                new Histogram(LATENCY_DELTA_BOUNDS_MS).snapshot(), new Histogram(DISAGREEMENT_BOUNDS).snapshot());
+    }
+
+    public ShadowStats stats() {
+        return new ShadowStats(sampled.sum(), dropped.sum(), completed.sum(), failed.sum(), agreed.sum(),
+                primaryNanos.sum(), shadowNanos.sum(), latencyDelta.snapshot(), disagreement.snapshot());
+    }
+
+    /**
+     * 等待已排队的影子推理完成后关闭影子会话
+     */
+    @Override
+    public void close() throws Exception {
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        session.close();
+    }
+}
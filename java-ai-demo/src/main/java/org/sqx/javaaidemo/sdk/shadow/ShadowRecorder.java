@@ -0,0 +1,17 @@
+package org.sqx.javaaidemo.sdk.shadow;
+
+/**
+ * 影子模型每完成一次对比后的回调，在影子线程上调用，默认不记录
+ */
+public interface ShadowRecorder {
+
+    ShadowRecorder NOOP = (primaryNanos, shadowNanos, agreed) -> {
+    };
+
+    /**
+     * @param primaryNanos 线上模型对同一张图片的推理耗时
+     * @param shadowNanos  影子模型的推理耗时
+     * @param agreed       两个模型的 top-1 类别相同
+     */
+    void record(long primaryNanos, long shadowNanos, boolean agreed);
+}
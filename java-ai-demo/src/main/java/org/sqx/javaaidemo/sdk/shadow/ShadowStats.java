@@ -0,0 +1,107 @@
+package org.sqx.javaaidemo.sdk.shadow;
+
+/**
+ * 影子模型评估的累计计数，以及耗时差和分歧程度的分布
+ */
+public class ShadowStats {
+    private final long sampled;
+    private final long dropped;
+    private final long completed;
+    private final long failed;
+    private final long agreed;
+    private final long primaryNanos;
+    private final long shadowNanos;
+    private final Histogram.Snapshot latencyDelta;
+    private final Histogram.Snapshot disagreement;
+
+    public ShadowStats(long sampled, long dropped, long completed, long failed, long agreed, long primaryNanos, long shadowNanos,
+                       Histogram.Snapshot latencyDelta, Histogram.Snapshot disagreement) {
+        this.sampled = sampled;
+        this.dropped = dropped;
+        this.completed = completed;
+        this.failed = failed;
+        this.agreed = agreed;
+        this.primaryNanos = primaryNanos;
+        this.shadowNanos = shadowNanos;
+        this.latencyDelta = latencyDelta;
+        this.disagreement = disagreement;
+    }
+
+    /**
+     * 被抽样镜像的请求数
+     */
+    public long getSampled() {
+        return sampled;
+    }
+
+    /**
+     * 影子队列已满而放弃的请求数
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * 影子模型推理完成并参与对比的请求数
+     */
+    public long getCompleted() {
+        return completed;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public long getAgreed() {
+        return agreed;
+    }
+
+    /**
+     * 影子模型与线上模型 top-1 类别一致的比例
+     */
+    public double getAgreementRate() {
+        return completed == 0 ? 0 : (double) agreed / completed;
+    }
+
+    /**
+     * 参与对比的请求上线上模型的平均推理耗时（毫秒）
+     */
+    public double getMeanPrimaryLatencyMs() {
+        return completed == 0 ? 0 : primaryNanos / 1e6 / completed;
+    }
+
+    public double getMeanShadowLatencyMs() {
+        return completed == 0 ? 0 : shadowNanos / 1e6 / completed;
+    }
+
+    /**
+     * 同一请求上影子模型减线上模型的推理耗时（毫秒）的分布，负数表示影子模型更快。
+     * 均值相近时尾部可能差别很大，上线前应比较 p99
+     */
+    public Histogram.Snapshot getLatencyDeltaMs() {
+        return latencyDelta;
+    }
+
+    /**
+     * 每次对比的分歧程度的分布：1 减去影子模型 softmax 后分给线上 top-1 类别的概率，0 表示影子模型完全认同。
+     * top-1 一致率相同时，这个分布能区分“勉强一致”和“高度一致”
+     */
+    public Histogram.Snapshot getDisagreement() {
+        return disagreement;
+    }
+
+    @Override
+    public String toString() {
+        return "ShadowStats{" +
+                "sampled=" + sampled +
+                ", dropped=" + dropped +
+                ", completed=" + completed +
+                ", failed=" + failed +
+                ", agreementRate=" + getAgreementRate() +
+                ", meanPrimaryLatencyMs=" + getMeanPrimaryLatencyMs() +
+                ", meanShadowLatencyMs=" + getMeanShadowLatencyMs() +
+                ", latencyDeltaP99Ms=" + latencyDelta.getP99() +
+                ", disagreementP99=" + disagreement.getP99() +
+                '}';
+    }
+}
@@ -0,0 +1,103 @@
+package org.sqx.javaaidemo.sdk.tabular;
+
+import org.sqx.javaaidemo.sdk.utils.TensorBufferPool;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * 表格打分的紧凑二进制格式，全部为小端序：
+ * <pre>
+ * 请求 application/x-feature-columns：int32 行数 N，int32 特征数 F，随后 F 列，每列 N 个 float32
+ * 响应 application/x-feature-scores ：int32 行数 N，int32 类别数 C，N 个 int32 类别，随后 N×C 个 float32 概率（按行）
+ * </pre>
+ * 按列存放便于上游直接从列式存储（Arrow、Parquet）导出，读取时转置为模型需要的行优先 [N,F]
+ */
+public final class FeatureColumns {
+
+    public static final String REQUEST_TYPE = "application/x-feature-columns";
+    public static final String RESPONSE_TYPE = "application/x-feature-scores";
+
+    private static final int WRITE_BUFFER = 64 * 1024;
+
+    private FeatureColumns() {
+    }
+
+    /**
+     * 读取按列存放的特征，返回行优先、native 字节序的直接缓冲区，可以直接交给 {@link TabularScorer#score}
+     *
+     * @param featureCount 模型的特征数，请求中的特征数必须与之相同
+     * @param maxRows      行数上限
+     */
+    public static FloatBuffer read(InputStream in, int featureCount, int maxRows) throws IOException {
+        ByteBuffer header = ByteBuffer.wrap(in.readNBytes(8)).order(ByteOrder.LITTLE_ENDIAN);
+        if (header.remaining() < 8) {
+            throw new EOFException("请求体不足 8 字节的头部");
+        }
+        int rows = header.getInt();
+        int features = header.getInt();
+        if (rows < 1 || rows > maxRows) {
+            throw new IllegalArgumentException("行数 " + rows + " 超出范围 1~" + maxRows);
+        }
+        if (features != featureCount) {
+            throw new IllegalArgumentException("特征数为 " + features + "，模型需要 " + featureCount);
+        }
+        if ((long) rows * features > Integer.MAX_VALUE / Float.BYTES) {
+            throw new IllegalArgumentException("请求过大：" + rows + " 行 × " + features + " 列");
+        }
+
+        ByteBuffer columns = ByteBuffer.allocateDirect(rows * features * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        ReadableByteChannel channel = Channels.newChannel(in);
+        while (columns.hasRemaining()) {
+            if (channel.read(columns) < 0) {
+                throw new EOFException("请求体长度不足，需要 " + rows + " 行 × " + features + " 列");
+            }
+        }
+        columns.flip();
+        FloatBuffer source = columns.asFloatBuffer();
+        FloatBuffer rowMajor = TensorBufferPool.allocateDirect(rows * features);
+        // 顺序读取每一列，按步长 F 写入行优先的位置
+        for (int f = 0; f < features; f++) {
+            int base = f * rows;
+            for (int r = 0; r < rows; r++) {
+                rowMajor.put(r * features + f, source.get(base + r));
+            }
+        }
+        return rowMajor;
+    }
+
+    public static void write(TabularScores scores, OutputStream out) throws IOException {
+        int rows = scores.getRowCount();
+        int classes = scores.getClassCount();
+        ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(rows).putInt(classes);
+        for (int r = 0; r < rows; r++) {
+            if (buffer.remaining() < Integer.BYTES) {
+                flush(buffer, out);
+            }
+            buffer.putInt(scores.getClassId(r));
+        }
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < classes; c++) {
+                if (buffer.remaining() < Float.BYTES) {
+                    flush(buffer, out);
+                }
+                buffer.putFloat(scores.getProbability(r, c));
+            }
+        }
+        flush(buffer, out);
+        out.flush();
+    }
+
+    private static void flush(ByteBuffer buffer, OutputStream out) throws IOException {
+        out.write(buffer.array(), 0, buffer.position());
+        buffer.clear();
+    }
+}
@@ -0,0 +1,173 @@
+package org.sqx.javaaidemo.sdk.tabular;
+
+import ai.onnxruntime.NodeInfo;
+import ai.onnxruntime.OnnxJavaType;
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import ai.onnxruntime.TensorInfo;
+import org.sqx.javaaidemo.sdk.utils.TensorBufferPool;
+
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 表格特征模型（逻辑回归、树模型等）的批量打分：把多行特征打包成一个 [N,F] 张量一次推理。
+ * <p>
+ * 输入取第一个 2 维 float 张量，特征数 F 必须固定；输出取第一个 float 张量，按已经归一化的概率解释：
+ * [N] 或 [N,1] 视为二分类中正类的概率（例如 Sigmoid 输出），[N,C] 视为每个类别的概率。
+ * 行数很多时按 chunkRows 分块推理，输入缓冲区池化复用；可以被多个线程同时调用
+ */
+public class TabularScorer implements AutoCloseable {
+    private final OrtEnvironment env;
+    private final OrtSession session;
+    private final String inputName;
+    private final int featureCount;
+    private final int classCount;
+    private final int chunkRows;
+    private final TensorBufferPool inputPool;
+
+    /**
+     * @param chunkRows 单次推理的最大行数，batch 维固定为 1 的模型逐行推理
+     */
+    public TabularScorer(OrtEnvironment env, OrtSession session, int chunkRows) throws OrtException {
+        if (chunkRows < 1) {
+            throw new IllegalArgumentException("chunkRows 必须大于 0");
+        }
+        this.env = env;
+        this.session = session;
+        String name = null;
+        long[] shape = null;
+        for (Map.Entry<String, NodeInfo> entry : session.getInputInfo().entrySet()) {
+            if (entry.getValue().getInfo() instanceof TensorInfo) {
+                TensorInfo info = (TensorInfo) entry.getValue().getInfo();
+                if (info.type == OnnxJavaType.FLOAT && info.getShape().length == 2) {
+                    name = entry.getKey();
+                    shape = info.getShape();
+                    break;
+                }
+            }
+        }
+        if (name == null) {
+            throw new IllegalArgumentException("模型没有 2 维 float 输入，输入为 " + session.getInputInfo().keySet());
+        }
+        if (shape[1] < 1) {
+            throw new IllegalArgumentException("模型输入 " + name + " 的特征数不固定");
+        }
+        if (shape[0] > 1) {
+            throw new IllegalArgumentException("不支持 batch 维固定为 " + shape[0] + " 的模型");
+        }
+        this.inputName = name;
+        this.featureCount = (int) shape[1];
+        this.classCount = classCount(session);
+        this.chunkRows = shape[0] == 1 ? 1 : chunkRows;
+        this.inputPool = new TensorBufferPool(this.chunkRows * featureCount, Runtime.getRuntime().availableProcessors());
+    }
+
+    private static int classCount(OrtSession session) throws OrtException {
+        NodeInfo output = session.getOutputInfo().values().iterator().next();
+        if (!(output.getInfo() instanceof TensorInfo) || ((TensorInfo) output.getInfo()).type != OnnxJavaType.FLOAT) {
+            throw new IllegalArgumentException("模型的第一个输出 " + output.getName() + " 不是 float 张量");
+        }
+        long[] shape = ((TensorInfo) output.getInfo()).getShape();
+        if (shape.length == 1 || (shape.length == 2 && shape[1] == 1)) {
+            return 2;
+        }
+        if (shape.length == 2) {
+            return shape[1] > 0 ? (int) shape[1] : -1;
+        }
+        throw new IllegalArgumentException("模型输出 " + output.getName() + " 的形状应为 [N] 或 [N,C]");
+    }
+
+    public int getFeatureCount() {
+        return featureCount;
+    }
+
+    /**
+     * 类别数，单列输出的二分类模型为 2；输出类别维是动态维度时为 -1，以 {@link TabularScores#getClassCount()} 为准
+     */
+    public int getClassCount() {
+        return classCount;
+    }
+
+    public String getInputName() {
+        return inputName;
+    }
+
+    /**
+     * @param rows position 到 limit 之间按行存放 rowCount 行、每行 {@link #getFeatureCount()} 个特征；
+     *             native 字节序的直接缓冲区直接交给 ORT，不再复制
+     */
+    public TabularScores score(FloatBuffer rows, int rowCount) throws OrtException {
+        if (rowCount < 1 || rows.remaining() != rowCount * featureCount) {
+            throw new IllegalArgumentException("rows 的长度与 rowCount × 特征数 " + featureCount + " 不一致");
+        }
+        boolean zeroCopy = rows.isDirect() && rows.order() == ByteOrder.nativeOrder();
+        int[] classIds = new int[rowCount];
+        float[] probabilities = null;
+        int classes = classCount;
+        for (int offset = 0; offset < rowCount; offset += chunkRows) {
+            int count = Math.min(chunkRows, rowCount - offset);
+            FloatBuffer chunk = rows.duplicate();
+            chunk.position(rows.position() + offset * featureCount).limit(rows.position() + (offset + count) * featureCount);
+            FloatBuffer input = zeroCopy ? chunk : inputPool.acquire();
+            try {
+                if (!zeroCopy) {
+                    input.put(chunk).flip();
+                }
+                long[] shape = {count, featureCount};
+                try (OnnxTensor tensor = OnnxTensor.createTensor(env, input, shape);
+                     OrtSession.Result results = session.run(Collections.singletonMap(inputName, tensor))) {
+                    FloatBuffer output = ((OnnxTensor) results.get(0)).getFloatBuffer();
+                    int columns = output.remaining() / count;
+                    if (probabilities == null) {
+                        classes = columns == 1 ? 2 : columns;
+                        probabilities = new float[rowCount * classes];
+                    }
+                    if (columns == 1) {
+                        readBinary(output, count, offset, classIds, probabilities);
+                    } else {
+                        readMulticlass(output, count, columns, offset, classIds, probabilities);
+                    }
+                }
+            } finally {
+                if (!zeroCopy) {
+                    inputPool.release(input);
+                }
+            }
+        }
+        return new TabularScores(rowCount, classes, classIds, probabilities);
+    }
+
+    private static void readBinary(FloatBuffer output, int count, int offset, int[] classIds, float[] probabilities) {
+        for (int i = 0; i < count; i++) {
+            float positive = output.get();
+            int row = offset + i;
+            classIds[row] = positive >= 0.5f ? 1 : 0;
+            probabilities[row * 2] = 1 - positive;
+            probabilities[row * 2 + 1] = positive;
+        }
+    }
+
+    private static void readMulticlass(FloatBuffer output, int count, int classes, int offset, int[] classIds, float[] probabilities) {
+        output.get(probabilities, offset * classes, count * classes);
+        for (int i = 0; i < count; i++) {
+            int base = (offset + i) * classes;
+            int best = 0;
+            for (int c = 1; c < classes; c++) {
+                if (probabilities[base + c] > probabilities[base + best]) {
+                    best = c;
+                }
+            }
+            classIds[offset + i] = best;
+        }
+    }
+
+    @Override
+    public void close() throws OrtException {
+        session.close();
+    }
+}
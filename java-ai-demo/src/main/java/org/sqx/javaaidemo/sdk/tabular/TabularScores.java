@@ -0,0 +1,52 @@
+package org.sqx.javaaidemo.sdk.tabular;
+
+import java.util.Arrays;
+
+/**
+ * 一批行的打分结果，按列存放避免为每一行创建对象：classIds[i] 为第 i 行的类别，
+ * probabilities 按行连续存放，第 i 行第 c 类的概率在 i * classCount + c
+ */
+public class TabularScores {
+    private final int rowCount;
+    private final int classCount;
+    private final int[] classIds;
+    private final float[] probabilities;
+
+    public TabularScores(int rowCount, int classCount, int[] classIds, float[] probabilities) {
+        this.rowCount = rowCount;
+        this.classCount = classCount;
+        this.classIds = classIds;
+        this.probabilities = probabilities;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getClassCount() {
+        return classCount;
+    }
+
+    public int getClassId(int row) {
+        return classIds[row];
+    }
+
+    public float getProbability(int row, int classId) {
+        return probabilities[row * classCount + classId];
+    }
+
+    /**
+     * 第 row 行各类别的概率（副本）
+     */
+    public float[] getProbabilities(int row) {
+        return Arrays.copyOfRange(probabilities, row * classCount, (row + 1) * classCount);
+    }
+
+    @Override
+    public String toString() {
+        return "TabularScores{" +
+                "rowCount=" + rowCount +
+                ", classCount=" + classCount +
+                '}';
+    }
+}
@@ -0,0 +1,69 @@
+package org.sqx.javaaidemo.sdk.utils;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * 按模型输入尺寸解码图片：先只读图片头拿到原始尺寸，再用 ImageReadParam.setSourceSubsampling
+ * 按整数倍隔行隔列解码，得到仍不小于目标尺寸的最小图片，最后由 ImagePreprocessor 缩放到目标尺寸。
+ * <p>
+ * 一张 4000x3000 的照片缩放到 224x224 时按 13 倍采样，解码出的图片为 308x231，
+ * 既省去了大部分颜色转换和像素写入，也不再需要 48MB 的全尺寸 BufferedImage。
+ * 原图宽或高小于目标尺寸两倍时按原尺寸解码，与 ImageIO.read 结果一致。
+ */
+public class ImageDecoder {
+    private static final int DEFAULT_WIDTH = 224;
+    private static final int DEFAULT_HEIGHT = 224;
+
+    private final int targetWidth;
+    private final int targetHeight;
+
+    public ImageDecoder() {
+        this(DEFAULT_WIDTH, DEFAULT_HEIGHT);
+    }
+
+    public ImageDecoder(int targetWidth, int targetHeight) {
+        if (targetWidth <= 0 || targetHeight <= 0) {
+            throw new IllegalArgumentException("目标尺寸必须大于 0");
+        }
+        this.targetWidth = targetWidth;
+        this.targetHeight = targetHeight;
+    }
+
+    /**
+     * 解码编码后的图片字节（JPEG/PNG 等），没有可用的解码器时与 ImageIO.read 一样返回 null
+     */
+    public BufferedImage decode(byte[] content) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(content))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = subsampling(reader.getWidth(0), reader.getHeight(0));
+                if (step > 1) {
+                    param.setSourceSubsampling(step, step, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * 两个方向使用同一个采样间隔，保持宽高比，且采样后宽高都不小于目标尺寸
+     */
+    int subsampling(int width, int height) {
+        return Math.max(1, Math.min(width / targetWidth, height / targetHeight));
+    }
+}
@@ -1,7 +1,8 @@
 package org.sqx.javaaidemo.sdk.utils;
 
-import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
 
 public class ImagePreprocessor {
     private static final int DEFAULT_WIDTH = 224;
@@ -9,44 +10,49 @@ public class ImagePreprocessor {
     private static final float[] MEANS = {0.485f, 0.456f, 0.406f};
     private static final float[] STDS = {0.229f, 0.224f, 0.225f};
 
+    private final RasterPreprocessor engine;
+
+    public ImagePreprocessor() {
+        this(RasterPreprocessor.Resampling.AREA);
+    }
+
+    public ImagePreprocessor(RasterPreprocessor.Resampling resampling) {
+        this.engine = new RasterPreprocessor(MEANS, STDS, resampling);
+    }
+
     public float[] preprocess(BufferedImage img) {
         return preprocess(img, DEFAULT_WIDTH, DEFAULT_HEIGHT);
     }
 
     public float[] preprocess(BufferedImage img, int width, int height) {
-        // 调整图片大小
-        BufferedImage resized = resizeImage(img, width, height);
-        
-        // 预处理并返回float数组
-        return normalize(resized, width, height);
+        float[] input = new float[3 * width * height];
+        preprocess(img, width, height, FloatBuffer.wrap(input));
+        return input;
     }
 
-    private BufferedImage resizeImage(BufferedImage img, int width, int height) {
-        Image scaled = img.getScaledInstance(width, height, Image.SCALE_SMOOTH);
-        BufferedImage resized = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-        Graphics2D g2d = resized.createGraphics();
-        g2d.drawImage(scaled, 0, 0, null);
-        g2d.dispose();
-        return resized;
+    public void preprocess(BufferedImage img, FloatBuffer dst) {
+        preprocess(img, DEFAULT_WIDTH, DEFAULT_HEIGHT, dst);
     }
 
-    private float[] normalize(BufferedImage img, int width, int height) {
-        float[] input = new float[3 * width * height];
-        
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                int rgb = img.getRGB(x, y);
-                int r = (rgb >> 16) & 0xFF;
-                int g = (rgb >> 8) & 0xFF;
-                int b = rgb & 0xFF;
-                
-                // 归一化并应用均值和标准差
-                input[y * width + x] = ((r / 255.0f - MEANS[0]) / STDS[0]);
-                input[width * height + y * width + x] = ((g / 255.0f - MEANS[1]) / STDS[1]);
-                input[2 * width * height + y * width + x] = ((b / 255.0f - MEANS[2]) / STDS[2]);
-            }
-        }
-        
-        return input;
+    /**
+     * 预处理结果按 CHW 顺序从 dst 当前 position 开始写入 3*width*height 个 float，写完后 position 后移
+     */
+    public void preprocess(BufferedImage img, int width, int height, FloatBuffer dst) {
+        // 缩放、HWC→CHW、归一化在一次遍历中完成
+        engine.preprocess(img, width, height, dst);
+    }
+
+    /**
+     * 同上，临时数组取自 scratch，见 {@link RasterPreprocessor.Scratch}
+     */
+    public void preprocess(BufferedImage img, int width, int height, FloatBuffer dst, RasterPreprocessor.Scratch scratch) {
+        engine.preprocess(img, width, height, dst, scratch);
+    }
+
+    /**
+     * 已经是 width x height 的 RGB 像素（uint8，HWC）只做归一化和 HWC→CHW，见 {@link RasterPreprocessor#normalizeRgb}
+     */
+    public void preprocessRgb(ByteBuffer hwc, int width, int height, FloatBuffer dst) {
+        engine.normalizeRgb(hwc, width, height, dst);
     }
-}
\ No newline at end of file
+}
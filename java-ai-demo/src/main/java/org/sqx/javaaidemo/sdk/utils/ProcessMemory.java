@@ -0,0 +1,60 @@
+package org.sqx.javaaidemo.sdk.utils;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * 进程内存指标：峰值常驻内存（RSS）和堆内存池峰值
+ */
+public final class ProcessMemory {
+    private static final Path PROC_STATUS = Path.of("/proc/self/status");
+
+    private ProcessMemory() {
+    }
+
+    /**
+     * 进程启动以来的峰值常驻内存（KB），读取 /proc/self/status 的 VmHWM，非 Linux 平台返回 -1
+     */
+    public static long peakRssKb() {
+        try {
+            List<String> lines = Files.readAllLines(PROC_STATUS);
+            for (String line : lines) {
+                if (line.startsWith("VmHWM:")) {
+                    return Long.parseLong(line.substring("VmHWM:".length()).replace("kB", "").trim());
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // 非 Linux 或无权限读取时忽略
+        }
+        return -1;
+    }
+
+    /**
+     * 重置所有堆内存池的峰值统计
+     */
+    public static void resetHeapPeaks() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * 自上次 {@link #resetHeapPeaks()} 以来各堆内存池峰值之和（KB）
+     */
+    public static long peakHeapKb() {
+        long total = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                total += pool.getPeakUsage().getUsed();
+            }
+        }
+        return total / 1024;
+    }
+}
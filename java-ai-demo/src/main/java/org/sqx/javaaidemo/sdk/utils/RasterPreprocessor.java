@@ -0,0 +1,457 @@
+package org.sqx.javaaidemo.sdk.utils;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * 基于 Raster 的预处理引擎：直接读取 DataBuffer，一次遍历完成缩放、HWC→CHW 转换和均值/方差归一化。
+ * <p>
+ * 缩放按行可分离：每个源行先解码为 0xRRGGBB，通过每通道 256 项查找表换算成归一化值后做水平滤波，
+ * 再按垂直权重累加到输出行。归一化是线性变换，先查表再加权与先加权再归一化结果一致。
+ * 支持 TYPE_INT_RGB/ARGB/BGR、TYPE_3BYTE_BGR/4BYTE_ABGR、TYPE_BYTE_GRAY，其余类型按行走 getRGB 兜底。
+ * 带透明通道的图片在解码时合成到黑色背景上，与原先 drawImage 到 TYPE_INT_RGB 画布的结果一致。
+ */
+public class RasterPreprocessor {
+
+    public enum Resampling {
+        /** 区域平均，与 Image.SCALE_SMOOTH 的结果一致，缩小图片时不产生混叠 */
+        AREA,
+        /** 双线性插值，每个输出像素只读 4 个源像素，速度更快 */
+        BILINEAR
+    }
+
+    private static final int[] GRAY_TO_SRGB = grayToSrgbTable();
+
+    /**
+     * 不带 scratch 的重载使用的每线程临时数组，所有实例共用；权重表按重采样方式和尺寸校验，不会混用
+     */
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final float[][] lut = new float[3][256];
+    private final Resampling resampling;
+
+    public RasterPreprocessor(float[] means, float[] stds, Resampling resampling) {
+        this.resampling = resampling;
+        for (int c = 0; c < 3; c++) {
+            for (int v = 0; v < 256; v++) {
+                lut[c][v] = (v / 255.0f - means[c]) / stds[c];
+            }
+        }
+    }
+
+    /**
+     * 缩放到 width x height 并按 CHW 顺序从 dst 当前 position 开始写入，写完后 position 后移 3*width*height。
+     * 临时数组取自当前线程的 {@link Scratch}
+     */
+    public void preprocess(BufferedImage img, int width, int height, FloatBuffer dst) {
+        preprocess(img, width, height, dst, SCRATCH.get());
+    }
+
+    /**
+     * 同上，权重表和行缓冲取自 scratch。连续处理尺寸相同的图片时不再分配任何数组
+     */
+    public void preprocess(BufferedImage img, int width, int height, FloatBuffer dst, Scratch scratch) {
+        int srcWidth = img.getWidth();
+        int srcHeight = img.getHeight();
+        Taps horizontal = scratch.horizontal(this, srcWidth, width);
+        Taps vertical = scratch.vertical(this, srcHeight, height);
+        RowCache rows = scratch.rows.reset(this, rowReader(img), horizontal, srcWidth, width);
+        float[] acc = scratch.acc(3 * width);
+
+        int base = dst.position();
+        int plane = width * height;
+        for (int oy = 0; oy < height; oy++) {
+            int start = vertical.start[oy];
+            int count = vertical.count[oy];
+            float[] result;
+            if (count == 1) {
+                result = rows.get(start);
+            } else {
+                Arrays.fill(acc, 0f);
+                for (int t = 0; t < count; t++) {
+                    float w = vertical.weights[vertical.offset[oy] + t];
+                    float[] row = rows.get(start + t);
+                    for (int i = 0; i < acc.length; i++) {
+                        acc[i] += w * row[i];
+                    }
+                }
+                result = acc;
+            }
+            int rowBase = base + oy * width;
+            dst.put(rowBase, result, 0, width);
+            dst.put(rowBase + plane, result, width, width);
+            dst.put(rowBase + 2 * plane, result, 2 * width, width);
+        }
+        dst.position(base + 3 * plane);
+    }
+
+    /**
+     * 已经是目标尺寸的 RGB 像素（uint8，HWC，每像素 3 字节）只做 HWC→CHW 和归一化，不缩放。
+     * 从 src 当前 position 读取 3*width*height 字节，写入 dst 当前 position 起的 3*width*height 个 float，两者的 position 都后移
+     */
+    public void normalizeRgb(ByteBuffer src, int width, int height, FloatBuffer dst) {
+        float[] lutR = lut[0];
+        float[] lutG = lut[1];
+        float[] lutB = lut[2];
+        int in = src.position();
+        int base = dst.position();
+        int plane = width * height;
+        for (int i = 0; i < plane; i++) {
+            dst.put(base + i, lutR[src.get(in++) & 0xFF]);
+            dst.put(base + plane + i, lutG[src.get(in++) & 0xFF]);
+            dst.put(base + 2 * plane + i, lutB[src.get(in++) & 0xFF]);
+        }
+        src.position(in);
+        dst.position(base + 3 * plane);
+    }
+
+    /**
+     * 预处理用到的临时数组：水平/垂直权重表、源行和滤波行缓冲。源尺寸、目标尺寸和重采样方式不变时直接复用，
+     * 变化时按需重新分配。不是线程安全的，同一时刻只能被一个线程使用
+     */
+    public static final class Scratch {
+        private final RowCache rows = new RowCache();
+        private Taps horizontal;
+        private Taps vertical;
+        private float[] acc = new float[0];
+
+        Taps horizontal(RasterPreprocessor owner, int src, int dst) {
+            if (!matches(horizontal, owner, src, dst)) {
+                horizontal = owner.taps(src, dst);
+            }
+            return horizontal;
+        }
+
+        Taps vertical(RasterPreprocessor owner, int src, int dst) {
+            if (!matches(vertical, owner, src, dst)) {
+                vertical = owner.taps(src, dst);
+            }
+            return vertical;
+        }
+
+        float[] acc(int length) {
+            if (acc.length != length) {
+                acc = new float[length];
+            }
+            return acc;
+        }
+
+        private static boolean matches(Taps taps, RasterPreprocessor owner, int src, int dst) {
+            return taps != null && taps.resampling == owner.resampling && taps.src == src && taps.start.length == dst;
+        }
+    }
+
+    /**
+     * 源行水平滤波结果的缓存。相邻输出行会共享边界源行，保留最近使用的两行即可避免重复解码
+     */
+    private static final class RowCache {
+        private RasterPreprocessor owner;
+        private RowReader reader;
+        private Taps horizontal;
+        private int width;
+        private int[] srcRow = new int[0];
+        private float[][] rows = new float[2][0];
+        private final int[] index = {-1, -1};
+        private int lastUsed;
+
+        RowCache reset(RasterPreprocessor owner, RowReader reader, Taps horizontal, int srcWidth, int width) {
+            this.owner = owner;
+            this.reader = reader;
+            this.horizontal = horizontal;
+            this.width = width;
+            if (srcRow.length < srcWidth) {
+                srcRow = new int[srcWidth];
+            }
+            if (rows[0].length != 3 * width) {
+                rows = new float[2][3 * width];
+            }
+            index[0] = -1;
+            index[1] = -1;
+            lastUsed = 0;
+            return this;
+        }
+
+        float[] get(int sy) {
+            int slot;
+            if (index[0] == sy) {
+                slot = 0;
+            } else if (index[1] == sy) {
+                slot = 1;
+            } else {
+                slot = 1 - lastUsed;
+                reader.read(sy, srcRow);
+                owner.filterRow(srcRow, horizontal, rows[slot], width);
+                index[slot] = sy;
+            }
+            lastUsed = slot;
+            return rows[slot];
+        }
+    }
+
+    /**
+     * 对一行 0xRRGGBB 像素做水平滤波，输出按 R、G、B 分段存放在 out 中
+     */
+    private void filterRow(int[] srcRow, Taps horizontal, float[] out, int width) {
+        float[] lutR = lut[0];
+        float[] lutG = lut[1];
+        float[] lutB = lut[2];
+        for (int ox = 0; ox < width; ox++) {
+            int start = horizontal.start[ox];
+            int count = horizontal.count[ox];
+            int wOffset = horizontal.offset[ox];
+            float r = 0f;
+            float g = 0f;
+            float b = 0f;
+            for (int t = 0; t < count; t++) {
+                int p = srcRow[start + t];
+                float w = horizontal.weights[wOffset + t];
+                r += w * lutR[(p >> 16) & 0xFF];
+                g += w * lutG[(p >> 8) & 0xFF];
+                b += w * lutB[p & 0xFF];
+            }
+            out[ox] = r;
+            out[width + ox] = g;
+            out[2 * width + ox] = b;
+        }
+    }
+
+    private Taps taps(int src, int dst) {
+        return resampling == Resampling.BILINEAR ? Taps.bilinear(src, dst) : Taps.area(src, dst);
+    }
+
+    /**
+     * 一维重采样权重表：输出坐标 i 由源坐标 [start[i], start[i]+count[i]) 按 weights[offset[i]...] 加权得到
+     */
+    static final class Taps {
+        final Resampling resampling;
+        final int src;
+        final int[] start;
+        final int[] count;
+        final int[] offset;
+        final float[] weights;
+
+        private Taps(Resampling resampling, int src, int[] start, int[] count, int[] offset, float[] weights) {
+            this.resampling = resampling;
+            this.src = src;
+            this.start = start;
+            this.count = count;
+            this.offset = offset;
+            this.weights = weights;
+        }
+
+        static Taps area(int src, int dst) {
+            double scale = (double) src / dst;
+            int[] start = new int[dst];
+            int[] count = new int[dst];
+            int[] offset = new int[dst];
+            int total = 0;
+            for (int i = 0; i < dst; i++) {
+                double f0 = i * scale;
+                double f1 = (i + 1) * scale;
+                int j0 = (int) Math.floor(f0);
+                int j1 = Math.min(src - 1, (int) Math.ceil(f1) - 1);
+                start[i] = j0;
+                count[i] = j1 - j0 + 1;
+                offset[i] = total;
+                total += count[i];
+            }
+            float[] weights = new float[total];
+            for (int i = 0; i < dst; i++) {
+                double f0 = i * scale;
+                double f1 = (i + 1) * scale;
+                double sum = 0;
+                for (int t = 0; t < count[i]; t++) {
+                    int j = start[i] + t;
+                    double overlap = Math.min(f1, j + 1) - Math.max(f0, j);
+                    weights[offset[i] + t] = (float) overlap;
+                    sum += overlap;
+                }
+                for (int t = 0; t < count[i]; t++) {
+                    weights[offset[i] + t] = (float) (weights[offset[i] + t] / sum);
+                }
+            }
+            return new Taps(Resampling.AREA, src, start, count, offset, weights);
+        }
+
+        static Taps bilinear(int src, int dst) {
+            double scale = (double) src / dst;
+            int[] start = new int[dst];
+            int[] count = new int[dst];
+            int[] offset = new int[dst];
+            float[] weights = new float[dst * 2];
+            for (int i = 0; i < dst; i++) {
+                double s = Math.max(0, Math.min(src - 1, (i + 0.5) * scale - 0.5));
+                int j0 = (int) s;
+                float w1 = (float) (s - j0);
+                start[i] = j0;
+                offset[i] = i * 2;
+                if (j0 + 1 < src && w1 > 0f) {
+                    count[i] = 2;
+                    weights[i * 2] = 1f - w1;
+                    weights[i * 2 + 1] = w1;
+                } else {
+                    count[i] = 1;
+                    weights[i * 2] = 1f;
+                }
+            }
+            return new Taps(Resampling.BILINEAR, src, start, count, offset, weights);
+        }
+    }
+
+    /**
+     * 把图像第 y 行解码为 0xRRGGBB 像素，带透明通道时已合成到黑色背景上
+     */
+    interface RowReader {
+        void read(int y, int[] dst);
+    }
+
+    static RowReader rowReader(BufferedImage img) {
+        Raster raster = img.getRaster();
+        DataBuffer db = raster.getDataBuffer();
+        SampleModel sm = raster.getSampleModel();
+        ColorModel cm = img.getColorModel();
+        int width = img.getWidth();
+        int tx = raster.getSampleModelTranslateX();
+        int ty = raster.getSampleModelTranslateY();
+        boolean alpha = cm.hasAlpha();
+
+        if (db instanceof DataBufferInt && db.getNumBanks() == 1 && sm instanceof SinglePixelPackedSampleModel
+                && cm instanceof DirectColorModel && cm.getColorSpace().isCS_sRGB() && !cm.isAlphaPremultiplied()) {
+            SinglePixelPackedSampleModel sppsm = (SinglePixelPackedSampleModel) sm;
+            int[] data = ((DataBufferInt) db).getData();
+            int stride = sppsm.getScanlineStride();
+            int base = db.getOffset() - ty * stride - tx;
+            int[] masks = sppsm.getBitMasks();
+            int[] shifts = sppsm.getBitOffsets();
+            if (masks[0] == 0xFF0000 && masks[1] == 0xFF00 && masks[2] == 0xFF
+                    && (!alpha || masks[3] == 0xFF000000)) {
+                // TYPE_INT_RGB / TYPE_INT_ARGB：低 24 位已经是 0xRRGGBB，ARGB 的高 8 位是透明度
+                if (alpha) {
+                    return (y, dst) -> {
+                        int index = base + y * stride;
+                        for (int x = 0; x < width; x++) {
+                            dst[x] = overBlack(data[index + x]);
+                        }
+                    };
+                }
+                return (y, dst) -> {
+                    int index = base + y * stride;
+                    for (int x = 0; x < width; x++) {
+                        dst[x] = data[index + x] & 0xFFFFFF;
+                    }
+                };
+            }
+            if (!alpha && masks[0] == 0xFF && masks[1] == 0xFF00 && masks[2] == 0xFF0000) {
+                int rShift = shifts[0];
+                int gShift = shifts[1];
+                int bShift = shifts[2];
+                return (y, dst) -> {
+                    int index = base + y * stride;
+                    for (int x = 0; x < width; x++) {
+                        int p = data[index + x];
+                        dst[x] = ((p >>> rShift) & 0xFF) << 16 | ((p >>> gShift) & 0xFF) << 8 | ((p >>> bShift) & 0xFF);
+                    }
+                };
+            }
+        }
+
+        if (db instanceof DataBufferByte && db.getNumBanks() == 1 && sm instanceof ComponentSampleModel
+                && cm instanceof ComponentColorModel && !cm.isAlphaPremultiplied()) {
+            ComponentSampleModel csm = (ComponentSampleModel) sm;
+            byte[] data = ((DataBufferByte) db).getData();
+            int stride = csm.getScanlineStride();
+            int pixelStride = csm.getPixelStride();
+            int[] bandOffsets = csm.getBandOffsets();
+            int base = db.getOffset() - ty * stride - tx * pixelStride;
+            if (csm.getNumBands() >= 3 && cm.getColorSpace().isCS_sRGB() && allEight(csm)) {
+                // TYPE_3BYTE_BGR / TYPE_4BYTE_ABGR：按波段偏移取 R、G、B
+                int rOff = bandOffsets[0];
+                int gOff = bandOffsets[1];
+                int bOff = bandOffsets[2];
+                if (alpha) {
+                    int aOff = bandOffsets[3];
+                    return (y, dst) -> {
+                        int index = base + y * stride;
+                        for (int x = 0; x < width; x++, index += pixelStride) {
+                            dst[x] = overBlack((data[index + aOff] & 0xFF) << 24 | (data[index + rOff] & 0xFF) << 16
+                                    | (data[index + gOff] & 0xFF) << 8 | (data[index + bOff] & 0xFF));
+                        }
+                    };
+                }
+                return (y, dst) -> {
+                    int index = base + y * stride;
+                    for (int x = 0; x < width; x++, index += pixelStride) {
+                        dst[x] = (data[index + rOff] & 0xFF) << 16 | (data[index + gOff] & 0xFF) << 8 | (data[index + bOff] & 0xFF);
+                    }
+                };
+            }
+            if (img.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+                // 灰度图的色彩空间是线性的，getRGB 会转换到 sRGB，这里用同样的 256 项表保持一致
+                int off = bandOffsets[0];
+                return (y, dst) -> {
+                    int index = base + y * stride + off;
+                    for (int x = 0; x < width; x++, index += pixelStride) {
+                        dst[x] = GRAY_TO_SRGB[data[index] & 0xFF];
+                    }
+                };
+            }
+        }
+
+        if (alpha) {
+            // getRGB 返回未预乘的 ARGB
+            return (y, dst) -> {
+                img.getRGB(0, y, width, 1, dst, 0, width);
+                for (int x = 0; x < width; x++) {
+                    dst[x] = overBlack(dst[x]);
+                }
+            };
+        }
+        return (y, dst) -> img.getRGB(0, y, width, 1, dst, 0, width);
+    }
+
+    /**
+     * 把未预乘的 0xAARRGGBB 合成到黑色背景上，返回 0xRRGGBB
+     */
+    static int overBlack(int argb) {
+        int a = argb >>> 24;
+        if (a == 0xFF) {
+            return argb & 0xFFFFFF;
+        }
+        int r = ((argb >> 16) & 0xFF) * a;
+        int g = ((argb >> 8) & 0xFF) * a;
+        int b = (argb & 0xFF) * a;
+        return (r + 127) / 255 << 16 | (g + 127) / 255 << 8 | (b + 127) / 255;
+    }
+
+    private static boolean allEight(ComponentSampleModel sm) {
+        for (int size : sm.getSampleSize()) {
+            if (size != 8) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int[] grayToSrgbTable() {
+        ColorModel grayModel = new BufferedImage(1, 1, BufferedImage.TYPE_BYTE_GRAY).getColorModel();
+        int[] table = new int[256];
+        byte[] pixel = new byte[1];
+        for (int v = 0; v < 256; v++) {
+            pixel[0] = (byte) v;
+            table[v] = grayModel.getRGB(pixel) & 0xFFFFFF;
+        }
+        return table;
+    }
+}
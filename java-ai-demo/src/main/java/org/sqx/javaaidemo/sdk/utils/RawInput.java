@@ -0,0 +1,76 @@
+package org.sqx.javaaidemo.sdk.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * 不经过图片编解码的原始输入（application/octet-stream）：上游已经持有解码后的帧时，
+ * 不必再编码成 JPEG、由服务端 ImageIO 解码后再缩放。16 字节小端序头部后紧跟数据：
+ * <pre>
+ * 偏移 0   uint8  格式：1 = float32 CHW（已归一化的张量），2 = uint8 HWC（RGB 像素）
+ * 偏移 1   3 字节保留，填 0
+ * 偏移 4   int32  维度 0（CHW 为 C，HWC 为 H）
+ * 偏移 8   int32  维度 1
+ * 偏移 12  int32  维度 2
+ * 偏移 16  数据，float32 为小端序
+ * </pre>
+ * 尺寸必须与模型输入一致，服务端不做缩放
+ */
+public final class RawInput {
+
+    public static final String CONTENT_TYPE = "application/octet-stream";
+    public static final int HEADER_BYTES = 16;
+    public static final int FLOAT32_CHW = 1;
+    public static final int UINT8_HWC = 2;
+
+    private RawInput() {
+    }
+
+    /**
+     * 3 通道、width x height 的输入最多需要的字节数（float32 CHW）
+     */
+    public static int maxBytes(int width, int height) {
+        return HEADER_BYTES + 3 * width * height * Float.BYTES;
+    }
+
+    /**
+     * 解析 body 并把 3*width*height 个 float 按 CHW 写入 dst 当前 position，写完后 position 后移。
+     * float32 输入整块复制，uint8 输入通过 preprocessor 的查找表归一化
+     *
+     * @throws IllegalArgumentException 头部格式不认识、尺寸与模型不一致或数据长度不对
+     */
+    public static void read(ByteBuffer body, int width, int height, ImagePreprocessor preprocessor, FloatBuffer dst) {
+        ByteBuffer data = body.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (data.remaining() < HEADER_BYTES) {
+            throw new IllegalArgumentException("请求体不足 " + HEADER_BYTES + " 字节的头部");
+        }
+        int format = data.get() & 0xFF;
+        data.position(data.position() + 3);
+        int d0 = data.getInt();
+        int d1 = data.getInt();
+        int d2 = data.getInt();
+        int values = 3 * width * height;
+        if (format == FLOAT32_CHW) {
+            if (d0 != 3 || d1 != height || d2 != width) {
+                throw new IllegalArgumentException("张量形状为 " + d0 + "x" + d1 + "x" + d2 + "，模型需要 3x" + height + "x" + width + "（CHW）");
+            }
+            checkLength(data, values * Float.BYTES);
+            dst.put(data.asFloatBuffer());
+        } else if (format == UINT8_HWC) {
+            if (d0 != height || d1 != width || d2 != 3) {
+                throw new IllegalArgumentException("像素形状为 " + d0 + "x" + d1 + "x" + d2 + "，模型需要 " + height + "x" + width + "x3（HWC）");
+            }
+            checkLength(data, values);
+            preprocessor.preprocessRgb(data, width, height, dst);
+        } else {
+            throw new IllegalArgumentException("不支持的格式 " + format + "，应为 1（float32 CHW）或 2（uint8 HWC）");
+        }
+    }
+
+    private static void checkLength(ByteBuffer data, int expected) {
+        if (data.remaining() != expected) {
+            throw new IllegalArgumentException("数据长度为 " + data.remaining() + " 字节，应为 " + expected + " 字节");
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package org.sqx.javaaidemo.sdk.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 直接内存 FloatBuffer 池。
+ * 预处理结果直接写入池中的缓冲区，再通过 OnnxTensor.createTensor(env, buffer, shape) 交给 ONNX Runtime，
+ * 直接内存 + 本机字节序的缓冲区不会被 ORT 再拷贝一次。
+ */
+public class TensorBufferPool {
+    private final int capacity;
+    private final int maxPooled;
+    private final ConcurrentLinkedQueue<FloatBuffer> free = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    /**
+     * @param capacity 每个缓冲区可容纳的 float 数量
+     * @param maxPooled 池中最多缓存的空闲缓冲区数量，超出部分归还时直接丢弃
+     */
+    public TensorBufferPool(int capacity, int maxPooled) {
+        this.capacity = capacity;
+        this.maxPooled = maxPooled;
+    }
+
+    public static FloatBuffer allocateDirect(int capacity) {
+        return ByteBuffer.allocateDirect(capacity * Float.BYTES).order(ByteOrder.nativeOrder()).asFloatBuffer();
+    }
+
+    /**
+     * 取出一个已清空（position=0, limit=capacity）的缓冲区，池为空时新分配
+     */
+    public FloatBuffer acquire() {
+        FloatBuffer buffer = free.poll();
+        if (buffer == null) {
+            return allocateDirect(capacity);
+        }
+        pooled.decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    public void release(FloatBuffer buffer) {
+        if (buffer == null || buffer.capacity() != capacity) {
+            return;
+        }
+        if (pooled.incrementAndGet() <= maxPooled) {
+            free.offer(buffer);
+        } else {
+            pooled.decrementAndGet();
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 池中空闲缓冲区的数量
+     */
+    public int getIdleCount() {
+        return pooled.get();
+    }
+}
@@ -0,0 +1,138 @@
+package org.sqx.javaaidemo.sdk.utils;
+
+import org.sqx.javaaidemo.sdk.model.ClassScore;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分类输出后处理：一次遍历 logits 同时完成最大值、log-sum-exp 和 K 个最大值的选取，
+ * 只为前 K 个类别计算概率，不分配与类别数等长的概率数组。
+ * <p>
+ * 概率按温度缩放后的 softmax 计算：p_i = exp(z_i / T) / Σ exp(z_j / T)，T=1 时与普通 softmax 相同，
+ * T>1 使过于自信的模型输出变得平缓，用于概率校准。
+ */
+public final class TopK {
+
+    private TopK() {
+    }
+
+    /**
+     * @param logits      一行 logits，读取 position 到 limit 之间的数据，不改变 position
+     * @param k           返回的类别数，超过类别总数时返回全部类别
+     * @param temperature softmax 温度，必须大于 0
+     * @return 按概率从高到低排列，概率相同时类别 ID 小的在前
+     */
+    public static List<ClassScore> select(FloatBuffer logits, int k, float temperature) {
+        int offset = logits.position();
+        int length = logits.remaining();
+        if (length == 0) {
+            throw new IllegalArgumentException("logits 为空");
+        }
+        if (k < 1) {
+            throw new IllegalArgumentException("k 必须大于 0");
+        }
+        if (!(temperature > 0)) {
+            throw new IllegalArgumentException("temperature 必须大于 0");
+        }
+        float invT = 1.0f / temperature;
+        int size = Math.min(k, length);
+
+        // 以 logit 为键的小顶堆，堆顶是当前前 K 个中最小的一个
+        int[] heapIds = new int[size];
+        float[] heapValues = new float[size];
+        int heapSize = 0;
+
+        // 在线 log-sum-exp：sum 始终是 Σ exp((z_j - max) / T)，遇到新的最大值时整体缩放
+        float max = Float.NEGATIVE_INFINITY;
+        double sum = 0;
+        for (int i = 0; i < length; i++) {
+            float z = logits.get(offset + i);
+            if (z > max) {
+                sum = sum * Math.exp((max - z) * invT) + 1;
+                max = z;
+            } else {
+                sum += Math.exp((z - max) * invT);
+            }
+
+            if (heapSize < size) {
+                heapIds[heapSize] = i;
+                heapValues[heapSize] = z;
+                siftUp(heapIds, heapValues, heapSize++);
+            } else if (z > heapValues[0]) {
+                heapIds[0] = i;
+                heapValues[0] = z;
+                siftDown(heapIds, heapValues, size);
+            }
+        }
+
+        // K 很小，插入排序即可
+        for (int i = 1; i < size; i++) {
+            int id = heapIds[i];
+            float value = heapValues[i];
+            int j = i - 1;
+            while (j >= 0 && (heapValues[j] < value || (heapValues[j] == value && heapIds[j] > id))) {
+                heapIds[j + 1] = heapIds[j];
+                heapValues[j + 1] = heapValues[j];
+                j--;
+            }
+            heapIds[j + 1] = id;
+            heapValues[j + 1] = value;
+        }
+
+        List<ClassScore> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            float probability = (float) (Math.exp((heapValues[i] - max) * invT) / sum);
+            result.add(new ClassScore(heapIds[i], probability));
+        }
+        return result;
+    }
+
+    /**
+     * 堆中的比较：值更小，或值相同但类别 ID 更大的元素更靠近堆顶，保证并列时保留 ID 小的类别
+     */
+    private static boolean below(int[] ids, float[] values, int a, int b) {
+        return values[a] < values[b] || (values[a] == values[b] && ids[a] > ids[b]);
+    }
+
+    private static void siftUp(int[] ids, float[] values, int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!below(ids, values, index, parent)) {
+                break;
+            }
+            swap(ids, values, index, parent);
+            index = parent;
+        }
+    }
+
+    private static void siftDown(int[] ids, float[] values, int size) {
+        int index = 0;
+        while (true) {
+            int left = 2 * index + 1;
+            if (left >= size) {
+                break;
+            }
+            int smallest = left;
+            int right = left + 1;
+            if (right < size && below(ids, values, right, left)) {
+                smallest = right;
+            }
+            if (!below(ids, values, smallest, index)) {
+                break;
+            }
+            swap(ids, values, index, smallest);
+            index = smallest;
+        }
+    }
+
+    private static void swap(int[] ids, float[] values, int a, int b) {
+        int id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        float value = values[a];
+        values[a] = values[b];
+        values[b] = value;
+    }
+}
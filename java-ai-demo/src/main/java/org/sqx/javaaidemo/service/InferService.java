@@ -1,6 +1,11 @@
 package org.sqx.javaaidemo.service;
 
+import org.sqx.javaaidemo.sdk.model.ClassScore;
+
 import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.List;
 
 public interface InferService {
 	/**
@@ -10,10 +15,34 @@ public interface InferService {
 	 */
 	float[] softmax(float[] logits);
 	
+	/**
+	 * 一次遍历 logits 选出概率最高的 K 个类别，不分配完整的概率数组
+	 * @param logits 一行 logits（position 到 limit）
+	 * @param k 返回的类别数
+	 * @param temperature softmax 温度
+	 * @return
+	 */
+	List<ClassScore> topK (FloatBuffer logits, int k, float temperature);
+	
 	/**
 	 * 图片预处理
 	 * @param img
 	 * @return
 	 */
 	float[] preprocessImage (BufferedImage img);
+	
+	/**
+	 * 图片预处理，结果按 CHW 顺序直接写入 dst（从当前 position 开始）
+	 * @param img
+	 * @param dst
+	 */
+	void preprocessImage (BufferedImage img, FloatBuffer dst);
+	
+	/**
+	 * 原始输入（float32 CHW 张量或 uint8 HWC 像素，格式见 RawInput）不解码、不缩放，直接写入 dst
+	 * @param body 头部加数据
+	 * @param dst
+	 * @throws IllegalArgumentException 格式不认识、尺寸不是 224x224 或数据长度不对
+	 */
+	void preprocessRaw (ByteBuffer body, FloatBuffer dst);
 }
@@ -1,14 +1,22 @@
 package org.sqx.javaaidemo.service.impl;
 
 import org.springframework.stereotype.Service;
+import org.sqx.javaaidemo.sdk.model.ClassScore;
+import org.sqx.javaaidemo.sdk.utils.ImagePreprocessor;
+import org.sqx.javaaidemo.sdk.utils.RawInput;
+import org.sqx.javaaidemo.sdk.utils.TopK;
 import org.sqx.javaaidemo.service.InferService;
 
-import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.List;
 
 @Service
 public class InferServiceImpl implements InferService {
 	
+	private final ImagePreprocessor preprocessor = new ImagePreprocessor();
+	
 	// 添加 softmax 函数
 	public float[] softmax(float[] logits) {
 		// 1. 找到最大值（防止计算 exp 时溢出）
@@ -32,26 +40,23 @@ public class InferServiceImpl implements InferService {
 		return exps;
 	}
 	
+	// 融合 softmax 与 top-K 选取
+	public List<ClassScore> topK (FloatBuffer logits, int k, float temperature) {
+		return TopK.select(logits, k, temperature);
+	}
+	
 	// 图片预处理
 	public float[] preprocessImage (BufferedImage img) {
-		int width = 224;
-		int height = 224;
-		Image scaled = img.getScaledInstance(width, height, Image.SCALE_SMOOTH);
-		BufferedImage resized = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-		resized.getGraphics().drawImage(scaled, 0, 0, null);
-		
-		float[] input = new float[3 * width * height];
-		for (int y = 0; y < height; y++) {
-			for (int x = 0; x < width; x++) {
-				int rgb = resized.getRGB(x, y);
-				int r = (rgb >> 16) & 0xFF;
-				int g = (rgb >> 8) & 0xFF;
-				int b = rgb & 0xFF;
-				input[y * width + x] = (r / 255.0f - 0.485f) / 0.229f;
-				input[width * height + y * width + x] = (g / 255.0f - 0.456f) / 0.224f;
-				input[2 * width * height + y * width + x] = (b / 255.0f - 0.406f) / 0.225f;
-			}
-		}
-		return input;
+		return preprocessor.preprocess(img);
+	}
+	
+	// 图片预处理，直接写入张量缓冲区
+	public void preprocessImage (BufferedImage img, FloatBuffer dst) {
+		preprocessor.preprocess(img, dst);
+	}
+	
+	// 原始张量或 RGB 像素，不解码、不缩放
+	public void preprocessRaw (ByteBuffer body, FloatBuffer dst) {
+		RawInput.read(body, 224, 224, preprocessor, dst);
 	}
 }
@@ -0,0 +1,47 @@
+package org.sqx.javaaidemo.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 使用控制器实际加载的模型启动整个应用
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class InferControllerTest {
+	
+	@Autowired
+	private MockMvc mockMvc;
+	
+	@Test
+	void readinessReachesUpAfterWarmup () throws Exception {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+		int status;
+		do {
+			status = mockMvc.perform(get("/actuator/health/readiness")).andReturn().getResponse().getStatus();
+			if (status != 200) {
+				Thread.sleep(100);
+			}
+		} while (status != 200 && System.nanoTime() < deadline);
+		assertEquals(200, status);
+		mockMvc.perform(get("/actuator/health/readiness")).andExpect(status().isOk());
+	}
+	
+	@Test
+	void imageEndpointsReportUnsupportedModel () throws Exception {
+		// 内置的 iris_logreg.onnx 是表格模型，图片接口明确返回 501 而不是推理时报错
+		mockMvc.perform(multipart("/api/predict").file(new MockMultipartFile("image", "a.jpg", "image/jpeg", new byte[]{1, 2, 3})))
+				.andExpect(status().isNotImplemented());
+	}
+}
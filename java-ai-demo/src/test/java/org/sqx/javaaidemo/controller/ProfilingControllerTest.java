@@ -0,0 +1,80 @@
+package org.sqx.javaaidemo.controller;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ProfilingControllerTest {
+	
+	@Nested
+	@WebMvcTest(ProfilingController.class)
+	class Disabled {
+		
+		@Autowired
+		private MockMvc mockMvc;
+		
+		@Test
+		void disabledByDefault () throws Exception {
+			mockMvc.perform(get("/api/admin/jfr/status")).andExpect(status().isNotFound());
+			mockMvc.perform(post("/api/admin/jfr/start")).andExpect(status().isNotFound());
+			mockMvc.perform(post("/api/admin/jfr/stop")).andExpect(status().isNotFound());
+		}
+	}
+	
+	@Nested
+	@WebMvcTest(controllers = ProfilingController.class, properties = "profiling.jfr.enabled=true")
+	class Enabled {
+		
+		@Autowired
+		private MockMvc mockMvc;
+		
+		@Test
+		void startStatusStop () throws Exception {
+			mockMvc.perform(get("/api/admin/jfr/status"))
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$.state").value("NONE"));
+			mockMvc.perform(post("/api/admin/jfr/stop")).andExpect(status().isNotFound());
+			
+			mockMvc.perform(post("/api/admin/jfr/start").param("seconds", "30").param("settings", "default"))
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$.state").value("RUNNING"))
+					.andExpect(jsonPath("$.settings").value("default"))
+					.andExpect(jsonPath("$.maxDurationSeconds").value(30));
+			mockMvc.perform(post("/api/admin/jfr/start")).andExpect(status().isConflict());
+			mockMvc.perform(get("/api/admin/jfr/status"))
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$.state").value("RUNNING"));
+			
+			MvcResult started = mockMvc.perform(post("/api/admin/jfr/stop"))
+					.andExpect(request().asyncStarted())
+					.andReturn();
+			MvcResult stopped = mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk()).andReturn();
+			byte[] jfr = stopped.getResponse().getContentAsByteArray();
+			// .jfr 文件以魔数 FLR\0 开头
+			assertTrue(jfr.length > 4);
+			assertEquals("FLR", new String(jfr, 0, 3));
+			
+			mockMvc.perform(get("/api/admin/jfr/status"))
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$.state").value("NONE"));
+		}
+		
+		@Test
+		void rejectsInvalidParameters () throws Exception {
+			mockMvc.perform(post("/api/admin/jfr/start").param("seconds", "0")).andExpect(status().isBadRequest());
+			mockMvc.perform(post("/api/admin/jfr/start").param("settings", "custom")).andExpect(status().isBadRequest());
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package org.sqx.javaaidemo.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 使用内置的 iris_logreg.onnx：X[N,5] -> MatMul -> Sigmoid -> Y[N]
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class TabularControllerTest {
+	
+	@Autowired
+	private MockMvc mockMvc;
+	@Autowired
+	private ObjectMapper objectMapper;
+	
+	@Test
+	void scoresRowsWithBundledModel () throws Exception {
+		MvcResult started = mockMvc.perform(post("/api/score")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("[[5.1,3.5,1.4,0.2,1.0],[6.7,3.0,5.2,2.3,1.0]]"))
+				.andExpect(status().isOk())
+				.andReturn();
+		MvcResult result = mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk()).andReturn();
+		JsonNode body = objectMapper.readTree(result.getResponse().getContentAsString());
+		assertEquals(2, body.get("rows").asInt());
+		for (JsonNode row : body.get("results")) {
+			JsonNode probabilities = row.get("probabilities");
+			assertEquals(2, probabilities.size());
+			assertEquals(1.0, probabilities.get(0).asDouble() + probabilities.get(1).asDouble(), 1e-5);
+			assertEquals(probabilities.get(1).asDouble() >= 0.5 ? 1 : 0, row.get("classId").asInt());
+		}
+		
+		mockMvc.perform(post("/api/score")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("[[1.0,2.0]]"))
+				.andExpect(status().isBadRequest());
+	}
+}
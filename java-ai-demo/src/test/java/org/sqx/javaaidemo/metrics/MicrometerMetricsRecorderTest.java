@@ -0,0 +1,38 @@
+package org.sqx.javaaidemo.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.sqx.javaaidemo.sdk.metrics.Stage;
+import org.sqx.javaaidemo.sdk.metrics.StageTimings;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MicrometerMetricsRecorderTest {
+
+	@Test
+	void recordsOnlyStagesThatWereTimed() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		AtomicInteger inFlight = new AtomicInteger(3);
+		MicrometerMetricsRecorder recorder = new MicrometerMetricsRecorder(registry, "tiny")
+				.inFlight(inFlight::get)
+				.queueDepth(() -> 5);
+
+		StageTimings timings = new StageTimings();
+		timings.set(Stage.PREPROCESS, 2_000_000);
+		timings.set(Stage.INFERENCE, 7_000_000);
+		recorder.record(timings);
+		recorder.recordBatch(4);
+
+		Timer inference = registry.get("inference.stage").tags("model", "tiny", "stage", "inference").timer();
+		assertEquals(1, inference.count());
+		assertEquals(7.0, inference.totalTime(TimeUnit.MILLISECONDS), 1e-6);
+		assertEquals(0, registry.get("inference.stage").tags("stage", "decode").timer().count());
+		assertEquals(4.0, registry.get("inference.batch.size").summary().totalAmount());
+		assertEquals(3.0, registry.get("inference.in_flight").gauge().value());
+		assertEquals(5.0, registry.get("inference.queue.depth").gauge().value());
+	}
+}
@@ -0,0 +1,797 @@
+package org.sqx.javaaidemo.sdk;
+
+import ai.onnxruntime.OrtSession;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sqx.javaaidemo.sdk.cache.CacheStats;
+import org.sqx.javaaidemo.sdk.metrics.InferenceStageEvent;
+import org.sqx.javaaidemo.sdk.metrics.MetricsRecorder;
+import org.sqx.javaaidemo.sdk.metrics.Stage;
+import org.sqx.javaaidemo.sdk.metrics.StageTimings;
+import org.sqx.javaaidemo.sdk.model.ModelLoadMode;
+import org.sqx.javaaidemo.sdk.model.ModelSignature;
+import org.sqx.javaaidemo.sdk.model.PredictionResult;
+import org.sqx.javaaidemo.sdk.model.SDKConfig;
+import org.sqx.javaaidemo.sdk.shadow.ShadowStats;
+import org.sqx.javaaidemo.sdk.utils.ImagePreprocessor;
+import org.sqx.javaaidemo.sdk.utils.RawInput;
+import org.sqx.javaaidemo.sdk.utils.TensorBufferPool;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * tiny_classifier.onnx 是测试用的小模型：data[N,3,224,224] -> GlobalAveragePool -> 全连接 -> logits[N,10]。
+ * tiny_classifier_64.onnx 输入为 [N,3,64,64]，tiny_classifier_b1_dynamic.onnx 输入为 [1,3,H,W]，权重相同；
+ * tiny_classifier_negated.onnx 与 tiny_classifier.onnx 大小相同，全连接权重取反
+ */
+class AISDKTest {
+
+    private static SDKConfig.Builder tinyModel() {
+        return new SDKConfig.Builder(AISDKTest.class.getClassLoader().getResourceAsStream("models/tiny_classifier.onnx"));
+    }
+
+    private static Path tinyModelPath() throws Exception {
+        return modelPath("tiny_classifier.onnx");
+    }
+
+    private static Path modelPath(String name) throws Exception {
+        return Path.of(AISDKTest.class.getClassLoader().getResource("models/" + name).toURI());
+    }
+
+    private static BufferedImage solid(Color color) {
+        BufferedImage img = new BufferedImage(320, 240, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = img.createGraphics();
+        g.setColor(color);
+        g.fillRect(0, 0, 320, 240);
+        g.dispose();
+        return img;
+    }
+
+    private static List<BufferedImage> images() {
+        List<BufferedImage> images = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            images.add(solid(new Color((i * 37) % 256, (i * 91) % 256, (i * 53) % 256)));
+        }
+        return images;
+    }
+
+    private static List<PredictionResult> predictSequentially(SDKConfig config, List<BufferedImage> images) throws Exception {
+        List<PredictionResult> results = new ArrayList<>();
+        AISDK sdk = AISDK.initialize(config);
+        try {
+            for (BufferedImage image : images) {
+                results.add(sdk.predict(image));
+            }
+        } finally {
+            sdk.close();
+        }
+        return results;
+    }
+
+    private static void assertConcurrentPredictionsMatch(SDKConfig config, List<BufferedImage> images,
+                                                         List<PredictionResult> expected) throws Exception {
+        AISDK sdk = AISDK.initialize(config);
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<PredictionResult>> futures = new ArrayList<>();
+            for (BufferedImage image : images) {
+                futures.add(pool.submit(() -> sdk.predict(image)));
+            }
+            for (int i = 0; i < images.size(); i++) {
+                PredictionResult actual = futures.get(i).get();
+                assertEquals(expected.get(i).getClassId(), actual.getClassId());
+                assertEquals(expected.get(i).getScore(), actual.getScore(), 1e-5f);
+            }
+        } finally {
+            pool.shutdown();
+            sdk.close();
+        }
+    }
+
+    @Test
+    void batchedPredictionsMatchSingleImagePredictions() throws Exception {
+        List<BufferedImage> images = images();
+        List<PredictionResult> expected = predictSequentially(tinyModel().build(), images);
+        assertConcurrentPredictionsMatch(tinyModel().batching(8, 5).build(), images, expected);
+    }
+
+    @Test
+    void sessionPoolWithTunedOptionsMatchesDefaultSession() throws Exception {
+        List<BufferedImage> images = images();
+        List<PredictionResult> expected = predictSequentially(tinyModel().build(), images);
+        SDKConfig pooled = tinyModel()
+                .sessionPoolSize(3)
+                .intraOpThreads(1)
+                .interOpThreads(1)
+                .executionMode(OrtSession.SessionOptions.ExecutionMode.PARALLEL)
+                .optimizationLevel(OrtSession.SessionOptions.OptLevel.BASIC_OPT)
+                .memoryArena(false)
+                .memoryPattern(false)
+                .build();
+        assertConcurrentPredictionsMatch(pooled, images, expected);
+    }
+
+    @Test
+    void sessionPoolCombinesWithBatching() throws Exception {
+        List<BufferedImage> images = images();
+        List<PredictionResult> expected = predictSequentially(tinyModel().build(), images);
+        assertConcurrentPredictionsMatch(tinyModel().sessionPoolSize(2).intraOpThreads(1).batching(4, 2).build(), images, expected);
+    }
+
+    @Test
+    void pathAndMemoryMappedLoadingMatchStreamLoading() throws Exception {
+        List<BufferedImage> images = images();
+        List<PredictionResult> expected = predictSequentially(tinyModel().build(), images);
+        assertConcurrentPredictionsMatch(new SDKConfig.Builder(tinyModelPath()).build(), images, expected);
+        assertConcurrentPredictionsMatch(new SDKConfig.Builder(tinyModelPath()).memoryMapped(true).sessionPoolSize(2).build(), images, expected);
+
+        AISDK sdk = AISDK.initialize(new SDKConfig.Builder(tinyModelPath()).memoryMapped(true).build());
+        try {
+            assertEquals(ModelLoadMode.MEMORY_MAPPED, sdk.getModelLoadStats().getMode());
+        } finally {
+            sdk.close();
+        }
+    }
+
+    @Test
+    void optimizedModelCacheIsWrittenOnceAndReused(@TempDir Path cacheDir) throws Exception {
+        List<BufferedImage> images = images();
+        List<PredictionResult> expected = predictSequentially(tinyModel().build(), images);
+
+        AISDK first = AISDK.initialize(new SDKConfig.Builder(tinyModelPath()).optimizedModelCacheDir(cacheDir).build());
+        first.close();
+        assertEquals(1, Files.list(cacheDir).count());
+
+        AISDK second = AISDK.initialize(new SDKConfig.Builder(tinyModelPath()).optimizedModelCacheDir(cacheDir).build());
+        try {
+            assertTrue(second.getModelLoadStats().isOptimizedModel());
+        } finally {
+            second.close();
+        }
+        assertEquals(1, Files.list(cacheDir).count());
+
+        assertConcurrentPredictionsMatch(new SDKConfig.Builder(tinyModelPath()).optimizedModelCacheDir(cacheDir).build(), images, expected);
+    }
+
+    @Test
+    void optimizedModelCacheMissesWhenModelIsReplacedInPlace(@TempDir Path dir) throws Exception {
+        List<BufferedImage> images = images();
+        Path replacement = modelPath("tiny_classifier_negated.onnx");
+        List<PredictionResult> original = predictSequentially(tinyModel().build(), images);
+        List<PredictionResult> expected = predictSequentially(new SDKConfig.Builder(replacement).build(), images);
+        assertFalse(original.stream().map(PredictionResult::getClassId).toList()
+                .equals(expected.stream().map(PredictionResult::getClassId).toList()));
+
+        for (boolean memoryMapped : new boolean[]{false, true}) {
+            Path model = dir.resolve("model-" + memoryMapped + ".onnx");
+            Path cacheDir = dir.resolve("cache-" + memoryMapped);
+            Files.copy(tinyModelPath(), model);
+            FileTime mtime = Files.getLastModifiedTime(model);
+            SDKConfig config = new SDKConfig.Builder(model).memoryMapped(memoryMapped).optimizedModelCacheDir(cacheDir).build();
+            AISDK.initialize(config).close();
+
+            // 滚动发布：同一路径换成大小相同的新模型，修改时间被构建工具固定
+            Files.copy(replacement, model, StandardCopyOption.REPLACE_EXISTING);
+            Files.setLastModifiedTime(model, mtime);
+            assertEquals(Files.size(tinyModelPath()), Files.size(model));
+
+            assertConcurrentPredictionsMatch(config, images, expected);
+            try (Stream<Path> files = Files.list(cacheDir)) {
+                assertEquals(2, files.count());
+            }
+        }
+    }
+
+    @Test
+    void corruptOptimizedModelFallsBackToOriginal(@TempDir Path cacheDir) throws Exception {
+        List<String> errors = new ArrayList<>();
+        MetricsRecorder recorder = new MetricsRecorder() {
+            @Override
+            public void record(StageTimings timings) {
+            }
+
+            @Override
+            public void recordError(String event, Throwable error) {
+                errors.add(event);
+            }
+        };
+        SDKConfig config = new SDKConfig.Builder(tinyModelPath()).optimizedModelCacheDir(cacheDir).metricsRecorder(recorder).build();
+        AISDK.initialize(config).close();
+        Path cached;
+        try (Stream<Path> files = Files.list(cacheDir)) {
+            cached = files.findFirst().orElseThrow();
+        }
+        // 模拟写到一半的缓存文件
+        byte[] content = Files.readAllBytes(cached);
+        Files.write(cached, Arrays.copyOf(content, content.length / 3));
+
+        AISDK sdk = AISDK.initialize(config);
+        try {
+            assertFalse(sdk.getModelLoadStats().isOptimizedModel());
+            assertEquals(List.of("optimized_cache"), errors);
+            assertFalse(Files.exists(cached));
+            assertEquals(predictSequentially(tinyModel().build(), List.of(solid(Color.RED))).get(0).getClassId(),
+                    sdk.predict(solid(Color.RED)).getClassId());
+        } finally {
+            sdk.close();
+        }
+        // 下次启动重新生成缓存
+        AISDK regenerated = AISDK.initialize(config);
+        try {
+            assertTrue(regenerated.getModelLoadStats().isOptimizedModel());
+        } finally {
+            regenerated.close();
+        }
+    }
+
+    @Test
+    void reloadModelSwapsSessionsWithoutFailingInFlightRequests() throws Exception {
+        List<BufferedImage> images = images();
+        List<PredictionResult> expected = predictSequentially(tinyModel().build(), images);
+
+        AISDK sdk = AISDK.initialize(tinyModel().sessionPoolSize(2).build());
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        AtomicBoolean stop = new AtomicBoolean();
+        try {
+            List<Future<Integer>> workers = new ArrayList<>();
+            for (int w = 0; w < 8; w++) {
+                workers.add(pool.submit(() -> {
+                    int count = 0;
+                    while (!stop.get()) {
+                        int i = count++ % images.size();
+                        PredictionResult actual = sdk.predict(images.get(i));
+                        assertEquals(expected.get(i).getClassId(), actual.getClassId());
+                    }
+                    return count;
+                }));
+            }
+            for (int reload = 0; reload < 3; reload++) {
+                sdk.reloadModel(new SDKConfig.Builder(tinyModelPath()).build()).get(30, TimeUnit.SECONDS);
+            }
+            stop.set(true);
+            for (Future<Integer> worker : workers) {
+                assertTrue(worker.get() > 0);
+            }
+            assertEquals(4, sdk.getModelVersion());
+        } finally {
+            stop.set(true);
+            pool.shutdown();
+            sdk.close();
+        }
+    }
+
+    @Test
+    void predictionCacheServesRepeatedUploadsUntilModelReload() throws Exception {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(solid(new Color(200, 40, 90)), "png", png);
+        byte[] content = png.toByteArray();
+
+        AISDK sdk = AISDK.initialize(tinyModel().predictionCache(16, 0).build());
+        try {
+            PredictionResult first = sdk.predict(content);
+            PredictionResult second = sdk.predict(content);
+            assertEquals(first.getClassId(), second.getClassId());
+            assertEquals(first.getScore(), second.getScore());
+
+            CacheStats stats = sdk.getPredictionCacheStats();
+            assertEquals(1, stats.getHits());
+            assertEquals(1, stats.getMisses());
+
+            // 换模型后版本号变化，旧结果不再命中
+            sdk.reloadModel(new SDKConfig.Builder(tinyModelPath()).build()).get(30, TimeUnit.SECONDS);
+            assertEquals(first.getClassId(), sdk.predict(content).getClassId());
+            assertEquals(2, sdk.getPredictionCacheStats().getMisses());
+        } finally {
+            sdk.close();
+        }
+    }
+
+    @Test
+    void predictAsyncKeepsThousandsOfImagesInFlight() throws Exception {
+        List<BufferedImage> images = images();
+        List<PredictionResult> expected = predictSequentially(tinyModel().build(), images);
+        List<BufferedImage> requests = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            requests.add(images.get(i % images.size()));
+        }
+
+        for (SDKConfig config : List.of(tinyModel().sessionPoolSize(2).build(), tinyModel().batching(8, 2).build())) {
+            AISDK sdk = AISDK.initialize(config);
+            try {
+                List<PredictionResult> actual = sdk.predictAsync(requests).get(60, TimeUnit.SECONDS);
+                assertEquals(requests.size(), actual.size());
+                for (int i = 0; i < actual.size(); i++) {
+                    assertEquals(expected.get(i % images.size()).getClassId(), actual.get(i).getClassId());
+                }
+            } finally {
+                sdk.close();
+            }
+        }
+    }
+
+    @Test
+    void predictAsyncReturnsRequestedTopK() throws Exception {
+        BufferedImage image = solid(new Color(30, 160, 220));
+        AISDK sdk = AISDK.initialize(tinyModel().build());
+        try {
+            PredictionResult expected = sdk.predict(image, 5);
+            PredictionResult single = sdk.predictAsync(image, 5).get(30, TimeUnit.SECONDS);
+            assertEquals(5, single.getTopK().size());
+            for (int i = 0; i < 5; i++) {
+                assertEquals(expected.getTopK().get(i).getClassId(), single.getTopK().get(i).getClassId());
+            }
+            for (PredictionResult result : sdk.predictAsync(List.of(image, image), 3).get(30, TimeUnit.SECONDS)) {
+                assertEquals(3, result.getTopK().size());
+            }
+            assertEquals(1, sdk.predictAsync(image).get(30, TimeUnit.SECONDS).getTopK().size());
+            assertThrows(IllegalArgumentException.class, () -> sdk.predictAsync(image, 0));
+        } finally {
+            sdk.close();
+        }
+    }
+
+    @Test
+    void predictAsyncUsesConfiguredExecutorAndFailsAfterClose() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        AISDK sdk = AISDK.initialize(tinyModel().asyncExecutor(executor).build());
+        try {
+            PredictionResult expected = sdk.predict(solid(Color.ORANGE));
+            assertEquals(expected.getClassId(), sdk.predictAsync(solid(Color.ORANGE)).get(30, TimeUnit.SECONDS).getClassId());
+        } finally {
+            sdk.close();
+        }
+        ExecutionException failure = assertThrows(ExecutionException.class,
+                () -> sdk.predictAsync(solid(Color.ORANGE)).get(30, TimeUnit.SECONDS));
+        assertTrue(failure.getCause() instanceof IllegalStateException);
+        // 调用方传入的执行器不随 SDK 关闭
+        assertFalse(executor.isShutdown());
+        executor.shutdown();
+    }
+
+    @Test
+    void predictReturnsRequestedTopKWithCalibratedProbabilities() throws Exception {
+        BufferedImage image = solid(new Color(30, 160, 220));
+        AISDK sdk = AISDK.initialize(tinyModel().build());
+        AISDK flattened = AISDK.initialize(tinyModel().temperature(4.0f).build());
+        try {
+            PredictionResult top1 = sdk.predict(image);
+            PredictionResult top5 = sdk.predict(image, 5);
+            assertEquals(1, top1.getTopK().size());
+            assertEquals(5, top5.getTopK().size());
+            assertEquals(top1.getClassId(), top5.getTopK().get(0).getClassId());
+            assertEquals(top1.getScore(), top5.getTopK().get(0).getProbability());
+            for (int i = 1; i < 5; i++) {
+                assertTrue(top5.getTopK().get(i - 1).getProbability() >= top5.getTopK().get(i).getProbability());
+            }
+            // 温度只改变概率，不改变排序
+            PredictionResult calibrated = flattened.predict(image, 5);
+            for (int i = 0; i < 5; i++) {
+                assertEquals(top5.getTopK().get(i).getClassId(), calibrated.getTopK().get(i).getClassId());
+            }
+            assertTrue(calibrated.getScore() < top5.getScore());
+        } finally {
+            sdk.close();
+            flattened.close();
+        }
+    }
+
+    @Test
+    void predictBatchMatchesSingleImagePredictions() throws Exception {
+        List<BufferedImage> images = images().subList(0, 6);
+        ImagePreprocessor preprocessor = new ImagePreprocessor();
+        FloatBuffer batch = TensorBufferPool.allocateDirect(images.size() * 3 * 224 * 224);
+        for (BufferedImage image : images) {
+            preprocessor.preprocess(image, batch);
+        }
+        batch.flip();
+
+        AISDK sdk = AISDK.initialize(tinyModel().build());
+        try {
+            List<PredictionResult> actual = sdk.predictBatch(batch, images.size(), 3);
+            assertEquals(images.size(), actual.size());
+            for (int i = 0; i < images.size(); i++) {
+                PredictionResult expected = sdk.predict(images.get(i), 3);
+                assertEquals(expected.getClassId(), actual.get(i).getClassId());
+                assertEquals(expected.getScore(), actual.get(i).getScore(), 1e-5f);
+                assertEquals(3, actual.get(i).getTopK().size());
+            }
+            assertThrows(IllegalArgumentException.class, () -> sdk.predictBatch(batch.rewind(), images.size() + 1, 1));
+        } finally {
+            sdk.close();
+        }
+    }
+
+    @Test
+    void inputSizeAndBatchDimensionComeFromTheModel() throws Exception {
+        List<BufferedImage> images = images();
+        List<PredictionResult> expected = predictSequentially(tinyModel().build(), images);
+
+        AISDK small = AISDK.initialize(new SDKConfig.Builder(modelPath("tiny_classifier_64.onnx")).build());
+        try {
+            ModelSignature signature = small.getModelSignature();
+            assertEquals("data", signature.getInputName());
+            assertEquals(64, signature.getWidth());
+            assertEquals(64, signature.getHeight());
+            assertTrue(signature.isDynamicBatch());
+            assertEquals(10, signature.getNumClasses());
+            // 纯色图片经过全局平均池化后与输入分辨率无关
+            for (int i = 0; i < images.size(); i++) {
+                assertEquals(expected.get(i).getClassId(), small.predict(images.get(i)).getClassId());
+            }
+            // 输入尺寸不同的模型不能热更新进来
+            ExecutionException failure = assertThrows(ExecutionException.class,
+                    () -> small.reloadModel(new SDKConfig.Builder(tinyModelPath()).build()).get(30, TimeUnit.SECONDS));
+            assertTrue(failure.getCause() instanceof IllegalArgumentException);
+            assertEquals(1, small.getModelVersion());
+        } finally {
+            small.close();
+        }
+        Path smallModel = modelPath("tiny_classifier_64.onnx");
+        assertConcurrentPredictionsMatch(new SDKConfig.Builder(smallModel).batching(4, 2).build(), images,
+                predictSequentially(new SDKConfig.Builder(smallModel).build(), images));
+    }
+
+    @Test
+    void fixedBatchModelWithDynamicSpatialDimensionsUsesConfiguredInputSize() throws Exception {
+        List<BufferedImage> images = images().subList(0, 5);
+        List<PredictionResult> expected = predictSequentially(tinyModel().build(), images);
+        SDKConfig.Builder builder = new SDKConfig.Builder(modelPath("tiny_classifier_b1_dynamic.onnx")).inputSize(96, 80);
+
+        AISDK sdk = AISDK.initialize(builder.build());
+        try {
+            ModelSignature signature = sdk.getModelSignature();
+            assertEquals(96, signature.getWidth());
+            assertEquals(80, signature.getHeight());
+            assertFalse(signature.isDynamicBatch());
+
+            ImagePreprocessor preprocessor = new ImagePreprocessor();
+            FloatBuffer batch = TensorBufferPool.allocateDirect(images.size() * signature.getImageSize());
+            for (BufferedImage image : images) {
+                preprocessor.preprocess(image, 96, 80, batch);
+            }
+            batch.flip();
+            // batch 维固定为 1 时逐张推理
+            List<PredictionResult> actual = sdk.predictBatch(batch, images.size(), 1);
+            for (int i = 0; i < images.size(); i++) {
+                assertEquals(expected.get(i).getClassId(), actual.get(i).getClassId());
+                assertEquals(expected.get(i).getClassId(), sdk.predict(images.get(i)).getClassId());
+            }
+        } finally {
+            sdk.close();
+        }
+        assertThrows(IllegalArgumentException.class, () -> AISDK.initialize(builder.batching(4, 2).build()));
+    }
+
+    @Test
+    void steadyStatePredictAllocatesAlmostNothing() throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        BufferedImage image = new BufferedImage(640, 480, BufferedImage.TYPE_3BYTE_BGR);
+        AISDK sdk = AISDK.initialize(tinyModel().build());
+        try {
+            for (int i = 0; i < 500; i++) {
+                sdk.predict(image);
+            }
+            long thread = Thread.currentThread().getId();
+            long before = threads.getThreadAllocatedBytes(thread);
+            int iterations = 1000;
+            for (int i = 0; i < iterations; i++) {
+                sdk.predict(image);
+            }
+            long perPredict = (threads.getThreadAllocatedBytes(thread) - before) / iterations;
+            // 剩下的是结果对象和 ORT 调用本身的少量包装对象；复用之前每次约 24KB
+            assertTrue(perPredict < 4096, "每次推理分配 " + perPredict + " 字节");
+        } finally {
+            sdk.close();
+        }
+    }
+
+    @Test
+    void stageTimingsAreRecordedPerRequestAndPerBatch() throws Exception {
+        ConcurrentLinkedQueue<StageTimings> recorded = new ConcurrentLinkedQueue<>();
+        ConcurrentLinkedQueue<Integer> batches = new ConcurrentLinkedQueue<>();
+        MetricsRecorder recorder = new MetricsRecorder() {
+            @Override
+            public void record(StageTimings timings) {
+                recorded.add(timings);
+            }
+
+            @Override
+            public void recordBatch(int batchSize) {
+                batches.add(batchSize);
+            }
+        };
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(solid(Color.ORANGE), "png", png);
+
+        AISDK sdk = AISDK.initialize(tinyModel().metricsRecorder(recorder).predictionCache(16, 60_000).build());
+        try {
+            PredictionResult result = sdk.predict(png.toByteArray());
+            StageTimings timings = result.getTimings();
+            for (Stage stage : new Stage[]{Stage.DECODE, Stage.PREPROCESS, Stage.INFERENCE, Stage.POSTPROCESS}) {
+                assertTrue(timings.get(stage) >= 0, stage + " 未计时");
+            }
+            assertEquals(-1, timings.get(Stage.QUEUE));
+            assertEquals(List.of(timings), new ArrayList<>(recorded));
+            assertEquals(List.of(1), new ArrayList<>(batches));
+
+            // 命中缓存时不推理，也不记录
+            assertNull(sdk.predict(png.toByteArray()).getTimings());
+            assertEquals(1, recorded.size());
+            assertEquals(0, sdk.getInFlight());
+        } finally {
+            sdk.close();
+        }
+
+        recorded.clear();
+        batches.clear();
+        List<BufferedImage> images = images();
+        AISDK batching = AISDK.initialize(tinyModel().metricsRecorder(recorder).batching(8, 20).build());
+        try {
+            batching.predictAsync(images).get(30, TimeUnit.SECONDS);
+        } finally {
+            batching.close();
+        }
+        assertEquals(images.size(), recorded.size());
+        assertEquals(images.size(), batches.stream().mapToInt(Integer::intValue).sum());
+        for (StageTimings timings : recorded) {
+            assertTrue(timings.get(Stage.QUEUE) >= 0);
+            assertTrue(timings.get(Stage.INFERENCE) > 0);
+            assertTrue(timings.getBatchSize() >= 1 && timings.getBatchSize() <= 8);
+        }
+    }
+
+    @Test
+    void jfrRecordingCapturesInferenceStageEvents(@TempDir Path dir) throws Exception {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(solid(Color.CYAN), "png", png);
+        Path file = dir.resolve("inference.jfr");
+
+        AISDK sdk = AISDK.initialize(new SDKConfig.Builder(tinyModelPath()).build());
+        try (Recording recording = new Recording()) {
+            recording.enable(InferenceStageEvent.class);
+            recording.start();
+            sdk.predict(png.toByteArray());
+            recording.stop();
+            recording.dump(file);
+        } finally {
+            sdk.close();
+        }
+
+        Map<String, RecordedEvent> stages = new HashMap<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+            if (event.getEventType().getName().equals("org.sqx.javaaidemo.InferenceStage")) {
+                stages.put(event.getString("stage"), event);
+            }
+        }
+        assertEquals(Set.of("decode", "preprocess", "inference", "postprocess"), stages.keySet());
+        RecordedEvent inference = stages.get("inference");
+        assertEquals("tiny_classifier.onnx", inference.getString("model"));
+        assertEquals(1, inference.getLong("modelVersion"));
+        assertEquals(320, inference.getInt("imageWidth"));
+        assertEquals(240, inference.getInt("imageHeight"));
+        assertEquals(1, inference.getInt("batchSize"));
+        assertTrue(inference.getDuration().toNanos() > 0);
+    }
+
+    @Test
+    void warmupRunsBeforeInitializeReturnsAndIsNotRecorded() throws Exception {
+        ConcurrentLinkedQueue<StageTimings> recorded = new ConcurrentLinkedQueue<>();
+        ConcurrentLinkedQueue<Integer> batches = new ConcurrentLinkedQueue<>();
+        MetricsRecorder recorder = new MetricsRecorder() {
+            @Override
+            public void record(StageTimings timings) {
+                recorded.add(timings);
+            }
+
+            @Override
+            public void recordBatch(int batchSize) {
+                batches.add(batchSize);
+            }
+        };
+        BufferedImage image = solid(Color.PINK);
+        PredictionResult expected = predictSequentially(tinyModel().build(), List.of(image)).get(0);
+
+        AISDK sdk = AISDK.initialize(tinyModel().warmup(3).sessionPoolSize(2).batching(6, 2).metricsRecorder(recorder).build());
+        try {
+            assertTrue(recorded.isEmpty());
+            assertTrue(batches.isEmpty());
+            PredictionResult result = sdk.predict(image);
+            assertEquals(expected.getClassId(), result.getClassId());
+            assertEquals(expected.getScore(), result.getScore(), 1e-5);
+            assertEquals(1, recorded.size());
+
+            sdk.reloadModel(new SDKConfig.Builder(tinyModelPath()).build()).get(30, TimeUnit.SECONDS);
+            assertEquals(2, sdk.getModelVersion());
+            assertEquals(1, recorded.size());
+        } finally {
+            sdk.close();
+        }
+    }
+
+    @Test
+    void rawTensorAndRgbInputSkipDecodeAndMatchImagePrediction() throws Exception {
+        BufferedImage image = new BufferedImage(224, 224, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 224; y++) {
+            for (int x = 0; x < 224; x++) {
+                image.setRGB(x, y, (x << 16) | (y << 8) | ((x + y) & 0xFF));
+            }
+        }
+        ByteBuffer rgb = ByteBuffer.allocate(RawInput.HEADER_BYTES + 224 * 224 * 3).order(ByteOrder.LITTLE_ENDIAN);
+        rgb.put((byte) RawInput.UINT8_HWC).put(new byte[3]).putInt(224).putInt(224).putInt(3);
+        for (int y = 0; y < 224; y++) {
+            for (int x = 0; x < 224; x++) {
+                int p = image.getRGB(x, y);
+                rgb.put((byte) (p >> 16)).put((byte) (p >> 8)).put((byte) p);
+            }
+        }
+        rgb.flip();
+        float[] chw = new ImagePreprocessor().preprocess(image);
+        ByteBuffer tensor = ByteBuffer.allocate(RawInput.HEADER_BYTES + chw.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        tensor.put((byte) RawInput.FLOAT32_CHW).put(new byte[3]).putInt(3).putInt(224).putInt(224);
+        tensor.asFloatBuffer().put(chw);
+        tensor.position(0);
+
+        AISDK sdk = AISDK.initialize(tinyModel().build());
+        try {
+            PredictionResult expected = sdk.predict(image, 3);
+            for (ByteBuffer body : List.of(rgb, tensor)) {
+                PredictionResult result = sdk.predictRaw(body, 3);
+                assertEquals(expected.getClassId(), result.getClassId());
+                assertEquals(expected.getScore(), result.getScore(), 1e-5);
+                assertEquals(-1, result.getTimings().get(Stage.DECODE));
+            }
+
+            ByteBuffer wrongSize = ByteBuffer.allocate(RawInput.HEADER_BYTES + 64 * 64 * 3).order(ByteOrder.LITTLE_ENDIAN);
+            wrongSize.put((byte) RawInput.UINT8_HWC).put(new byte[3]).putInt(64).putInt(64).putInt(3).position(0);
+            assertThrows(IllegalArgumentException.class, () -> sdk.predictRaw(wrongSize, 1));
+            ByteBuffer truncated = tensor.duplicate().limit(tensor.limit() - 4);
+            assertThrows(IllegalArgumentException.class, () -> sdk.predictRaw(truncated, 1));
+        } finally {
+            sdk.close();
+        }
+    }
+
+    @Test
+    void embedReturnsRequestedIntermediateOutput() throws Exception {
+        AISDK sdk = AISDK.initialize(tinyModel().build());
+        try {
+            List<String> outputs = sdk.getOutputNames();
+            assertTrue(outputs.contains("embedding"), outputs.toString());
+
+            float[] red = sdk.embed(solid(Color.RED), "embedding");
+            float[] again = sdk.embed(solid(Color.RED), "embedding");
+            float[] blue = sdk.embed(solid(Color.BLUE), "embedding");
+            assertEquals(3, red.length);
+            assertTrue(Arrays.equals(red, again));
+            assertFalse(Arrays.equals(red, blue));
+
+            float[] logits = sdk.embed(solid(Color.RED), outputs.get(0));
+            assertEquals(10, logits.length);
+            assertThrows(IllegalArgumentException.class, () -> sdk.embed(solid(Color.RED), "missing"));
+        } finally {
+            sdk.close();
+        }
+    }
+
+    @Test
+    void shadowModelComparesSampledRequestsOffTheCriticalPath() throws Exception {
+        AISDK sdk = AISDK.initialize(tinyModel().shadow(tinyModelPath(), 1.0).build());
+        try {
+            for (BufferedImage image : images()) {
+                sdk.predict(image);
+            }
+            sdk.predictAsync(images()).get(10, TimeUnit.SECONDS);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            ShadowStats stats = sdk.getShadowStats();
+            while (stats.getCompleted() + stats.getDropped() + stats.getFailed() < stats.getSampled() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+                stats = sdk.getShadowStats();
+            }
+            assertEquals(2L * images().size(), stats.getSampled());
+            assertEquals(0, stats.getFailed());
+            assertTrue(stats.getCompleted() > 0);
+            // 影子模型与线上模型相同，top-1 必然一致
+            assertEquals(stats.getCompleted(), stats.getAgreed());
+            assertEquals(stats.getCompleted(), stats.getLatencyDeltaMs().getCount());
+            assertEquals(stats.getCompleted(), stats.getDisagreement().getCount());
+            // 同一个模型给出同样的概率，分歧程度就是 1 - top-1 概率，必然小于 1
+            assertTrue(stats.getDisagreement().getP99() < 1);
+        } finally {
+            sdk.close();
+        }
+        AISDK withoutShadow = AISDK.initialize(tinyModel().build());
+        try {
+            assertNull(withoutShadow.getShadowStats());
+        } finally {
+            withoutShadow.close();
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> AISDK.initialize(tinyModel().shadow(modelPath("tiny_classifier_64.onnx"), 1.0).build()));
+    }
+
+    @Test
+    void predictRacingCloseNeverHangs() throws Exception {
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            for (int round = 0; round < 10; round++) {
+                AISDK sdk = AISDK.initialize(tinyModel().batching(4, 1).build());
+                BufferedImage image = solid(Color.RED);
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < 8; i++) {
+                    futures.add(callers.submit(() -> {
+                        for (int j = 0; j < 50; j++) {
+                            try {
+                                sdk.predict(image);
+                            } catch (Exception e) {
+                                // 关闭之后的请求以异常结束，只要求不挂起
+                            }
+                        }
+                        return null;
+                    }));
+                }
+                Thread.sleep(round);
+                sdk.close();
+                for (Future<?> future : futures) {
+                    future.get(10, TimeUnit.SECONDS);
+                }
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void concurrentReloadIsRejected() throws Exception {
+        // 热更新会按初始配置预热新模型，预热次数足够多时第二次调用一定落在第一次完成之前
+        AISDK sdk = AISDK.initialize(tinyModel().warmup(500).build());
+        try {
+            CompletableFuture<Void> first = sdk.reloadModel(new SDKConfig.Builder(tinyModelPath()).build());
+            CompletableFuture<Void> second = sdk.reloadModel(new SDKConfig.Builder(tinyModelPath()).build());
+            ExecutionException rejected = assertThrows(ExecutionException.class, () -> second.get(30, TimeUnit.SECONDS));
+            assertTrue(rejected.getCause() instanceof IllegalStateException);
+            first.get(30, TimeUnit.SECONDS);
+            assertEquals(2, sdk.getModelVersion());
+
+            sdk.reloadModel(new SDKConfig.Builder(tinyModelPath()).build()).get(30, TimeUnit.SECONDS);
+            assertEquals(3, sdk.getModelVersion());
+            assertTrue(sdk.predict(solid(Color.RED)).getScore() > 0);
+        } finally {
+            sdk.close();
+        }
+    }
+}
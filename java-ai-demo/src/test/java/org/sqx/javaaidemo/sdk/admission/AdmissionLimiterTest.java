@@ -0,0 +1,80 @@
+package org.sqx.javaaidemo.sdk.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AdmissionLimiterTest {
+
+    private static void awaitQueueDepth(AdmissionLimiter limiter, int depth) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (limiter.stats().getQueueDepth() != depth) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("队列长度没有达到 " + depth);
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void rejectsWhenQueueIsFullAndAdmitsQueuedRequestOnRelease() throws Exception {
+        AdmissionLimiter limiter = new AdmissionLimiter(1, 1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            AdmissionLimiter.Permit running = limiter.acquire(1000);
+            CountDownLatch admitted = new CountDownLatch(1);
+            Future<?> queued = pool.submit(() -> {
+                try (AdmissionLimiter.Permit permit = limiter.acquire(10_000)) {
+                    admitted.countDown();
+                }
+                return null;
+            });
+            awaitQueueDepth(limiter, 1);
+
+            AdmissionRejectedException rejected = assertThrows(AdmissionRejectedException.class, () -> limiter.acquire(10_000));
+            assertEquals(AdmissionRejectedException.Reason.QUEUE_FULL, rejected.getReason());
+
+            running.close();
+            queued.get(10, TimeUnit.SECONDS);
+            assertEquals(0, admitted.getCount());
+
+            AdmissionStats stats = limiter.stats();
+            assertEquals(2, stats.getAdmitted());
+            assertEquals(1, stats.getRejectedQueueFull());
+            assertEquals(0, stats.getInFlight());
+            assertEquals(0, stats.getQueueDepth());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void dropsRequestsWhoseDeadlinePassesInQueue() throws Exception {
+        AdmissionLimiter limiter = new AdmissionLimiter(1, 4);
+        try (AdmissionLimiter.Permit running = limiter.acquire(1000)) {
+            AdmissionRejectedException rejected = assertThrows(AdmissionRejectedException.class, () -> limiter.acquire(20));
+            assertEquals(AdmissionRejectedException.Reason.DEADLINE_EXCEEDED, rejected.getReason());
+        }
+        assertEquals(1, limiter.stats().getRejectedTimeout());
+        assertEquals(0, limiter.stats().getInFlight());
+    }
+
+    @Test
+    void checkDeadlineFailsAfterExpiryAndReleasesPermitOnClose() throws Exception {
+        AdmissionLimiter limiter = new AdmissionLimiter(1, 0);
+        try (AdmissionLimiter.Permit permit = limiter.acquire(10)) {
+            Thread.sleep(30);
+            assertThrows(AdmissionRejectedException.class, permit::checkDeadline);
+        }
+        assertEquals(1, limiter.stats().getExpired());
+        // 许可已归还，下一个请求可以直接进入
+        limiter.acquire(10).close();
+    }
+}
@@ -0,0 +1,67 @@
+package org.sqx.javaaidemo.sdk.cache;
+
+import org.junit.jupiter.api.Test;
+import org.sqx.javaaidemo.sdk.utils.XXHash64;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PredictionCacheTest {
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void xxHash64MatchesReferenceVectors() {
+        assertEquals(0xEF46DB3751D8E999L, XXHash64.hash(bytes("")));
+        assertEquals(0xD24EC4F1A98C6E5BL, XXHash64.hash(bytes("a")));
+        assertEquals(0x44BC2CF5AD770999L, XXHash64.hash(bytes("abc")));
+        // 超过 32 字节，覆盖四路并行累加的主循环
+        assertEquals(0xFBCEA83C8A378BF1L, XXHash64.hash(bytes("Nobody inspects the spammish repetition")));
+    }
+
+    @Test
+    void keyIncludesModelVersion() {
+        PredictionCache<String> cache = new PredictionCache<>(8, 0);
+        cache.put(PredictionCache.key(bytes("image"), 1), "v1");
+
+        assertEquals("v1", cache.get(PredictionCache.key(bytes("image"), 1)));
+        assertNull(cache.get(PredictionCache.key(bytes("image"), 2)));
+        assertNull(cache.get(PredictionCache.key(bytes("other"), 1)));
+        assertNotEquals(PredictionCache.key(bytes("image"), 1), PredictionCache.key(bytes("image"), 2));
+
+        CacheStats stats = cache.stats();
+        assertEquals(1, stats.getHits());
+        assertEquals(2, stats.getMisses());
+    }
+
+    @Test
+    void evictsOldestEntriesBeyondCapacity() {
+        PredictionCache<Integer> cache = new PredictionCache<>(3, 0);
+        for (int i = 0; i < 5; i++) {
+            cache.put(PredictionCache.key(bytes("image-" + i), 1), i);
+        }
+
+        assertNull(cache.get(PredictionCache.key(bytes("image-0"), 1)));
+        assertNull(cache.get(PredictionCache.key(bytes("image-1"), 1)));
+        assertEquals(4, cache.get(PredictionCache.key(bytes("image-4"), 1)));
+        assertEquals(3, cache.stats().getSize());
+        assertEquals(2, cache.stats().getEvictions());
+    }
+
+    @Test
+    void expiresEntriesAfterTtl() throws Exception {
+        PredictionCache<String> cache = new PredictionCache<>(8, 20);
+        PredictionCache.Key key = PredictionCache.key(bytes("image"), 1);
+        cache.put(key, "result");
+        assertEquals("result", cache.get(key));
+
+        Thread.sleep(50);
+        assertNull(cache.get(key));
+        assertEquals(0, cache.stats().getSize());
+    }
+}
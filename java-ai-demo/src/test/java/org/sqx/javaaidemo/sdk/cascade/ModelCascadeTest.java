@@ -0,0 +1,106 @@
+package org.sqx.javaaidemo.sdk.cascade;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.sqx.javaaidemo.sdk.AISDK;
+import org.sqx.javaaidemo.sdk.model.PredictionResult;
+import org.sqx.javaaidemo.sdk.model.SDKConfig;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 第一级为 tiny_classifier_64.onnx（64x64 输入），第二级为 tiny_classifier.onnx（224x224 输入）
+ */
+class ModelCascadeTest {
+
+    private static AISDK small;
+    private static AISDK large;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        small = AISDK.initialize(new SDKConfig.Builder(modelPath("tiny_classifier_64.onnx")).build());
+        large = AISDK.initialize(new SDKConfig.Builder(modelPath("tiny_classifier.onnx")).build());
+    }
+
+    @AfterAll
+    static void tearDown() throws Exception {
+        small.close();
+        large.close();
+    }
+
+    private static Path modelPath(String name) throws Exception {
+        return Path.of(ModelCascadeTest.class.getClassLoader().getResource("models/" + name).toURI());
+    }
+
+    private static BufferedImage solid(Color color) {
+        BufferedImage img = new BufferedImage(320, 240, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = img.createGraphics();
+        g.setColor(color);
+        g.fillRect(0, 0, 320, 240);
+        g.dispose();
+        return img;
+    }
+
+    @Test
+    void confidentPredictionsStopAtFirstLevel() throws Exception {
+        BufferedImage red = solid(Color.RED);
+        BufferedImage blue = solid(Color.BLUE);
+        PredictionResult redSmall = small.predict(red, 3);
+        PredictionResult blueSmall = small.predict(blue, 3);
+        // 阈值落在两张图片的第一级置信度之间：置信度高的一张在第一级返回，另一张升级到第二级
+        float threshold = (redSmall.getScore() + blueSmall.getScore()) / 2;
+        BufferedImage confident = redSmall.getScore() > blueSmall.getScore() ? red : blue;
+        BufferedImage uncertain = confident == red ? blue : red;
+
+        List<long[]> recorded = new ArrayList<>();
+        ModelCascade cascade = new ModelCascade.Builder()
+                .level("small", small, threshold)
+                .level("large", large)
+                .recorder((level, name, nanos, escalated) -> recorded.add(new long[]{level, escalated ? 1 : 0}))
+                .build();
+
+        CascadeResult first = cascade.predict(confident, 3);
+        assertEquals(0, first.getLevel());
+        assertEquals("small", first.getName());
+        assertEquals(1, first.getLevelNanos().length);
+        assertEquals(small.predict(confident, 3).getTopK().toString(), first.getResult().getTopK().toString());
+
+        CascadeResult second = cascade.predict(uncertain, 3);
+        assertEquals(1, second.getLevel());
+        assertEquals("large", second.getName());
+        assertEquals(2, second.getLevelNanos().length);
+        assertEquals(large.predict(uncertain, 3).getTopK().toString(), second.getResult().getTopK().toString());
+
+        CascadeStats stats = cascade.getStats();
+        assertEquals(2, stats.getRequests());
+        assertEquals(0.5, stats.getEscalationRate(), 1e-9);
+        assertEquals(2, stats.getLevels().get(0).getRequests());
+        assertEquals(1, stats.getLevels().get(0).getAnswered());
+        assertEquals(1, stats.getLevels().get(1).getRequests());
+        assertEquals(0, stats.getLevels().get(1).getEscalated());
+        assertEquals(3, recorded.size());
+        assertEquals(1, recorded.get(1)[1]);
+        assertEquals(1, recorded.get(2)[0]);
+    }
+
+    @Test
+    void lastLevelAlwaysAnswers() throws Exception {
+        ModelCascade cascade = new ModelCascade.Builder()
+                .level("small", small, 1)
+                .level("large", large, 1)
+                .build();
+        assertEquals(1, cascade.predict(solid(Color.GREEN)).getLevel());
+        assertEquals(1.0, cascade.getStats().getEscalationRate(), 1e-9);
+
+        assertThrows(IllegalArgumentException.class, () -> new ModelCascade.Builder().build());
+        assertThrows(IllegalArgumentException.class, () -> new ModelCascade.Builder().level("small", small, 1.5f));
+    }
+}
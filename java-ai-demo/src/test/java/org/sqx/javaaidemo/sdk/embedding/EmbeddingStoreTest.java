@@ -0,0 +1,114 @@
+package org.sqx.javaaidemo.sdk.embedding;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmbeddingStoreTest {
+
+    private static final int DIMENSION = 13;
+
+    private static float[][] randomVectors(int count, long seed) {
+        Random random = new Random(seed);
+        float[][] vectors = new float[count][DIMENSION];
+        for (float[] vector : vectors) {
+            for (int i = 0; i < DIMENSION; i++) {
+                vector[i] = (float) random.nextGaussian();
+            }
+        }
+        return vectors;
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0;
+        double na = 0;
+        double nb = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            na += a[i] * a[i];
+            nb += b[i] * b[i];
+        }
+        return dot / Math.sqrt(na * nb);
+    }
+
+    private static void assertMatchesBruteForce(EmbeddingStore store, float[][] vectors, float[] query, int k) {
+        List<Integer> expected = IntStream.range(0, vectors.length).boxed()
+                .sorted(Comparator.comparingDouble((Integer i) -> cosine(vectors[i], query)).reversed())
+                .limit(k)
+                .toList();
+        List<Neighbor> neighbors = store.search(query, k);
+        assertEquals(expected.size(), neighbors.size());
+        for (int i = 0; i < neighbors.size(); i++) {
+            // id = 行号 * 10，与行号区分开
+            assertEquals(expected.get(i) * 10L, neighbors.get(i).getId());
+            assertEquals(cosine(vectors[expected.get(i)], query), neighbors.get(i).getScore(), 1e-5);
+        }
+    }
+
+    @Test
+    void searchMatchesBruteForceAcrossSegmentsAndBlocks() {
+        float[][] vectors = randomVectors(20_000, 1);
+        // 每段 1000 行，段边界与并行块（8192 行）边界错开
+        EmbeddingStore store = new EmbeddingStore(DIMENSION, 1000L * DIMENSION * Float.BYTES);
+        for (int i = 0; i < vectors.length; i++) {
+            store.add(i * 10L, vectors[i]);
+        }
+        assertEquals(vectors.length, store.size());
+        for (float[] query : randomVectors(5, 2)) {
+            assertMatchesBruteForce(store, vectors, query, 10);
+        }
+        assertMatchesBruteForce(store, vectors, vectors[12_345], 1);
+        assertEquals(1.0, store.search(vectors[12_345], 1).get(0).getScore(), 1e-5);
+
+        assertThrows(IllegalArgumentException.class, () -> store.add(1, new float[DIMENSION + 1]));
+        assertThrows(IllegalArgumentException.class, () -> store.add(1, new float[DIMENSION]));
+        assertThrows(IllegalArgumentException.class, () -> store.search(vectors[0], 0));
+    }
+
+    @Test
+    void smallStoreReturnsAllVectorsWhenKExceedsSize() {
+        float[][] vectors = randomVectors(3, 3);
+        EmbeddingStore store = new EmbeddingStore(DIMENSION);
+        for (int i = 0; i < vectors.length; i++) {
+            store.add(i * 10L, vectors[i]);
+        }
+        assertMatchesBruteForce(store, vectors, vectors[1], 10);
+        assertTrue(new EmbeddingStore(DIMENSION).search(vectors[0], 5).isEmpty());
+    }
+
+    @Test
+    void savedStoreOpensMemoryMappedWithSameResults(@TempDir Path dir) throws Exception {
+        float[][] vectors = randomVectors(3_001, 4);
+        EmbeddingStore store = new EmbeddingStore(DIMENSION, 700L * DIMENSION * Float.BYTES);
+        for (int i = 0; i < vectors.length; i++) {
+            store.add(i * 10L, vectors[i]);
+        }
+        Path file = dir.resolve("vectors.emb");
+        store.save(file);
+
+        EmbeddingStore opened = EmbeddingStore.open(file);
+        assertTrue(opened.isReadOnly());
+        assertEquals(DIMENSION, opened.getDimension());
+        assertEquals(vectors.length, opened.size());
+        for (float[] query : randomVectors(3, 5)) {
+            assertEquals(store.search(query, 7).toString(), opened.search(query, 7).toString());
+            assertMatchesBruteForce(opened, vectors, query, 7);
+        }
+        assertThrows(IllegalStateException.class, () -> opened.add(1, vectors[0]));
+
+        EmbeddingStore empty = new EmbeddingStore(DIMENSION);
+        empty.save(dir.resolve("empty.emb"));
+        assertEquals(0, EmbeddingStore.open(dir.resolve("empty.emb")).size());
+        assertThrows(IOException.class, () -> EmbeddingStore.open(dir.resolve("missing.emb")));
+    }
+}
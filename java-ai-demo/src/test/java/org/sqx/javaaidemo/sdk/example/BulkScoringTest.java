@@ -0,0 +1,67 @@
+package org.sqx.javaaidemo.sdk.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class BulkScoringTest {
+
+    private static final String MODEL = "src/test/resources/models/tiny_classifier.onnx";
+
+    /**
+     * 图片数量多于各阶段队列容量之和，写结果阶段不消费时上游一定会阻塞
+     */
+    private static Path writeImages(Path dir, int count) throws IOException {
+        Path images = Files.createDirectories(dir.resolve("images"));
+        BufferedImage image = new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB);
+        for (int i = 0; i < count; i++) {
+            image.setRGB(i % 8, i / 8 % 8, 0xFFFFFF);
+            ImageIO.write(image, "png", images.resolve(String.format("%04d.png", i)).toFile());
+        }
+        return images;
+    }
+
+    @Test
+    void scoresDirectoryToCsv(@TempDir Path dir) throws Exception {
+        Path images = writeImages(dir, 20);
+        Path output = dir.resolve("scores.csv");
+
+        int status = BulkScoring.run(new String[]{MODEL, images.toString(), output.toString(), "--batch", "4"});
+
+        assertEquals(0, status);
+        List<String> lines = Files.readAllLines(output);
+        assertEquals(21, lines.size());
+        assertEquals("index,path,class_id,score,top_k,error", lines.get(0));
+    }
+
+    @Test
+    void unwritableOutputFailsInsteadOfHanging(@TempDir Path dir) throws Exception {
+        Path images = writeImages(dir, 600);
+        Path output = dir.resolve("missing").resolve("scores.csv");
+
+        int status = assertTimeoutPreemptively(Duration.ofSeconds(30),
+                () -> BulkScoring.run(new String[]{MODEL, images.toString(), output.toString(), "--batch", "4"}));
+
+        assertEquals(1, status);
+    }
+
+    @Test
+    void unreadableImageListFails(@TempDir Path dir) throws Exception {
+        Path list = dir.resolve("missing.txt");
+
+        int status = assertTimeoutPreemptively(Duration.ofSeconds(30),
+                () -> BulkScoring.run(new String[]{MODEL, list.toString(), dir.resolve("scores.csv").toString()}));
+
+        assertEquals(1, status);
+    }
+}
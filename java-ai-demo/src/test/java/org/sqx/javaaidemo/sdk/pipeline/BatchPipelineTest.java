@@ -0,0 +1,208 @@
+package org.sqx.javaaidemo.sdk.pipeline;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchPipelineTest {
+
+    private static final int IMAGE_SIZE = 3 * 4 * 4;
+
+    /**
+     * 测试用预处理：缩放到 4x4，第一个值是左上角像素的红色分量，用来核对结果属于哪张图片
+     */
+    private static void preprocess(BufferedImage image, FloatBuffer dst) {
+        int red = (image.getRGB(0, 0) >> 16) & 0xFF;
+        for (int i = 0; i < IMAGE_SIZE; i++) {
+            dst.put(i == 0 ? red : 0);
+        }
+    }
+
+    private static byte[] png(int red) throws IOException {
+        BufferedImage img = new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = img.createGraphics();
+        g.setColor(new Color(red, 0, 0));
+        g.fillRect(0, 0, 8, 8);
+        g.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(img, "png", out);
+        return out.toByteArray();
+    }
+
+    private static byte[] zip(Map<String, byte[]> entries) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            zip.putNextEntry(new ZipEntry("images/"));
+            zip.closeEntry();
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                zip.write(entry.getValue());
+                zip.closeEntry();
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static void tarEntry(ByteArrayOutputStream out, String name, byte type, byte[] content) throws IOException {
+        byte[] header = new byte[512];
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(nameBytes, 0, header, 0, Math.min(100, nameBytes.length));
+        byte[] size = String.format("%011o", content.length).getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(size, 0, header, 124, size.length);
+        header[156] = type;
+        System.arraycopy("ustar".getBytes(StandardCharsets.US_ASCII), 0, header, 257, 5);
+        out.write(header);
+        out.write(content);
+        out.write(new byte[(512 - content.length % 512) % 512]);
+    }
+
+    private static byte[] tar(Map<String, byte[]> entries) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        tarEntry(out, "images/", (byte) '5', new byte[0]);
+        for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+            String name = entry.getKey();
+            if (name.length() > 100) {
+                // GNU 长文件名
+                tarEntry(out, "././@LongLink", (byte) 'L', (name + "\0").getBytes(StandardCharsets.UTF_8));
+            }
+            tarEntry(out, name, (byte) '0', entry.getValue());
+        }
+        out.write(new byte[1024]);
+        return out.toByteArray();
+    }
+
+    private static Map<String, byte[]> images(int count) throws IOException {
+        Map<String, byte[]> entries = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            entries.put("images/img-" + i + ".png", png(i));
+        }
+        entries.put("images/broken.png", new byte[]{1, 2, 3});
+        entries.put("images/.DS_Store", new byte[]{0});
+        entries.put("images/" + "x".repeat(120) + ".png", png(200));
+        return entries;
+    }
+
+    private static List<BatchPipeline.Outcome<Integer>> run(BatchPipeline pipeline, ImageEntrySource source,
+                                                            int maxBatchSize, AtomicInteger batches) throws Exception {
+        List<BatchPipeline.Outcome<Integer>> outcomes = new ArrayList<>();
+        pipeline.run(source, inputs -> {
+            assertTrue(inputs.size() <= maxBatchSize);
+            batches.incrementAndGet();
+            List<Integer> results = new ArrayList<>();
+            for (FloatBuffer input : inputs) {
+                assertEquals(IMAGE_SIZE, input.remaining());
+                results.add((int) input.get(input.position()));
+            }
+            return results;
+        }, outcomes::add);
+        return outcomes;
+    }
+
+    private static void assertOutcomes(Map<String, byte[]> entries, List<BatchPipeline.Outcome<Integer>> outcomes) {
+        // 隐藏文件被跳过
+        assertEquals(entries.size() - 1, outcomes.size());
+        boolean[] seen = new boolean[outcomes.size()];
+        for (BatchPipeline.Outcome<Integer> outcome : outcomes) {
+            seen[outcome.getIndex()] = true;
+            String name = outcome.getName();
+            if (name.endsWith("broken.png")) {
+                assertNull(outcome.getResult());
+                assertNotNull(outcome.getError());
+            } else if (name.startsWith("images/x")) {
+                assertEquals(200, outcome.getResult());
+            } else {
+                String id = name.substring("images/img-".length(), name.length() - ".png".length());
+                assertEquals(Integer.parseInt(id), outcome.getResult());
+            }
+        }
+        for (boolean s : seen) {
+            assertTrue(s);
+        }
+    }
+
+    @Test
+    void zipAndTarUploadsProduceOneOutcomePerImage() throws Exception {
+        Map<String, byte[]> entries = images(100);
+        try (BatchPipeline pipeline = new BatchPipeline(BatchPipelineTest::preprocess, IMAGE_SIZE, 8, 4)) {
+            AtomicInteger batches = new AtomicInteger();
+            assertOutcomes(entries, run(pipeline, ImageEntrySource.zip(new ByteArrayInputStream(zip(entries))), 8, batches));
+            // 解码比推理快时会凑成多张一批
+            assertTrue(batches.get() < 100);
+
+            assertOutcomes(entries, run(pipeline, ImageEntrySource.tar(new ByteArrayInputStream(tar(entries))), 8, new AtomicInteger()));
+        }
+    }
+
+    @Test
+    void readFailureIsReportedAfterCompletedEntries() throws Exception {
+        byte[] truncated = zip(images(10));
+        truncated = Arrays.copyOf(truncated, truncated.length / 2);
+        try (BatchPipeline pipeline = new BatchPipeline(BatchPipelineTest::preprocess, IMAGE_SIZE, 4, 2)) {
+            List<BatchPipeline.Outcome<Integer>> outcomes = new ArrayList<>();
+            byte[] content = truncated;
+            Exception failure = assertThrows(Exception.class, () ->
+                    pipeline.run(ImageEntrySource.zip(new ByteArrayInputStream(content)),
+                            inputs -> new ArrayList<>(Collections.nCopies(inputs.size(), 0)), outcomes::add));
+            assertTrue(failure instanceof IOException);
+            assertTrue(outcomes.size() < 12);
+        }
+    }
+
+    @Test
+    void sinkFailureCancelsDecodingAndReleasesBuffers() throws Exception {
+        Map<String, byte[]> entries = images(200);
+        Set<FloatBuffer> buffers = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+        AtomicInteger preprocessed = new AtomicInteger();
+        BatchPipeline.Preprocessor preprocessor = (image, dst) -> {
+            buffers.add(dst);
+            preprocessed.incrementAndGet();
+            preprocess(image, dst);
+        };
+        try (BatchPipeline pipeline = new BatchPipeline(preprocessor, IMAGE_SIZE, 4, 2)) {
+            AtomicInteger accepted = new AtomicInteger();
+            // 模拟客户端在收到几行结果后断开
+            IOException failure = assertThrows(IOException.class, () ->
+                    pipeline.run(ImageEntrySource.zip(new ByteArrayInputStream(zip(entries))),
+                            inputs -> new ArrayList<>(Collections.nCopies(inputs.size(), 0)), outcome -> {
+                                if (accepted.incrementAndGet() == 3) {
+                                    throw new IOException("Broken pipe");
+                                }
+                            }));
+            assertEquals("Broken pipe", failure.getMessage());
+
+            // 已提交的解码任务执行完后，每个分配过的缓冲区都回到池中
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (pipeline.idleBuffers() != buffers.size() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(buffers.size(), pipeline.idleBuffers());
+            // 同时在途的条目不超过 maxInFlight，之后的条目不再读取和解码
+            assertTrue(preprocessed.get() <= 4 * 2 + 2 + 3, "preprocessed " + preprocessed.get());
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package org.sqx.javaaidemo.sdk.shadow;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HistogramTest {
+
+    @Test
+    void quantilesUseBucketUpperBounds() {
+        Histogram histogram = new Histogram(-1, 0, 1, 10);
+        assertEquals(0, histogram.snapshot().getP99());
+
+        // 90 个 0.5，9 个 5，1 个 42
+        IntStream.range(0, 90).parallel().forEach(i -> histogram.record(0.5));
+        for (int i = 0; i < 9; i++) {
+            histogram.record(5);
+        }
+        histogram.record(42);
+
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(100, snapshot.getCount());
+        assertArrayEquals(new long[]{0, 0, 90, 9, 1}, snapshot.getCounts());
+        assertEquals(1, snapshot.getP50());
+        assertEquals(1, snapshot.getP90());
+        assertEquals(10, snapshot.getP99());
+        // 超过最大上界的部分用记录到的最大值
+        assertEquals(42, snapshot.quantile(1));
+    }
+
+    @Test
+    void boundsAreInclusiveAndNegativeValuesLandInLowerBuckets() {
+        Histogram histogram = new Histogram(-1, 0, 1);
+        histogram.record(-5);
+        histogram.record(-1);
+        histogram.record(0);
+        histogram.record(1);
+        assertArrayEquals(new long[]{2, 1, 1, 0}, histogram.snapshot().getCounts());
+        assertEquals(-1, histogram.snapshot().quantile(0.5));
+    }
+
+    @Test
+    void rejectsInvalidBounds() {
+        assertThrows(IllegalArgumentException.class, Histogram::new);
+        assertThrows(IllegalArgumentException.class, () -> new Histogram(1, 1));
+        assertThrows(IllegalArgumentException.class, () -> new Histogram(1).snapshot().quantile(1.5));
+    }
+}
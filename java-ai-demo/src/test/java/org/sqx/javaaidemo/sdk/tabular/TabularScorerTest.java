@@ -0,0 +1,120 @@
+package org.sqx.javaaidemo.sdk.tabular;
+
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtSession;
+import org.junit.jupiter.api.Test;
+import org.sqx.javaaidemo.sdk.utils.TensorBufferPool;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * tiny_logreg.onnx：X[N,5] -> MatMul(W) -> Sigmoid -> Y[N]，W = [0.8, -0.5, 0.3, -1.2, 0.6]
+ */
+class TabularScorerTest {
+
+    private static final float[] WEIGHTS = {0.8f, -0.5f, 0.3f, -1.2f, 0.6f};
+    private static final int ROWS = 10;
+
+    private static TabularScorer scorer(int chunkRows) throws Exception {
+        Path model = Path.of(TabularScorerTest.class.getClassLoader().getResource("models/tiny_logreg.onnx").toURI());
+        OrtEnvironment env = OrtEnvironment.getEnvironment();
+        return new TabularScorer(env, env.createSession(model.toString(), new OrtSession.SessionOptions()), chunkRows);
+    }
+
+    private static float[] rows() {
+        float[] values = new float[ROWS * WEIGHTS.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (float) Math.sin(i * 0.7) * 3;
+        }
+        return values;
+    }
+
+    private static float expected(float[] values, int row) {
+        double z = 0;
+        for (int f = 0; f < WEIGHTS.length; f++) {
+            z += values[row * WEIGHTS.length + f] * WEIGHTS[f];
+        }
+        return (float) (1 / (1 + Math.exp(-z)));
+    }
+
+    private static void assertMatches(float[] values, TabularScores scores) {
+        assertEquals(ROWS, scores.getRowCount());
+        assertEquals(2, scores.getClassCount());
+        for (int r = 0; r < ROWS; r++) {
+            float positive = expected(values, r);
+            assertEquals(positive, scores.getProbability(r, 1), 1e-5);
+            assertEquals(1 - positive, scores.getProbability(r, 0), 1e-5);
+            assertEquals(positive >= 0.5f ? 1 : 0, scores.getClassId(r));
+        }
+    }
+
+    @Test
+    void scoresHeapAndDirectRowsInChunks() throws Exception {
+        float[] values = rows();
+        try (TabularScorer scorer = scorer(3)) {
+            assertEquals(5, scorer.getFeatureCount());
+            assertEquals(2, scorer.getClassCount());
+            assertMatches(values, scorer.score(FloatBuffer.wrap(values), ROWS));
+
+            FloatBuffer direct = TensorBufferPool.allocateDirect(values.length);
+            direct.put(values).flip();
+            assertMatches(values, scorer.score(direct, ROWS));
+
+            assertThrows(IllegalArgumentException.class, () -> scorer.score(FloatBuffer.wrap(values), ROWS - 1));
+        }
+    }
+
+    @Test
+    void columnarFormatRoundTrips() throws Exception {
+        float[] values = rows();
+        int features = WEIGHTS.length;
+        ByteBuffer request = ByteBuffer.allocate(8 + values.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        request.putInt(ROWS).putInt(features);
+        for (int f = 0; f < features; f++) {
+            for (int r = 0; r < ROWS; r++) {
+                request.putFloat(values[r * features + f]);
+            }
+        }
+
+        FloatBuffer rowMajor = FeatureColumns.read(new ByteArrayInputStream(request.array()), features, 1000);
+        float[] decoded = new float[values.length];
+        rowMajor.duplicate().get(decoded);
+        assertArrayEquals(values, decoded);
+
+        TabularScores scores;
+        try (TabularScorer scorer = scorer(1024)) {
+            scores = scorer.score(rowMajor, ROWS);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FeatureColumns.write(scores, out);
+        ByteBuffer response = ByteBuffer.wrap(out.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(8 + ROWS * Integer.BYTES + ROWS * 2 * Float.BYTES, response.remaining());
+        assertEquals(ROWS, response.getInt());
+        assertEquals(2, response.getInt());
+        for (int r = 0; r < ROWS; r++) {
+            assertEquals(scores.getClassId(r), response.getInt());
+        }
+        for (int r = 0; r < ROWS; r++) {
+            assertEquals(1 - expected(values, r), response.getFloat(), 1e-5);
+            assertEquals(expected(values, r), response.getFloat(), 1e-5);
+        }
+
+        assertThrows(IllegalArgumentException.class,
+                () -> FeatureColumns.read(new ByteArrayInputStream(request.array()), features + 1, 1000));
+        assertThrows(IllegalArgumentException.class,
+                () -> FeatureColumns.read(new ByteArrayInputStream(request.array()), features, ROWS - 1));
+        assertThrows(EOFException.class,
+                () -> FeatureColumns.read(new ByteArrayInputStream(Arrays.copyOf(request.array(), 40)), features, 1000));
+    }
+}
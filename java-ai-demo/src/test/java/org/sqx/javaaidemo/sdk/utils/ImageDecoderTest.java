@@ -0,0 +1,72 @@
+package org.sqx.javaaidemo.sdk.utils;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImageDecoderTest {
+
+    private static byte[] encode(BufferedImage img, String format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(img, format, out);
+        return out.toByteArray();
+    }
+
+    private static BufferedImage gradient(int width, int height) {
+        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = x * 255 / width;
+                int g = y * 255 / height;
+                int b = (x + y) * 255 / (width + height);
+                img.setRGB(x, y, (r << 16) | (g << 8) | b);
+            }
+        }
+        return img;
+    }
+
+    @Test
+    void largeJpegIsSubsampledButStillCoversModelInput() throws Exception {
+        byte[] jpeg = encode(gradient(2400, 1800), "jpg");
+        BufferedImage decoded = new ImageDecoder().decode(jpeg);
+        // 2400/224=10、1800/224=8，按 8 倍采样
+        assertEquals(300, decoded.getWidth());
+        assertEquals(225, decoded.getHeight());
+
+        ImagePreprocessor preprocessor = new ImagePreprocessor();
+        float[] expected = preprocessor.preprocess(ImageIO.read(new ByteArrayInputStream(jpeg)));
+        float[] actual = preprocessor.preprocess(decoded);
+        double diff = 0;
+        for (int i = 0; i < expected.length; i++) {
+            diff += Math.abs(expected[i] - actual[i]);
+        }
+        // 平均误差小于 2 个灰度级
+        assertTrue(diff / expected.length < 2 / 255.0 / 0.224, "平均误差 " + diff / expected.length);
+    }
+
+    @Test
+    void smallImagesDecodeAtFullResolution() throws Exception {
+        byte[] png = encode(gradient(320, 240), "png");
+        BufferedImage expected = ImageIO.read(new ByteArrayInputStream(png));
+        BufferedImage actual = new ImageDecoder().decode(png);
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        assertEquals(expected.getRGB(100, 100), actual.getRGB(100, 100));
+
+        // 一边小于目标尺寸时不采样
+        assertEquals(1, new ImageDecoder().subsampling(4000, 300));
+        assertEquals(13, new ImageDecoder().subsampling(4000, 3000));
+    }
+
+    @Test
+    void unknownFormatReturnsNull() throws Exception {
+        assertNull(new ImageDecoder().decode("not an image".getBytes()));
+    }
+}
@@ -0,0 +1,186 @@
+package org.sqx.javaaidemo.sdk.utils;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.InputStream;
+import java.nio.FloatBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 把 RasterPreprocessor 的输出与原先 getScaledInstance(SCALE_SMOOTH) + getRGB 的实现逐像素对比
+ */
+class ImagePreprocessorAccuracyTest {
+
+    private static final float[] MEANS = {0.485f, 0.456f, 0.406f};
+    private static final float[] STDS = {0.229f, 0.224f, 0.225f};
+    /** 归一化后一个灰度级约为 1/255/0.224 ≈ 0.0175 */
+    private static final float ONE_LEVEL = 1 / 255.0f / 0.224f;
+
+    /**
+     * 原实现，保留在测试中作为精度基准
+     */
+    private static float[] legacy(BufferedImage img, int width, int height) {
+        Image scaled = img.getScaledInstance(width, height, Image.SCALE_SMOOTH);
+        BufferedImage resized = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = resized.createGraphics();
+        g2d.drawImage(scaled, 0, 0, null);
+        g2d.dispose();
+
+        float[] input = new float[3 * width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int rgb = resized.getRGB(x, y);
+                int r = (rgb >> 16) & 0xFF;
+                int g = (rgb >> 8) & 0xFF;
+                int b = rgb & 0xFF;
+                input[y * width + x] = ((r / 255.0f - MEANS[0]) / STDS[0]);
+                input[width * height + y * width + x] = ((g / 255.0f - MEANS[1]) / STDS[1]);
+                input[2 * width * height + y * width + x] = ((b / 255.0f - MEANS[2]) / STDS[2]);
+            }
+        }
+        return input;
+    }
+
+    private static BufferedImage cat() throws Exception {
+        try (InputStream in = ImagePreprocessorAccuracyTest.class.getClassLoader().getResourceAsStream("images/cat.jpg")) {
+            return ImageIO.read(in);
+        }
+    }
+
+    private static BufferedImage convert(BufferedImage src, int type) {
+        BufferedImage dst = new BufferedImage(src.getWidth(), src.getHeight(), type);
+        Graphics2D g = dst.createGraphics();
+        g.drawImage(src, 0, 0, null);
+        g.dispose();
+        return dst;
+    }
+
+    private static BufferedImage gradientWithNoise(int width, int height, int type) {
+        BufferedImage img = new BufferedImage(width, height, type);
+        Random random = new Random(42);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = Math.min(255, x * 255 / width + random.nextInt(16));
+                int g = Math.min(255, y * 255 / height + random.nextInt(16));
+                int b = Math.min(255, (x + y) * 255 / (width + height) + random.nextInt(16));
+                img.setRGB(x, y, (r << 16) | (g << 8) | b);
+            }
+        }
+        return img;
+    }
+
+    private static void assertClose(BufferedImage img, int width, int height) {
+        float[] expected = legacy(img, width, height);
+        float[] actual = new ImagePreprocessor().preprocess(img, width, height);
+        assertEquals(expected.length, actual.length);
+
+        double sumDiff = 0;
+        float maxDiff = 0;
+        for (int i = 0; i < expected.length; i++) {
+            float diff = Math.abs(expected[i] - actual[i]);
+            sumDiff += diff;
+            maxDiff = Math.max(maxDiff, diff);
+        }
+        double meanDiff = sumDiff / expected.length;
+        String message = "type=" + img.getType() + " " + img.getWidth() + "x" + img.getHeight()
+                + " -> " + width + "x" + height + " mean=" + meanDiff + " max=" + maxDiff;
+        // 原实现缩放后会量化到 8 位，新实现保留浮点精度，平均误差应在半个灰度级以内
+        assertTrue(meanDiff < 0.5 * ONE_LEVEL, message);
+        assertTrue(maxDiff < 2 * ONE_LEVEL, message);
+    }
+
+    @Test
+    void threeByteBgrMatchesLegacy() throws Exception {
+        BufferedImage img = cat();
+        assertEquals(BufferedImage.TYPE_3BYTE_BGR, img.getType());
+        assertClose(img, 224, 224);
+    }
+
+    @Test
+    void intRgbMatchesLegacy() throws Exception {
+        assertClose(convert(cat(), BufferedImage.TYPE_INT_RGB), 224, 224);
+        assertClose(gradientWithNoise(1000, 750, BufferedImage.TYPE_INT_RGB), 224, 224);
+    }
+
+    @Test
+    void grayMatchesLegacy() throws Exception {
+        assertClose(convert(cat(), BufferedImage.TYPE_BYTE_GRAY), 224, 224);
+    }
+
+    @Test
+    void fallbackTypesMatchLegacy() throws Exception {
+        assertClose(convert(cat(), BufferedImage.TYPE_INT_BGR), 224, 224);
+        assertClose(convert(cat(), BufferedImage.TYPE_USHORT_565_RGB), 224, 224);
+    }
+
+    private static BufferedImage translucent(BufferedImage src, int alpha, int type) {
+        BufferedImage dst = new BufferedImage(src.getWidth(), src.getHeight(), type);
+        for (int y = 0; y < src.getHeight(); y++) {
+            for (int x = 0; x < src.getWidth(); x++) {
+                dst.setRGB(x, y, alpha << 24 | (src.getRGB(x, y) & 0xFFFFFF));
+            }
+        }
+        return dst;
+    }
+
+    @Test
+    void translucentImagesAreCompositedOverBlack() throws Exception {
+        // 原实现 drawImage 到 TYPE_INT_RGB 画布，透明部分合成为黑色
+        BufferedImage img = cat();
+        assertClose(translucent(img, 128, BufferedImage.TYPE_INT_ARGB), 224, 224);
+        assertClose(translucent(img, 64, BufferedImage.TYPE_4BYTE_ABGR), 224, 224);
+        assertClose(translucent(gradientWithNoise(224, 224, BufferedImage.TYPE_INT_RGB), 0, BufferedImage.TYPE_INT_ARGB), 224, 224);
+
+        // getScaledInstance 对预乘图片会丢掉透明度，不能作为基准；与未预乘的同一张图片对比，只差预乘的舍入
+        ImagePreprocessor preprocessor = new ImagePreprocessor();
+        float[] expected = preprocessor.preprocess(translucent(img, 200, BufferedImage.TYPE_INT_ARGB), 224, 224);
+        float[] actual = preprocessor.preprocess(translucent(img, 200, BufferedImage.TYPE_INT_ARGB_PRE), 224, 224);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], actual[i], ONE_LEVEL);
+        }
+    }
+
+    @Test
+    void upscaleAndIdentityMatchLegacy() throws Exception {
+        assertClose(gradientWithNoise(100, 80, BufferedImage.TYPE_3BYTE_BGR), 224, 224);
+        assertClose(gradientWithNoise(224, 224, BufferedImage.TYPE_INT_RGB), 224, 224);
+        assertClose(gradientWithNoise(1000, 750, BufferedImage.TYPE_INT_RGB).getSubimage(100, 50, 600, 500), 224, 224);
+    }
+
+    @Test
+    void bilinearStaysCloseToAreaOnSmoothImages() {
+        BufferedImage img = gradientWithNoise(448, 448, BufferedImage.TYPE_INT_RGB);
+        float[] area = new ImagePreprocessor().preprocess(img, 224, 224);
+        float[] bilinear = new ImagePreprocessor(RasterPreprocessor.Resampling.BILINEAR).preprocess(img, 224, 224);
+        double sumDiff = 0;
+        for (int i = 0; i < area.length; i++) {
+            sumDiff += Math.abs(area[i] - bilinear[i]);
+        }
+        // 2 倍缩小时双线性正好取 2x2 邻域的平均，与区域平均一致
+        assertTrue(sumDiff / area.length < 1e-4, "mean=" + sumDiff / area.length);
+    }
+
+    @Test
+    void reusedScratchMatchesFreshBuffers() throws Exception {
+        ImagePreprocessor preprocessor = new ImagePreprocessor();
+        RasterPreprocessor.Scratch scratch = new RasterPreprocessor.Scratch();
+        // 源尺寸和目标尺寸来回变化，复用的权重表和行缓冲不能残留上一张图片的状态
+        BufferedImage[] images = {cat(), gradientWithNoise(1000, 750, BufferedImage.TYPE_INT_RGB), cat(),
+                gradientWithNoise(100, 80, BufferedImage.TYPE_3BYTE_BGR)};
+        int[] sizes = {224, 224, 160, 224};
+        for (int i = 0; i < images.length; i++) {
+            int size = sizes[i];
+            float[] expected = preprocessor.preprocess(images[i], size, size);
+            float[] actual = new float[expected.length];
+            preprocessor.preprocess(images[i], size, size, FloatBuffer.wrap(actual), scratch);
+            assertArrayEquals(expected, actual);
+        }
+    }
+}
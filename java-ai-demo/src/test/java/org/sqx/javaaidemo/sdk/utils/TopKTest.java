@@ -0,0 +1,84 @@
+package org.sqx.javaaidemo.sdk.utils;
+
+import org.junit.jupiter.api.Test;
+import org.sqx.javaaidemo.sdk.model.ClassScore;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TopKTest {
+
+    /**
+     * 原来的实现：先算完整的概率数组，再排序
+     */
+    private static double[] softmax(float[] logits, float temperature) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (float v : logits) {
+            max = Math.max(max, v);
+        }
+        double sum = 0;
+        double[] exps = new double[logits.length];
+        for (int i = 0; i < logits.length; i++) {
+            exps[i] = Math.exp((logits[i] - max) / temperature);
+            sum += exps[i];
+        }
+        for (int i = 0; i < exps.length; i++) {
+            exps[i] /= sum;
+        }
+        return exps;
+    }
+
+    @Test
+    void matchesFullSoftmaxAndSort() {
+        Random random = new Random(42);
+        for (int trial = 0; trial < 200; trial++) {
+            float[] logits = new float[1000];
+            for (int i = 0; i < logits.length; i++) {
+                logits[i] = (float) (random.nextGaussian() * 4);
+            }
+            int k = 1 + random.nextInt(10);
+            float temperature = trial % 2 == 0 ? 1.0f : 0.5f + random.nextFloat() * 2;
+
+            double[] probabilities = softmax(logits, temperature);
+            Integer[] order = new Integer[logits.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparingDouble((Integer i) -> -probabilities[i]).thenComparingInt(i -> i));
+
+            List<ClassScore> top = TopK.select(FloatBuffer.wrap(logits), k, temperature);
+            assertEquals(k, top.size());
+            for (int i = 0; i < k; i++) {
+                assertEquals(order[i], top.get(i).getClassId());
+                assertEquals(probabilities[order[i]], top.get(i).getProbability(), 1e-6);
+            }
+        }
+    }
+
+    @Test
+    void readsRowFromPositionAndKeepsLowestIdOnTies() {
+        FloatBuffer buffer = FloatBuffer.wrap(new float[]{9, 9, 1, 3, 3, 0});
+        buffer.position(2);
+
+        List<ClassScore> top = TopK.select(buffer, 10, 1.0f);
+        assertEquals(2, buffer.position());
+        assertEquals(4, top.size());
+        assertEquals(1, top.get(0).getClassId());
+        assertEquals(2, top.get(1).getClassId());
+        assertEquals(top.get(0).getProbability(), top.get(1).getProbability());
+        assertEquals(3, top.get(3).getClassId());
+    }
+
+    @Test
+    void rejectsInvalidArguments() {
+        FloatBuffer logits = FloatBuffer.wrap(new float[]{1, 2});
+        assertThrows(IllegalArgumentException.class, () -> TopK.select(logits, 0, 1.0f));
+        assertThrows(IllegalArgumentException.class, () -> TopK.select(logits, 1, 0f));
+    }
+}